@@ -0,0 +1,137 @@
+package com.polarbookshop.catalogservice.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model of the request execution modes at the same pool size: a fixed pool of platform threads,
+ * like Tomcat's, against a virtual thread per request behind a {@link ConcurrencyLimitedDataSource}.
+ * Each of the JMH threads plays a client sending requests back to back. A request sleeps for a
+ * while outside the database, then holds a connection of a semaphore-backed fake pool while it
+ * sleeps for the query time. Neither Tomcat, Hikari, the JDBC driver nor PostgreSQL take part, so
+ * the results only show how the modes queue on a pool under these assumptions; they are not a
+ * measurement of the service and say nothing of its throughput or latency. The virtual mode needs
+ * a Java 21 runtime.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(200)
+@State(Scope.Benchmark)
+public class RequestExecutionBenchmark {
+
+	private static final Duration CONNECTION_TIMEOUT = Duration.ofSeconds(2);
+
+	@Param({"platform", "virtual"})
+	private String mode;
+
+	@Param("50")
+	private int platformThreads;
+
+	@Param("5")
+	private int poolSize;
+
+	@Param("2")
+	private int queryMillis;
+
+	@Param("20")
+	private int otherBlockingMillis;
+
+	private ExecutorService executor;
+	private DataSource dataSource;
+
+	@Setup
+	public void setUp() {
+		var pool = new SimulatedPool(poolSize);
+		if (mode.equals("virtual")) {
+			executor = VirtualThreadsConfig.newVirtualThreadPerTaskExecutor();
+			dataSource = new ConcurrencyLimitedDataSource(pool, poolSize, CONNECTION_TIMEOUT);
+		} else {
+			executor = Executors.newFixedThreadPool(platformThreads);
+			dataSource = pool;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public Object request() throws ExecutionException, InterruptedException {
+		return executor.submit(this::handle)
+		               .get();
+	}
+
+	private Object handle() throws SQLException, InterruptedException {
+		Thread.sleep(otherBlockingMillis);
+		try (var connection = dataSource.getConnection()) {
+			Thread.sleep(queryMillis);
+			return connection;
+		}
+	}
+
+	/**
+	 * Pool of fake connections that blocks borrowers until one is returned, like Hikari.
+	 */
+	private static final class SimulatedPool extends AbstractDataSource {
+
+		private final Semaphore connections;
+
+		SimulatedPool(int size) {
+			this.connections = new Semaphore(size, true);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			try {
+				if (!connections.tryAcquire(CONNECTION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+					throw new SQLTransientConnectionException("Connection is not available, request timed out.");
+				}
+			} catch (InterruptedException exception) {
+				Thread.currentThread()
+				      .interrupt();
+				throw new SQLTransientConnectionException("Interrupted while waiting for a connection.", exception);
+			}
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+			                                           (proxy, method, args) -> {
+				                                           if (method.getName()
+				                                                     .equals("close")) {
+					                                           connections.release();
+				                                           }
+				                                           return null;
+			                                           });
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return getConnection();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.catalogservice.web.BookFormat;
+import com.polarbookshop.catalogservice.web.BookObjectMappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization and deserialization of a single book and of a list of books, using an
+ * {@link ObjectMapper} configured like the one Spring Boot gives to the controllers, in JSON and
+ * in the binary formats the controllers negotiate. The setup prints the encoded sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookJsonBenchmark {
+
+	private static final TypeReference<List<Book>> BOOK_LIST = new TypeReference<>() {};
+
+	@Param({ "JSON", "CBOR", "SMILE" })
+	private BookFormat format;
+
+	private ObjectMapper objectMapper;
+	private Book book;
+	private List<Book> books;
+	private byte[] bookJson;
+	private byte[] booksJson;
+
+	@Setup
+	public void setUp() throws IOException {
+		objectMapper = new BookObjectMappers(Jackson2ObjectMapperBuilder.json()
+		                                                                 .build()).get(format);
+		book = Books.book(42);
+		books = Books.books(1000);
+		bookJson = objectMapper.writeValueAsBytes(book);
+		booksJson = objectMapper.writeValueAsBytes(books);
+		System.out.printf("%n%s: %d bytes per book, %d bytes per 1000 books%n", format, bookJson.length, booksJson.length);
+	}
+
+	@Benchmark
+	public byte[] serializeBook() throws IOException {
+		return objectMapper.writeValueAsBytes(book);
+	}
+
+	@Benchmark
+	public Book deserializeBook() throws IOException {
+		return objectMapper.readValue(bookJson, Book.class);
+	}
+
+	@Benchmark
+	public byte[] serializeBookList() throws IOException {
+		return objectMapper.writeValueAsBytes(books);
+	}
+
+	@Benchmark
+	public List<Book> deserializeBookList() throws IOException {
+		return objectMapper.readValue(booksJson, BOOK_LIST);
+	}
+}
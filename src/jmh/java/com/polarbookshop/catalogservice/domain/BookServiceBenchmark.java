@@ -0,0 +1,116 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lookup and create paths of {@link BookService} against an {@link InMemoryBookRepository}, so
+ * that the numbers show the overhead of the service itself: the ISBN filter, the exceptions
+ * and the events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookServiceBenchmark {
+
+	private static final int CATALOG_SIZE = 100_000;
+
+	private BookService bookService;
+	private List<String> lookupIsbns;
+	private final AtomicLong nextIsbn = new AtomicLong(CATALOG_SIZE);
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		var bookRepository = new InMemoryBookRepository();
+		bookRepository.saveAll(Books.books(CATALOG_SIZE));
+		var polarProperties = new PolarProperties();
+		var bookIsbnFilter = new BookIsbnFilter(bookRepository, polarProperties, new SimpleMeterRegistry());
+		bookIsbnFilter.rebuild();
+		var bookSuggestionIndex = new BookSuggestionIndex(bookRepository, polarProperties, new SimpleMeterRegistry());
+		bookSuggestionIndex.rebuild();
+		bookService = new BookService(bookRepository, polarProperties, Validation.buildDefaultValidatorFactory()
+		                                                                         .getValidator(),
+		                              event -> {}, bookIsbnFilter, bookSuggestionIndex,
+		                              new InMemoryBookCatalog(bookRepository, polarProperties, new SimpleMeterRegistry()),
+		                              new SingleFlight<>(new SimpleMeterRegistry().counter("books.lookup.coalesced")),
+		                              new NoTransactionManager());
+		lookupIsbns = List.of(Books.isbn(1), Books.isbn(CATALOG_SIZE / 2), Books.isbn(CATALOG_SIZE - 1),
+		                      Books.isbn(CATALOG_SIZE * 2L), Books.isbn(CATALOG_SIZE * 3L));
+	}
+
+	@Benchmark
+	public Book getExistingBook() {
+		return bookService.getBook(Books.isbn(CATALOG_SIZE / 2));
+	}
+
+	@Benchmark
+	public void getMissingBook(Blackhole blackhole) {
+		try {
+			blackhole.consume(bookService.getBook(Books.isbn(CATALOG_SIZE * 2L)));
+		} catch (BookNotFoundException exception) {
+			blackhole.consume(exception);
+		}
+	}
+
+	@Benchmark
+	public BookLookup getBooksByIsbn() {
+		return bookService.getBooks(lookupIsbns);
+	}
+
+	@Benchmark
+	public Book addBookToCatalog() {
+		return bookService.addBookToCatalog(Books.book(nextIsbn.getAndIncrement()));
+	}
+
+	@Benchmark
+	public void addExistingBookToCatalog(Blackhole blackhole) {
+		try {
+			blackhole.consume(bookService.addBookToCatalog(Books.book(1)));
+		} catch (BookAlreadyExistsException exception) {
+			blackhole.consume(exception);
+		}
+	}
+
+	/**
+	 * Runs the transactions of the service without any, as the in-memory repository has none.
+	 */
+	private static class NoTransactionManager implements PlatformTransactionManager {
+
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			return new SimpleTransactionStatus();
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+		}
+	}
+}
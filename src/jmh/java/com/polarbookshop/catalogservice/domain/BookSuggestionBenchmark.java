@@ -0,0 +1,125 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link BookSuggestionIndex#suggest} over a catalog of titles and authors drawn from
+ * a fixed vocabulary, so that common words match many books like in a real catalog. The heap
+ * retained by the index is printed when it is built, to size the memory per million titles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BookSuggestionBenchmark {
+
+	private static final int VOCABULARY_SIZE = 50_000;
+	private static final int AUTHOR_COUNT = 100_000;
+	private static final String[] SYLLABLES = {"an", "ber", "cor", "da", "el", "fin", "gar", "hol", "is", "ka", "lor", "mi",
+	                                           "nor", "o", "pe", "qui", "ro", "sil", "ta", "u", "ver", "wen", "xa", "yl", "zor"};
+
+	@Param({"100000", "1000000"})
+	private int catalogSize;
+
+	private BookSuggestionIndex bookSuggestionIndex;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		var before = usedHeap();
+		var bookRepository = new InMemoryBookRepository();
+		bookRepository.saveAll(books(catalogSize));
+		bookSuggestionIndex = new BookSuggestionIndex(bookRepository, new PolarProperties(), new SimpleMeterRegistry());
+		bookSuggestionIndex.rebuild();
+		// The index then holds the only references to the titles and authors, like when built from the database
+		bookRepository.deleteAll();
+		var retained = usedHeap() - before;
+		System.out.printf("%nThe suggestion index of %d books retains %.1f MB, %.1f MB per million books%n", catalogSize,
+		                  retained / 1e6, retained / 1e6 * 1_000_000 / catalogSize);
+	}
+
+	@Benchmark
+	public List<BookSuggestion> suggestCommonPrefix() {
+		return bookSuggestionIndex.suggest("an", null);
+	}
+
+	@Benchmark
+	public List<BookSuggestion> suggestRarePrefix() {
+		return bookSuggestionIndex.suggest("zorzor", null);
+	}
+
+	@Benchmark
+	public List<BookSuggestion> suggestSeveralWords() {
+		return bookSuggestionIndex.suggest("elber co", null);
+	}
+
+	@Benchmark
+	public List<BookSuggestion> suggestUnknownPrefix() {
+		return bookSuggestionIndex.suggest("qqq", null);
+	}
+
+	private static List<Book> books(int count) {
+		var random = new Random(42);
+		var vocabulary = new String[VOCABULARY_SIZE];
+		for (var i = 0; i < vocabulary.length; i++) {
+			vocabulary[i] = word(random, 1 + random.nextInt(3));
+		}
+		var created = Instant.parse("2023-11-01T10:15:30Z");
+		var books = new ArrayList<Book>(count);
+		for (var n = 0; n < count; n++) {
+			var title = new StringBuilder();
+			for (var words = 2 + random.nextInt(4); words > 0; words--) {
+				// Skewed towards the first words of the vocabulary, like the common words of real titles
+				var index = (int) (VOCABULARY_SIZE * Math.pow(random.nextDouble(), 3));
+				title.append(title.isEmpty() ? "" : " ")
+				     .append(vocabulary[index]);
+			}
+			var authorRandom = new Random(random.nextInt(AUTHOR_COUNT));
+			var author = capitalize(word(authorRandom, 2)) + " " + capitalize(word(authorRandom, 3));
+			books.add(new Book(n + 1L, Books.isbn(n), capitalize(title.toString()), author, 9.90, 1, created, created));
+		}
+		return books;
+	}
+
+	private static String word(Random random, int syllables) {
+		var word = new StringBuilder();
+		for (var i = 0; i < syllables; i++) {
+			word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		return word.toString();
+	}
+
+	private static String capitalize(String word) {
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+	}
+
+	private static long usedHeap() {
+		for (var i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean()
+		                        .getHeapMemoryUsage()
+		                        .getUsed();
+	}
+}
@@ -0,0 +1,70 @@
+package com.polarbookshop.catalogservice.domain;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of a valid book and of books rejected by the ISBN pattern and by the other
+ * constraints, which also pay for interpolating the violation messages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookValidationBenchmark {
+
+	private Validator validator;
+	private Book validBook;
+	private Book invalidIsbnBook;
+	private Book invalidBook;
+
+	@Setup
+	public void setUp() {
+		validator = Validation.buildDefaultValidatorFactory()
+		                      .getValidator();
+		validBook = Books.book(42);
+		invalidIsbnBook = Book.builder()
+		                      .isbn("a234567890")
+		                      .title("Title")
+		                      .author("Author")
+		                      .price(9.90)
+		                      .build();
+		invalidBook = Book.builder()
+		                  .isbn("")
+		                  .title("")
+		                  .author("")
+		                  .price(-9.90)
+		                  .build();
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Book>> validateValidBook() {
+		return validator.validate(validBook);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Book>> validateInvalidIsbn() {
+		return validator.validate(invalidIsbnBook);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<Book>> validateInvalidBook() {
+		return validator.validate(invalidBook);
+	}
+}
@@ -0,0 +1,39 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic sample books for the benchmarks.
+ */
+public final class Books {
+
+	private Books() {}
+
+	public static Book book(long n) {
+		var created = Instant.parse("2023-11-01T10:15:30Z");
+		return new Book(n + 1, isbn(n), "Title " + n, "Author " + (n % 1000), 9.90 + n % 50, 1, created, created);
+	}
+
+	/**
+	 * Returns the {@code n}-th sample ISBN: a valid ISBN-13 in the 978 prefix.
+	 */
+	public static String isbn(long n) {
+		var withoutCheckDigit = 978000000000L + n;
+		var sum = 0L;
+		for (var i = 0; i < 12; i++) {
+			sum += withoutCheckDigit % 10 * (i % 2 == 0 ? 3 : 1);
+			withoutCheckDigit /= 10;
+		}
+		return String.valueOf((978000000000L + n) * 10 + (10 - sum % 10) % 10);
+	}
+
+	public static List<Book> books(int count) {
+		var books = new ArrayList<Book>(count);
+		for (var n = 0; n < count; n++) {
+			books.add(book(n));
+		}
+		return books;
+	}
+}
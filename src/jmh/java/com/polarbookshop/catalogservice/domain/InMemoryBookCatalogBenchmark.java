@@ -0,0 +1,91 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups by ISBN in the {@link PackedBookStore} of the in-memory catalog, against a map of
+ * {@link Book} records holding the same catalog. The heap retained by each is printed when it is
+ * built, to size the memory per million books.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class InMemoryBookCatalogBenchmark {
+
+	@Param({"1000000"})
+	private int catalogSize;
+
+	@Param({"packed", "records"})
+	private String layout;
+
+	private String[] isbns;
+	private PackedBookStore packedBookStore;
+	private Map<String, Book> bookRecords;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		isbns = new String[catalogSize];
+		for (var n = 0; n < catalogSize; n++) {
+			isbns[n] = Books.isbn(n);
+		}
+		var before = usedHeap();
+		if (layout.equals("packed")) {
+			packedBookStore = new PackedBookStore(catalogSize);
+			for (var n = 0; n < catalogSize; n++) {
+				packedBookStore.put(Books.book(n));
+			}
+		} else {
+			bookRecords = new HashMap<>(catalogSize * 2);
+			for (var n = 0; n < catalogSize; n++) {
+				var book = Books.book(n);
+				bookRecords.put(book.isbn(), book);
+			}
+		}
+		var retained = usedHeap() - before;
+		System.out.printf("%nThe %s catalog of %d books retains %.1f MB, %.1f MB per million books%n", layout, catalogSize,
+		                  retained / 1e6, retained / 1e6 * 1_000_000 / catalogSize);
+	}
+
+	@Benchmark
+	public Book lookup() {
+		var isbn = isbns[ThreadLocalRandom.current()
+		                                  .nextInt(catalogSize)];
+		return packedBookStore != null ? packedBookStore.get(isbn) : bookRecords.get(isbn);
+	}
+
+	@Benchmark
+	public Book lookupMissing() {
+		var isbn = Books.isbn(catalogSize + ThreadLocalRandom.current()
+		                                                      .nextInt(catalogSize));
+		return packedBookStore != null ? packedBookStore.get(isbn) : bookRecords.get(isbn);
+	}
+
+	private static long usedHeap() {
+		for (var i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean()
+		                        .getHeapMemoryUsage()
+		                        .getUsed();
+	}
+}
@@ -0,0 +1,250 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link BookRepository} stand-in keeping the books in a map, so that benchmarks measure the
+ * service code rather than the database.
+ */
+public class InMemoryBookRepository implements BookRepository {
+
+	private final ConcurrentHashMap<Long, Book> booksByIsbnKey = new ConcurrentHashMap<>();
+	private final AtomicLong ids = new AtomicLong();
+	private final AtomicLong watermark = new AtomicLong();
+	private final ConcurrentLinkedQueue<BookChange> tombstones = new ConcurrentLinkedQueue<>();
+
+	@Override
+	public Optional<Book> findByIsbnKey(long isbnKey) {
+		return Optional.ofNullable(booksByIsbnKey.get(isbnKey));
+	}
+
+	@Override
+	public boolean existsByIsbnKey(long isbnKey) {
+		return booksByIsbnKey.containsKey(isbnKey);
+	}
+
+	@Override
+	public void deleteByIsbnKey(long isbnKey) {
+		var deleted = booksByIsbnKey.remove(isbnKey);
+		if (deleted != null) {
+			tombstones.add(BookChange.deleted(deleted.id(), deleted.isbn(), Instant.now()));
+			watermark.incrementAndGet();
+		}
+	}
+
+	@Override
+	public List<Book> findPage(BookSort sort, @Nullable String after, @Nullable String author, int limit, Set<BookField> fields) {
+		Comparator<Book> order = sort.column()
+		                             .equals("id") ? Comparator.comparing(Book::id) : Comparator.comparing(Book::isbn);
+		var afterBook = after == null ? null : sort.column()
+		                                           .equals("id") ? Book.builder()
+		                                                               .id(Long.valueOf(after))
+		                                                               .build()
+		                                                         : Book.builder()
+		                                                               .isbn(after)
+		                                                               .build();
+		var directedOrder = sort.ascending() ? order : order.reversed();
+		return booksByIsbnKey.values()
+		                     .stream()
+		                     .filter(book -> afterBook == null || directedOrder.compare(book, afterBook) > 0)
+		                     .filter(book -> author == null || author.equals(book.author()))
+		                     .sorted(directedOrder)
+		                     .limit(limit)
+		                     .toList();
+	}
+
+	@Override
+	public Optional<Book> insertIfAbsent(Book book) {
+		var now = Instant.now();
+		var persisted = new Book(ids.incrementAndGet(), book.isbn(), book.title(), book.author(), book.price(), 1, now, now);
+		if (booksByIsbnKey.putIfAbsent(Isbn.key(book.isbn()), persisted) != null) {
+			return Optional.empty();
+		}
+		watermark.incrementAndGet();
+		return Optional.of(persisted);
+	}
+
+	@Override
+	public Optional<Book> updateIfMatches(String isbn, Book book, @Nullable BookPrecondition precondition) {
+		var matched = new AtomicBoolean();
+		var updated = booksByIsbnKey.computeIfPresent(Isbn.key(isbn), (key, existing) -> {
+			if (precondition != null && !precondition.matches(existing)) {
+				return existing;
+			}
+			matched.set(true);
+			return new Book(existing.id(), existing.isbn(), book.title(), book.author(), book.price(), existing.version() + 1,
+			                existing.createdDate(), Instant.now());
+		});
+		if (!matched.get()) {
+			return Optional.empty();
+		}
+		watermark.incrementAndGet();
+		return Optional.of(updated);
+	}
+
+	@Override
+	public int[] insertAllIfAbsent(List<Book> books) {
+		var insertedRows = new int[books.size()];
+		for (var i = 0; i < books.size(); i++) {
+			insertedRows[i] = insertIfAbsent(books.get(i)).isPresent() ? 1 : 0;
+		}
+		return insertedRows;
+	}
+
+	@Override
+	public List<Book> findAllByIsbn(Collection<String> isbns) {
+		var books = new ArrayList<Book>(isbns.size());
+		for (var isbn : isbns) {
+			var book = booksByIsbnKey.get(Isbn.key(isbn));
+			if (book != null) {
+				books.add(book);
+			}
+		}
+		return books;
+	}
+
+	@Override
+	public void forEachIsbn(Consumer<String> consumer) {
+		booksByIsbnKey.values()
+		              .forEach(book -> consumer.accept(book.isbn()));
+	}
+
+	@Override
+	public void forEachBook(Consumer<Book> consumer) {
+		forEach(BookSort.ID, null, consumer);
+	}
+
+	@Override
+	public CatalogWatermark findCatalogWatermark() {
+		return new CatalogWatermark(watermark.get(), Instant.EPOCH);
+	}
+
+	@Override
+	public void forEach(BookSort sort, @Nullable String after, Set<BookField> fields, Consumer<Book> consumer) {
+		findPage(sort, after, null, Integer.MAX_VALUE, fields).forEach(consumer);
+	}
+
+	@Override
+	public List<Book> search(BookSearchQuery query, int offset, int limit, int maxResults) {
+		return booksByIsbnKey.values()
+		                     .stream()
+		                     .filter(book -> query.terms()
+		                                          .stream()
+		                                          .allMatch(term -> (book.title() + " " + book.author()).toLowerCase()
+		                                                                                               .contains(term)))
+		                     .limit(maxResults)
+		                     .sorted(Comparator.comparing(Book::id))
+		                     .skip(offset)
+		                     .limit(limit)
+		                     .toList();
+	}
+
+	@Override
+	public List<BookChange> findChanges(BookChangeCursor after, Instant settledBefore, int limit) {
+		Comparator<BookChange> order = Comparator.comparing(BookChange::modifiedDate)
+		                                         .thenComparing(BookChange::id);
+		var afterChange = BookChange.deleted(after.id(), "", after.modifiedDate());
+		return Stream.concat(booksByIsbnKey.values()
+		                                   .stream()
+		                                   .map(BookChange::upserted), tombstones.stream())
+		             .filter(change -> order.compare(change, afterChange) > 0 && change.modifiedDate()
+		                                                                             .isBefore(settledBefore))
+		             .sorted(order)
+		             .limit(limit)
+		             .toList();
+	}
+
+	@Override
+	public int deleteTombstonesBefore(Instant date) {
+		var size = tombstones.size();
+		tombstones.removeIf(tombstone -> tombstone.modifiedDate()
+		                                          .isBefore(date));
+		return size - tombstones.size();
+	}
+
+	@Override
+	public <S extends Book> S save(S book) {
+		throw new UnsupportedOperationException("Use insertIfAbsent or updateIfMatches.");
+	}
+
+	@Override
+	public <S extends Book> Iterable<S> saveAll(Iterable<S> books) {
+		books.forEach(this::insertIfAbsent);
+		return books;
+	}
+
+	@Override
+	public Optional<Book> findById(Long id) {
+		return booksByIsbnKey.values()
+		                     .stream()
+		                     .filter(book -> book.id()
+		                                         .equals(id))
+		                     .findFirst();
+	}
+
+	@Override
+	public boolean existsById(Long id) {
+		return findById(id).isPresent();
+	}
+
+	@Override
+	public Iterable<Book> findAll() {
+		return List.copyOf(booksByIsbnKey.values());
+	}
+
+	@Override
+	public Iterable<Book> findAllById(Iterable<Long> ids) {
+		var idList = StreamSupport.stream(ids.spliterator(), false)
+		                          .toList();
+		return booksByIsbnKey.values()
+		                     .stream()
+		                     .filter(book -> idList.contains(book.id()))
+		                     .toList();
+	}
+
+	@Override
+	public long count() {
+		return booksByIsbnKey.size();
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		findById(id).ifPresent(this::delete);
+	}
+
+	@Override
+	public void delete(Book book) {
+		deleteByIsbn(book.isbn());
+	}
+
+	@Override
+	public void deleteAllById(Iterable<? extends Long> ids) {
+		ids.forEach(this::deleteById);
+	}
+
+	@Override
+	public void deleteAll(Iterable<? extends Book> books) {
+		books.forEach(this::delete);
+	}
+
+	@Override
+	public void deleteAll() {
+		booksByIsbnKey.clear();
+		watermark.incrementAndGet();
+	}
+}
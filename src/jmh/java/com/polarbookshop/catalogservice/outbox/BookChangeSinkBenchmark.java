@@ -0,0 +1,84 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import com.polarbookshop.catalogservice.domain.Books;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the sinks the outbox publisher drains to, in changes per second, for a full
+ * batch of {@value #BATCH_SIZE} changes. The file sink forces every batch to disk, so its
+ * numbers depend on the storage as much as on the code.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookChangeSinkBenchmark {
+
+	private static final int BATCH_SIZE = 500;
+
+	private List<BookChangeMessage> batch;
+	private InMemoryBookChangeSink memorySink;
+	private FileBookChangeSink fileSink;
+	private Path file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		var now = Instant.now();
+		batch = new ArrayList<>(BATCH_SIZE);
+		for (var n = 0; n < BATCH_SIZE; n++) {
+			batch.add(new BookChangeMessage(n, BookChangedEvent.Type.UPDATED, Books.book(n), now));
+		}
+		memorySink = new InMemoryBookChangeSink(10_000);
+		file = Files.createTempFile("book-changes", ".ndjson");
+		var writer = Jackson2ObjectMapperBuilder.json()
+		                                        .build()
+		                                        .writerFor(BookChangeMessage.class);
+		fileSink = new FileBookChangeSink(file, writer);
+	}
+
+	@TearDown(Level.Iteration)
+	public void truncate() throws IOException {
+		Files.write(file, new byte[0]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void publishToMemory() {
+		memorySink.publish(batch);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void publishToFile() {
+		fileSink.publish(batch);
+	}
+}
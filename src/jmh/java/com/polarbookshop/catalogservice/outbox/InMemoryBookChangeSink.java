@@ -0,0 +1,32 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Keeps the last published messages in memory, up to a capacity, to measure the sinks against.
+ * It is not one of the configurable sinks, since the outbox deletes what it publishes.
+ */
+public class InMemoryBookChangeSink implements BookChangeSink {
+
+	private final int capacity;
+	private final ArrayDeque<BookChangeMessage> messages = new ArrayDeque<>();
+
+	public InMemoryBookChangeSink(int capacity) {
+		this.capacity = capacity;
+	}
+
+	@Override
+	public synchronized void publish(List<BookChangeMessage> batch) {
+		for (var message : batch) {
+			if (messages.size() == capacity) {
+				messages.removeFirst();
+			}
+			messages.addLast(message);
+		}
+	}
+
+	public synchronized List<BookChangeMessage> messages() {
+		return List.copyOf(messages);
+	}
+}
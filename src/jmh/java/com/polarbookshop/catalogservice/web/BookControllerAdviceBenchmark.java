@@ -0,0 +1,50 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.polarbookshop.catalogservice.domain.BookAlreadyExistsException;
+import com.polarbookshop.catalogservice.domain.BookNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of raising a domain exception and turning it into a response body in
+ * {@link BookControllerAdvice}. {@link BookNotFoundException} skips the stack trace, while
+ * {@link BookAlreadyExistsException} fills it in and serves as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookControllerAdviceBenchmark {
+
+	private final BookControllerAdvice bookControllerAdvice = new BookControllerAdvice();
+	private String isbn = "9780000000042";
+
+	@Benchmark
+	public String bookNotFound() {
+		try {
+			throw new BookNotFoundException(isbn);
+		} catch (BookNotFoundException exception) {
+			return bookControllerAdvice.bookNotFoundHandler(exception);
+		}
+	}
+
+	@Benchmark
+	public String bookAlreadyExists() {
+		try {
+			throw new BookAlreadyExistsException(isbn);
+		} catch (BookAlreadyExistsException exception) {
+			return bookControllerAdvice.bookAlreadyExistsHandler(exception);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookField;
+import com.polarbookshop.catalogservice.domain.BookPage;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import com.polarbookshop.catalogservice.domain.Books;
+import com.polarbookshop.catalogservice.domain.CatalogWatermark;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving a book and a page of 20 books from the {@link BookResponseCache}, against serializing
+ * them with Jackson on every request as the controller did before, and serializing the page with
+ * only the ISBN, title and price of its books.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookResponseCacheBenchmark {
+
+	private static final Set<BookField> PROJECTION = EnumSet.of(BookField.ISBN, BookField.TITLE, BookField.PRICE);
+
+	private ObjectMapper objectMapper;
+	private BookResponseCache bookResponseCache;
+	private CatalogWatermark watermark;
+	private Book book;
+	private BookPage page;
+
+	@Setup
+	public void setUp() {
+		objectMapper = Jackson2ObjectMapperBuilder.json()
+		                                          .build();
+		bookResponseCache = new BookResponseCache(new BookObjectMappers(objectMapper), new PolarProperties(), new SimpleMeterRegistry());
+		watermark = new CatalogWatermark(1, Instant.parse("2023-11-01T10:15:30Z"));
+		book = Books.book(42);
+		page = new BookPage(Books.books(20), "20");
+	}
+
+	@Benchmark
+	public byte[] serializeBook() throws IOException {
+		return objectMapper.writeValueAsBytes(book);
+	}
+
+	@Benchmark
+	public byte[] cachedBook() {
+		return bookResponseCache.book(book, BookFormat.JSON)
+		                        .body();
+	}
+
+	@Benchmark
+	public byte[] serializePage() throws IOException {
+		return objectMapper.writeValueAsBytes(page.books());
+	}
+
+	@Benchmark
+	public byte[] serializeProjectedPage() throws IOException {
+		return objectMapper.writeValueAsBytes(BookProjection.of(page.books(), PROJECTION));
+	}
+
+	@Benchmark
+	public byte[] cachedPage() {
+		return bookResponseCache.page(watermark, null, 20, BookSort.ID, null, BookField.ALL, BookFormat.JSON, () -> page)
+		                        .body();
+	}
+
+	@Benchmark
+	public byte[] cachedPageGzipped() {
+		return bookResponseCache.page(watermark, null, 20, BookSort.ID, null, BookField.ALL, BookFormat.JSON, () -> page)
+		                        .gzippedBody();
+	}
+}
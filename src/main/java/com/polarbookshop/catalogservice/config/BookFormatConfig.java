@@ -0,0 +1,35 @@
+package com.polarbookshop.catalogservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.catalogservice.web.BookFormat;
+import com.polarbookshop.catalogservice.web.BookObjectMappers;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Lets the controllers read and write CBOR and Smile with the mappers of {@link BookObjectMappers}.
+ * The converters replace the default ones of Spring MVC, which are built without the Spring Boot
+ * customizations, and keep their place after the JSON converter so that JSON stays the default.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BookFormatConfig {
+
+	@Bean
+	BookObjectMappers bookObjectMappers(ObjectMapper objectMapper) {
+		return new BookObjectMappers(objectMapper);
+	}
+
+	@Bean
+	MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(BookObjectMappers bookObjectMappers) {
+		return new MappingJackson2CborHttpMessageConverter(bookObjectMappers.get(BookFormat.CBOR));
+	}
+
+	@Bean
+	MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(BookObjectMappers bookObjectMappers) {
+		return new MappingJackson2SmileHttpMessageConverter(bookObjectMappers.get(BookFormat.SMILE));
+	}
+}
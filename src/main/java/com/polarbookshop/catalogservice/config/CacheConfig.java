@@ -0,0 +1,24 @@
+package com.polarbookshop.catalogservice.config;
+
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+	/**
+	 * Shares the in-flight loads of books by ISBN between concurrent lookups that miss the cache.
+	 */
+	@Bean
+	SingleFlight<String, Book> bookLoads(MeterRegistry meterRegistry) {
+		return new SingleFlight<>(Counter.builder("books.lookup.coalesced")
+		                                 .description("Book lookups that waited for the query of a concurrent lookup instead of running their own")
+		                                 .register(meterRegistry));
+	}
+}
@@ -0,0 +1,69 @@
+package com.polarbookshop.catalogservice.config;
+
+import com.polarbookshop.catalogservice.web.ConcurrencyLimitFilter;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.util.Objects;
+import java.util.function.IntSupplier;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "polar.concurrency-limit.enabled", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+	@Bean
+	FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(PolarProperties polarProperties,
+	                                                                      ObjectProvider<DataSource> dataSources,
+	                                                                      MeterRegistry meterRegistry) {
+		var filter = new ConcurrencyLimitFilter(polarProperties.getConcurrencyLimit(), pendingConnections(dataSources),
+		                                        meterRegistry);
+		var registration = new FilterRegistrationBean<>(filter);
+		registration.addUrlPatterns("/books", "/books/*");
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+		return registration;
+	}
+
+	/**
+	 * Reads the number of threads waiting for a connection straight from the Hikari pools, the
+	 * primary one and the read replica one if any, which are only created on the first connection.
+	 * In the virtual-thread mode, the threads mostly wait on the {@link ConcurrencyLimitedDataSource}
+	 * guarding each pool before they reach it, so its queue is counted as well.
+	 */
+	private static IntSupplier pendingConnections(ObjectProvider<DataSource> dataSources) {
+		var allDataSources = dataSources.orderedStream()
+		                                .toList();
+		var hikariDataSources = allDataSources.stream()
+		                                      .map(dataSource -> DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class,
+		                                                                                    HikariDataSource.class))
+		                                      .filter(Objects::nonNull)
+		                                      .distinct()
+		                                      .toList();
+		var limitedDataSources = allDataSources.stream()
+		                                       .map(dataSource -> DataSourceUnwrapper.unwrap(dataSource, ConcurrencyLimitedDataSource.class))
+		                                       .filter(Objects::nonNull)
+		                                       .distinct()
+		                                       .toList();
+		return () -> {
+			var pending = 0;
+			for (var hikariDataSource : hikariDataSources) {
+				var pool = hikariDataSource.getHikariPoolMXBean();
+				pending += pool != null ? pool.getThreadsAwaitingConnection() : 0;
+			}
+			for (var limitedDataSource : limitedDataSources) {
+				pending += limitedDataSource.getQueueLength();
+			}
+			return pending;
+		};
+	}
+}
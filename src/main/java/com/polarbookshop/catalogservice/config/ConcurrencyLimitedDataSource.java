@@ -0,0 +1,116 @@
+package com.polarbookshop.catalogservice.config;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets no more threads borrow a connection at once than the pool holds, making the others wait
+ * on a fair semaphore. With virtual threads there can be thousands of requests in flight, and
+ * parking them here keeps them off the pool's own hand-off queue and the driver's monitors,
+ * which would pin their carrier threads.
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+	private final Semaphore permits;
+	private final Duration timeout;
+
+	public ConcurrencyLimitedDataSource(DataSource targetDataSource, int maxConnections, Duration timeout) {
+		super(targetDataSource);
+		this.permits = new Semaphore(maxConnections, true);
+		this.timeout = timeout;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		try {
+			return guard(super.getConnection());
+		} catch (SQLException | RuntimeException exception) {
+			permits.release();
+			throw exception;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		try {
+			return guard(super.getConnection(username, password));
+		} catch (SQLException | RuntimeException exception) {
+			permits.release();
+			throw exception;
+		}
+	}
+
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * Returns an estimate of the number of threads waiting for a permit, which the pool does not
+	 * see among the threads awaiting one of its connections.
+	 */
+	public int getQueueLength() {
+		return permits.getQueueLength();
+	}
+
+	private void acquire() throws SQLException {
+		try {
+			if (!permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+				throw new SQLTransientConnectionException(
+						String.format("No database connection available within %d ms.", timeout.toMillis()));
+			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread()
+			      .interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a database connection.", exception);
+		}
+	}
+
+	/**
+	 * Wraps the connection so that closing it gives the permit back, once.
+	 */
+	private Connection guard(Connection connection) {
+		var released = new AtomicBoolean();
+		return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+		                                           new Class<?>[] {ConnectionProxy.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getTargetConnection" -> {
+					return connection;
+				}
+				case "equals" -> {
+					return proxy == args[0];
+				}
+				case "hashCode" -> {
+					return System.identityHashCode(proxy);
+				}
+				case "close" -> {
+					try {
+						connection.close();
+					} finally {
+						if (released.compareAndSet(false, true)) {
+							permits.release();
+						}
+					}
+					return null;
+				}
+			}
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException exception) {
+				throw exception.getTargetException();
+			}
+		});
+	}
+}
@@ -1,8 +1,11 @@
 package com.polarbookshop.catalogservice.config;
 
+import com.polarbookshop.catalogservice.domain.BookRepository;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jdbc.repository.config.EnableJdbcAuditing;
+import org.springframework.data.jdbc.repository.config.EnableJdbcRepositories;
 
 @Configuration
 @EnableJdbcAuditing
+@EnableJdbcRepositories(basePackageClasses = BookRepository.class)
 public class DataConfig {}
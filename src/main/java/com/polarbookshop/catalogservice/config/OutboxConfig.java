@@ -0,0 +1,54 @@
+package com.polarbookshop.catalogservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.polarbookshop.catalogservice.outbox.BookChangeMessage;
+import com.polarbookshop.catalogservice.outbox.BookChangeSink;
+import com.polarbookshop.catalogservice.outbox.BookOutboxPublisher;
+import com.polarbookshop.catalogservice.outbox.FileBookChangeSink;
+import com.polarbookshop.catalogservice.outbox.HttpBookChangeSink;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@ConditionalOnProperty(name = "polar.outbox.enabled", havingValue = "true")
+public class OutboxConfig {
+
+	@Bean
+	BookOutboxPublisher bookOutboxPublisher(JdbcTemplate jdbcTemplate, BookChangeSink bookChangeSink,
+	                                        PolarProperties polarProperties, MeterRegistry meterRegistry) {
+		return new BookOutboxPublisher(jdbcTemplate, bookChangeSink, polarProperties.getOutbox(), meterRegistry);
+	}
+
+	/**
+	 * The sink selected by {@code polar.outbox.sink}, unless the application declares its own.
+	 * Starting without one fails, rather than draining the outbox to nowhere.
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	BookChangeSink bookChangeSink(PolarProperties polarProperties, ObjectMapper objectMapper) {
+		var outbox = polarProperties.getOutbox();
+		var writer = objectMapper.writerFor(BookChangeMessage.class)
+		                         .without(SerializationFeature.INDENT_OUTPUT);
+		if (outbox.getSink() == null) {
+			throw new IllegalStateException("polar.outbox.sink must be set to file or http to publish the book changes.");
+		}
+		return switch (outbox.getSink()) {
+			case FILE -> new FileBookChangeSink(outbox.getFile(), writer);
+			case HTTP -> {
+				if (outbox.getUrl() == null) {
+					throw new IllegalStateException("polar.outbox.url must be set to publish the book changes over HTTP.");
+				}
+				var restTemplate = new RestTemplateBuilder().setConnectTimeout(outbox.getTimeout())
+				                                            .setReadTimeout(outbox.getTimeout())
+				                                            .build();
+				yield new HttpBookChangeSink(outbox.getUrl(), restTemplate, writer);
+			}
+		};
+	}
+}
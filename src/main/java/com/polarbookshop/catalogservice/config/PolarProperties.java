@@ -3,6 +3,11 @@ package com.polarbookshop.catalogservice.config;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 
 @Setter
 @Getter
@@ -13,4 +18,420 @@ public class PolarProperties {
 	 * A message to welcome users.
 	 */
 	private String greeting;
+
+	/**
+	 * Paging of the catalog listing.
+	 */
+	private final Page page = new Page();
+
+	/**
+	 * Bulk ingest of books.
+	 */
+	private final Batch batch = new Batch();
+
+	/**
+	 * Lookup of several books by ISBN in one request.
+	 */
+	private final Lookup lookup = new Lookup();
+
+	/**
+	 * Propagation of book changes between replicas.
+	 */
+	private final ChangeNotifications changeNotifications = new ChangeNotifications();
+
+	/**
+	 * Membership filter answering for unknown ISBNs without a database query.
+	 */
+	private final IsbnFilter isbnFilter = new IsbnFilter();
+
+	/**
+	 * Streaming export of the whole catalog.
+	 */
+	private final Export export = new Export();
+
+	/**
+	 * Full-text search over the titles and authors.
+	 */
+	private final Search search = new Search();
+
+	/**
+	 * Incremental feed of the book changes.
+	 */
+	private final Changes changes = new Changes();
+
+	/**
+	 * Publication of the book changes through the transactional outbox.
+	 */
+	private final Outbox outbox = new Outbox();
+
+	/**
+	 * Autocomplete of titles and authors from memory.
+	 */
+	private final Suggest suggest = new Suggest();
+
+	/**
+	 * Lookups by ISBN served from a copy of the whole catalog in memory.
+	 */
+	private final InMemoryCatalog inMemoryCatalog = new InMemoryCatalog();
+
+	/**
+	 * Cache of the encoded responses of the book lookups and of the catalog pages.
+	 */
+	private final ResponseCache responseCache = new ResponseCache();
+
+	/**
+	 * Routing of the reads to a read replica.
+	 */
+	private final ReadReplica readReplica = new ReadReplica();
+
+	/**
+	 * Adaptive limit on the concurrent requests to the book endpoints.
+	 */
+	private final ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+	/**
+	 * Execution of the requests on virtual threads.
+	 */
+	private final VirtualThreads virtualThreads = new VirtualThreads();
+
+	@Setter
+	@Getter
+	public static class Page {
+
+		/**
+		 * Number of books returned when the client does not ask for a page size.
+		 */
+		private int defaultSize = 20;
+
+		/**
+		 * Largest page size a client can ask for.
+		 */
+		private int maxSize = 100;
+	}
+
+	@Setter
+	@Getter
+	public static class Batch {
+
+		/**
+		 * Number of books sent to the database in one JDBC batch.
+		 */
+		private int chunkSize = 500;
+
+		/**
+		 * Largest number of books accepted in one ingest request.
+		 */
+		private int maxItems = 10000;
+	}
+
+	@Setter
+	@Getter
+	public static class Lookup {
+
+		/**
+		 * Largest number of ISBNs that can be looked up in one request.
+		 */
+		private int maxIsbns = 100;
+	}
+
+	@Setter
+	@Getter
+	public static class ChangeNotifications {
+
+		/**
+		 * Whether to listen for the book changes made by other replicas, to keep caches up to date.
+		 */
+		private boolean enabled = true;
+	}
+
+	@Setter
+	@Getter
+	public static class IsbnFilter {
+
+		/**
+		 * Whether to reject unknown ISBNs before querying the database. Only takes effect along
+		 * with change notifications, which add the books created by other replicas to the filter.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Number of ISBNs the filter is sized for, at least. It grows with the catalog on rebuilds.
+		 */
+		private int expectedInsertions = 1_000_000;
+
+		/**
+		 * Target rate of unknown ISBNs wrongly reported as possibly present.
+		 */
+		private double falsePositiveRate = 0.01;
+
+		/**
+		 * Share of the ISBNs in the filter that may belong to deleted books before it is rebuilt.
+		 */
+		private double maxDeletedRatio = 0.1;
+	}
+
+	@Setter
+	@Getter
+	public static class Export {
+
+		/**
+		 * Largest number of exports running at once, each holding a database connection.
+		 */
+		private int maxConcurrent = 1;
+	}
+
+	@Setter
+	@Getter
+	public static class Search {
+
+		/**
+		 * Largest number of matches ranked and paged through for one query.
+		 */
+		private int maxResults = 1000;
+
+		/**
+		 * Largest number of words in one query.
+		 */
+		private int maxTerms = 8;
+	}
+
+	@Setter
+	@Getter
+	public static class Changes {
+
+		/**
+		 * Number of changes returned when the client does not ask for a page size.
+		 */
+		private int defaultSize = 100;
+
+		/**
+		 * Largest page size a client can ask for.
+		 */
+		private int maxSize = 1000;
+
+		/**
+		 * Age below which changes are held back, so that a transaction committing late cannot
+		 * add changes behind a cursor already handed out. Must exceed the longest write transaction;
+		 * the chunks of a batch ingest time out after half of it, the other writes being single statements.
+		 */
+		private Duration settleTime = Duration.ofSeconds(10);
+
+		/**
+		 * How long the deletions are kept. Clients that have not synchronized for longer must
+		 * read the whole catalog again.
+		 */
+		private Duration tombstoneRetention = Duration.ofDays(30);
+	}
+
+	@Setter
+	@Getter
+	public static class Outbox {
+
+		/**
+		 * Whether to publish the book changes recorded in the outbox. A sink must be set along.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Largest number of changes published, then deleted from the outbox, in one batch.
+		 */
+		private int batchSize = 500;
+
+		/**
+		 * How long the other replicas skip a batch taken by a publisher. It should exceed the time
+		 * to publish a batch, since a batch still unpublished by then may be published twice.
+		 */
+		private Duration claimTime = Duration.ofSeconds(30);
+
+		/**
+		 * Where the changes are published. There is no default, since the changes are deleted
+		 * from the outbox once published.
+		 */
+		private Sink sink;
+
+		/**
+		 * File the file sink appends the changes to, as NDJSON.
+		 */
+		private Path file = Path.of("book-changes.ndjson");
+
+		/**
+		 * Endpoint the HTTP sink posts the batches of changes to, as NDJSON.
+		 */
+		private URI url;
+
+		/**
+		 * Connect and read timeout of the HTTP sink.
+		 */
+		private Duration timeout = Duration.ofSeconds(5);
+
+		public enum Sink {
+			FILE,
+			HTTP
+		}
+	}
+
+	@Setter
+	@Getter
+	public static class Suggest {
+
+		/**
+		 * Whether to keep the titles and authors in memory to suggest books as the user types.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Number of suggestions returned when the client does not ask for a number.
+		 */
+		private int defaultSize = 10;
+
+		/**
+		 * Largest number of suggestions a client can ask for.
+		 */
+		private int maxSize = 20;
+	}
+
+	@Setter
+	@Getter
+	public static class InMemoryCatalog {
+
+		/**
+		 * Whether to load the whole catalog into memory at startup and serve the lookups by ISBN from it.
+		 */
+		private boolean enabled = false;
+	}
+
+	@Setter
+	@Getter
+	public static class ResponseCache {
+
+		/**
+		 * Whether to keep the encoded JSON of the books and catalog pages served, instead of serializing them on every request.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Maximum size of the cached responses, gzipped copies included.
+		 */
+		private DataSize maxSize = DataSize.ofMegabytes(64);
+
+		/**
+		 * Whether to also keep a gzipped copy of the responses, served to the clients that accept it.
+		 */
+		private boolean gzip = true;
+
+		/**
+		 * Size from which responses are gzipped, below which compressing saves too little to be worth it.
+		 */
+		private DataSize gzipMinSize = DataSize.ofKilobytes(1);
+	}
+
+	@Setter
+	@Getter
+	public static class ReadReplica {
+
+		/**
+		 * Whether to send the read-only operations to a read replica, and only the writes to the primary.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * JDBC URL of the read replica. Its pool is configured under {@code polar.read-replica.hikari}.
+		 */
+		private String url;
+
+		/**
+		 * Login username of the read replica, the one of the primary if not set.
+		 */
+		private String username;
+
+		/**
+		 * Login password of the read replica, the one of the primary if not set.
+		 */
+		private String password;
+
+		/**
+		 * How long the reads of a client go to the primary after it changed a book, so that it sees
+		 * its change even if the replica lags behind. Zero to always read the replica. Should exceed
+		 * the usual replication lag.
+		 */
+		private Duration readYourWritesWindow = Duration.ofSeconds(1);
+	}
+
+	@Setter
+	@Getter
+	public static class ConcurrencyLimit {
+
+		/**
+		 * Whether to reject the requests above the limit instead of queueing them on the connection pool.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Limit on the concurrent reads: GET and HEAD requests.
+		 */
+		private final Limit read = new Limit(10, 40, Duration.ofMillis(250));
+
+		/**
+		 * Limit on the concurrent writes: every other method.
+		 */
+		private final Limit write = new Limit(5, 10, Duration.ofMillis(500));
+
+		/**
+		 * Number of threads waiting for a database connection above which the limits are lowered.
+		 */
+		private int maxPendingConnections = 0;
+
+		/**
+		 * Delay after which rejected clients are told to retry.
+		 */
+		private Duration retryAfter = Duration.ofSeconds(1);
+	}
+
+	@Setter
+	@Getter
+	public static class VirtualThreads {
+
+		/**
+		 * Whether to handle every request on its own virtual thread. Requires a Java 21 runtime.
+		 */
+		private boolean enabled = false;
+	}
+
+	@Setter
+	@Getter
+	public static class Limit {
+
+		/**
+		 * Number of concurrent requests allowed at startup.
+		 */
+		private int initial;
+
+		/**
+		 * Lowest value the limit can shrink to.
+		 */
+		private int min = 1;
+
+		/**
+		 * Highest value the limit can grow to.
+		 */
+		private int max;
+
+		/**
+		 * Latency above which a request counts as a sign of overload and lowers the limit.
+		 */
+		private Duration latencyThreshold;
+
+		/**
+		 * Factor the limit is multiplied by on overload.
+		 */
+		private double backoffRatio = 0.9;
+
+		public Limit() {}
+
+		Limit(int initial, int max, Duration latencyThreshold) {
+			this.initial = initial;
+			this.max = max;
+			this.latencyThreshold = latencyThreshold;
+		}
+	}
 }
@@ -0,0 +1,92 @@
+package com.polarbookshop.catalogservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Second Hikari pool on a read replica, and the data source routing the read-only transactions
+ * of {@code BookService} to it. Declaring the pools here makes Spring Boot back off from its own,
+ * so the primary one is declared again, still configured by {@code spring.datasource}. Flyway,
+ * the change notifications and the outbox keep using the primary. The reactive stack reads
+ * through its own R2DBC pool on the primary.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "polar.read-replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+	/**
+	 * Bound to {@code spring.datasource.hikari} through the binder, since the reactive stack
+	 * already declares a bean with that prefix.
+	 */
+	@Bean
+	@FlywayDataSource
+	HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties, Environment environment) {
+		var dataSource = dataSourceProperties.initializeDataSourceBuilder()
+		                                     .type(HikariDataSource.class)
+		                                     .build();
+		dataSource.setPoolName("primary");
+		Binder.get(environment)
+		      .bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+		return dataSource;
+	}
+
+	@Bean
+	@ConfigurationProperties("polar.read-replica.hikari")
+	HikariDataSource replicaDataSource(PolarProperties polarProperties, DataSourceProperties dataSourceProperties) {
+		var replica = polarProperties.getReadReplica();
+		if (replica.getUrl() == null) {
+			throw new IllegalStateException("polar.read-replica.url must be set to read from a replica.");
+		}
+		var dataSource = DataSourceBuilder.create()
+		                                  .type(HikariDataSource.class)
+		                                  .url(replica.getUrl())
+		                                  .username(replica.getUsername() != null ? replica.getUsername()
+		                                                                          : dataSourceProperties.determineUsername())
+		                                  .password(replica.getPassword() != null ? replica.getPassword()
+		                                                                          : dataSourceProperties.determinePassword())
+		                                  .build();
+		dataSource.setPoolName("replica");
+		dataSource.setReadOnly(true);
+		return dataSource;
+	}
+
+	@Bean
+	ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+	                                                  @Qualifier("replicaDataSource") DataSource replicaDataSource,
+	                                                  PolarProperties polarProperties, MeterRegistry meterRegistry) {
+		return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource,
+		                                    polarProperties.getReadReplica()
+		                                                   .getReadYourWritesWindow(), meterRegistry);
+	}
+
+	/**
+	 * The data source of the transactions and the repositories. The defaults are those of both
+	 * pools, so that no connection is taken before the first statement.
+	 */
+	@Bean
+	@Primary
+	DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+		var dataSource = new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+		dataSource.setDefaultAutoCommit(true);
+		dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		return dataSource;
+	}
+}
@@ -0,0 +1,197 @@
+package com.polarbookshop.catalogservice.config;
+
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+
+/**
+ * Hands out connections to the read replica inside read-only transactions, and to the primary
+ * otherwise. The reads of a client also go to the primary for a short window after it changed a
+ * book, so that it sees its change even if the replica lags behind, and every read does while the
+ * replica is unreachable. It must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so that the
+ * connection is only chosen once the transaction is marked read-only.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+	/**
+	 * Carries the end of the read-your-writes window of a client, in epoch milliseconds, across
+	 * its requests and the replicas of the service.
+	 */
+	static final String READ_YOUR_WRITES_COOKIE = "polar-read-primary-until";
+
+	private static final String READ_YOUR_WRITES_ATTRIBUTE = ReplicaRoutingDataSource.class.getName() + ".readPrimaryUntil";
+
+	private final DataSource primary;
+	private final DataSource replica;
+	private final long readYourWritesMillis;
+	private final Counter replicaConnections;
+	private final Counter primaryConnections;
+	private final Counter fallbacks;
+
+	private volatile boolean replicaHealthy = true;
+
+	public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration readYourWritesWindow,
+	                                MeterRegistry meterRegistry) {
+		this.primary = primary;
+		this.replica = replica;
+		this.readYourWritesMillis = readYourWritesWindow.toMillis();
+		this.replicaConnections = connections(meterRegistry, "replica");
+		this.primaryConnections = connections(meterRegistry, "primary");
+		this.fallbacks = Counter.builder("datasource.replica.fallbacks")
+		                        .description("Read-only connections taken from the primary because the replica is unreachable")
+		                        .register(meterRegistry);
+		Gauge.builder("datasource.replica.healthy", this, dataSource -> dataSource.replicaHealthy ? 1 : 0)
+		     .description("Whether the read replica is used, 1, or bypassed as unreachable, 0")
+		     .register(meterRegistry);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return route(DataSource::getConnection);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return route(dataSource -> dataSource.getConnection(username, password));
+	}
+
+	/**
+	 * Starts the read-your-writes window of the client whose request changed the book, once the
+	 * change is committed, so that a long transaction cannot use it up before its changes are even
+	 * visible. The window is kept in a cookie, so that it follows the client to the other replicas
+	 * of the service, and only that client reads the primary: the changes of the other clients,
+	 * and those notified by the other replicas, outside of any request, start no window.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onBookChanged(BookChangedEvent event) {
+		if (readYourWritesMillis <= 0 || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+			return;
+		}
+		var until = System.currentTimeMillis() + readYourWritesMillis;
+		attributes.setAttribute(READ_YOUR_WRITES_ATTRIBUTE, until, RequestAttributes.SCOPE_REQUEST);
+		var response = attributes.getResponse();
+		if (response != null && !response.isCommitted()) {
+			var cookie = new Cookie(READ_YOUR_WRITES_COOKIE, Long.toString(until));
+			cookie.setPath("/");
+			cookie.setHttpOnly(true);
+			cookie.setMaxAge((int) Math.max(1, (readYourWritesMillis + 999) / 1000));
+			response.addCookie(cookie);
+		}
+	}
+
+	/**
+	 * Checks that the replica can be reached, to stop or resume routing reads to it.
+	 */
+	@Scheduled(fixedDelay = 5000, initialDelay = 5000)
+	public void checkReplica() {
+		try (var connection = replica.getConnection()) {
+			if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+				throw new SQLException("The replica connection is not valid.");
+			}
+			if (!replicaHealthy) {
+				log.info("The read replica is reachable again, routing the reads to it");
+				replicaHealthy = true;
+			}
+		} catch (SQLException | RuntimeException exception) {
+			markReplicaUnhealthy(exception);
+		}
+	}
+
+	boolean isReplicaHealthy() {
+		return replicaHealthy;
+	}
+
+	/**
+	 * Takes the connection from the replica or the primary. A pool that does not support the
+	 * request, such as Hikari for other credentials, fails it without being deemed unreachable.
+	 */
+	private Connection route(ConnectionFactory connectionFactory) throws SQLException {
+		if (routesToReplica()) {
+			if (replicaHealthy) {
+				try {
+					var connection = connectionFactory.connect(replica);
+					replicaConnections.increment();
+					return connection;
+				} catch (SQLFeatureNotSupportedException exception) {
+					throw exception;
+				} catch (SQLException | RuntimeException exception) {
+					markReplicaUnhealthy(exception);
+				}
+			}
+			fallbacks.increment();
+		}
+		primaryConnections.increment();
+		return connectionFactory.connect(primary);
+	}
+
+	private boolean routesToReplica() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !readsOwnWrites();
+	}
+
+	/**
+	 * Whether the current request comes from a client within its read-your-writes window. The
+	 * window of the cookie is capped to its configured length, so that a client cannot keep its
+	 * reads on the primary for longer by setting it.
+	 */
+	private boolean readsOwnWrites() {
+		if (readYourWritesMillis <= 0 || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+			return false;
+		}
+		var now = System.currentTimeMillis();
+		if (attributes.getAttribute(READ_YOUR_WRITES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long until) {
+			return until > now;
+		}
+		var cookie = WebUtils.getCookie(attributes.getRequest(), READ_YOUR_WRITES_COOKIE);
+		var until = 0L;
+		if (cookie != null) {
+			try {
+				until = Math.min(Long.parseLong(cookie.getValue()), now + readYourWritesMillis);
+			} catch (NumberFormatException exception) {
+				// Read the replica
+			}
+		}
+		attributes.setAttribute(READ_YOUR_WRITES_ATTRIBUTE, until, RequestAttributes.SCOPE_REQUEST);
+		return until > now;
+	}
+
+	private void markReplicaUnhealthy(Exception exception) {
+		if (replicaHealthy) {
+			log.warn("The read replica is unreachable, routing the reads to the primary: {}", exception.getMessage());
+			replicaHealthy = false;
+		}
+	}
+
+	@FunctionalInterface
+	private interface ConnectionFactory {
+
+		Connection connect(DataSource dataSource) throws SQLException;
+	}
+
+	private static Counter connections(MeterRegistry meterRegistry, String target) {
+		return Counter.builder("datasource.routing.connections")
+		              .description("Connections handed out by the routing data source")
+		              .tag("target", target)
+		              .register(meterRegistry);
+	}
+}
@@ -0,0 +1,61 @@
+package com.polarbookshop.catalogservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in mode running every request, and so the service and repository work it does, on its
+ * own virtual thread instead of the Tomcat pool. The build targets Java 17, so virtual threads
+ * are created through reflection and need a Java 21 runtime. Connections are then guarded by a
+ * {@link ConcurrencyLimitedDataSource} sized like the pool.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "polar.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+	@Bean
+	TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+		var executor = newVirtualThreadPerTaskExecutor();
+		log.info("Handling requests on virtual threads");
+		return protocolHandler -> protocolHandler.setExecutor(executor);
+	}
+
+	@Bean
+	static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor() {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof HikariDataSource dataSource) {
+					return new ConcurrencyLimitedDataSource(dataSource, dataSource.getMaximumPoolSize(),
+					                                        Duration.ofMillis(dataSource.getConnectionTimeout()));
+				}
+				return bean;
+			}
+		};
+	}
+
+	/**
+	 * Returns {@code Executors.newVirtualThreadPerTaskExecutor()}, failing if the runtime is older than Java 21.
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+			                                        .invoke(null);
+		} catch (ReflectiveOperationException exception) {
+			throw new IllegalStateException("Virtual threads require a Java 21 runtime, found Java "
+					                                + Runtime.version()
+					                                         .feature() + ".", exception);
+		}
+	}
+}
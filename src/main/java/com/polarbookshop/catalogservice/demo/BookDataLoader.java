@@ -21,13 +21,13 @@ public class BookDataLoader {
 	public void loadBookTestData() {
 		bookRepository.deleteAll();
 		var book1 = Book.builder()
-		                .isbn("1234567890")
+		                .isbn("9781234567897")
 		                .title("Northern Lights")
 		                .author("Lyra Silverstar")
 		                .price(9.9)
 		                .build();
 		var book2 = Book.builder()
-		                .isbn("1234567891")
+		                .isbn("9781234567880")
 		                .title("Polar Journey")
 		                .author("Iorek Polarson")
 		                .price(12.90)
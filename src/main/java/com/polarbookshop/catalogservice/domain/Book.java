@@ -2,25 +2,25 @@ package com.polarbookshop.catalogservice.domain;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
 import lombok.Builder;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
 
 import java.time.Instant;
 
 @Builder
+@Table("book")
 public record Book(
 
 		@Id
 		Long id,
 
 		@NotBlank(message = "The book ISBN must be defined.")
-		@Pattern(regexp = "^([0-9]{10}|[0-9]{13})$",
-		         message = "The ISBN format must be valid: a 10 or 13 digit number.")
+		@ValidIsbn
 		String isbn,
 
 		@NotBlank(message = "The book title must be defined.")
@@ -41,4 +41,12 @@ public record Book(
 
 		@LastModifiedDate
 		Instant lastModifiedDate
-) {}
+) {
+
+	/**
+	 * Stores a valid ISBN-10 as the equivalent ISBN-13, so that the same book cannot be added twice.
+	 */
+	public Book {
+		isbn = Isbn.normalize(isbn);
+	}
+}
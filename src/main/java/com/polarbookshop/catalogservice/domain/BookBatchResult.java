@@ -0,0 +1,28 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.util.Map;
+
+/**
+ * Outcome of one book of a batch ingest, identified by its position in the batch.
+ */
+public record BookBatchResult(int index, String isbn, Status status, Map<String, String> errors) {
+
+	public enum Status {
+		CREATED,
+		DUPLICATE,
+		INVALID
+	}
+
+	static BookBatchResult created(int index, String isbn) {
+		return new BookBatchResult(index, isbn, Status.CREATED, Map.of());
+	}
+
+	static BookBatchResult duplicate(int index, String isbn) {
+		return new BookBatchResult(index, isbn, Status.DUPLICATE,
+		                           Map.of("isbn", new BookAlreadyExistsException(isbn).getMessage()));
+	}
+
+	static BookBatchResult invalid(int index, String isbn, Map<String, String> errors) {
+		return new BookBatchResult(index, isbn, Status.INVALID, errors);
+	}
+}
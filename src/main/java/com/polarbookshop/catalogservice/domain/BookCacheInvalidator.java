@@ -0,0 +1,35 @@
+package com.polarbookshop.catalogservice.domain;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@value #BOOKS_CACHE} cache of {@link BookService#getBook(String)} in line with
+ * changes made by this instance and by the other replicas.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookCacheInvalidator {
+
+	public static final String BOOKS_CACHE = "books";
+
+	private final CacheManager cacheManager;
+
+	@EventListener
+	public void onBookChanged(BookChangedEvent event) {
+		var cache = cacheManager.getCache(BOOKS_CACHE);
+		if (cache != null) {
+			cache.evict(event.isbn());
+		}
+	}
+
+	@EventListener(BookChangesMissedEvent.class)
+	public void onBookChangesMissed() {
+		var cache = cacheManager.getCache(BOOKS_CACHE);
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+
+/**
+ * A book as of its last change, or the deletion of a book, reported by the change feed. The id
+ * and modified date together order the changes and make up the cursor of the feed.
+ */
+public record BookChange(Type type, long id, String isbn, @Nullable Book book, Instant modifiedDate) {
+
+	public enum Type {
+		UPSERTED,
+		DELETED
+	}
+
+	public static BookChange upserted(Book book) {
+		return new BookChange(Type.UPSERTED, book.id(), book.isbn(), book, book.lastModifiedDate());
+	}
+
+	public static BookChange deleted(long id, String isbn, Instant deletedDate) {
+		return new BookChange(Type.DELETED, id, isbn, null, deletedDate);
+	}
+}
@@ -0,0 +1,47 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the change feed: the modified date and id of the last change seen. Clients pass
+ * it back unchanged to get the next changes, or start from an ISO-8601 instant.
+ */
+public record BookChangeCursor(Instant modifiedDate, long id) {
+
+	private static final String SEPARATOR = "/";
+
+	public static BookChangeCursor after(BookChange change) {
+		return new BookChangeCursor(change.modifiedDate(), change.id());
+	}
+
+	public String encode() {
+		var token = modifiedDate + SEPARATOR + id;
+		return Base64.getUrlEncoder()
+		             .withoutPadding()
+		             .encodeToString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor returned by the feed, or reads an instant such as {@code 2023-11-01T10:15:30Z},
+	 * from which every later change is returned.
+	 */
+	public static BookChangeCursor decode(String token) {
+		try {
+			return new BookChangeCursor(Instant.parse(token), 0);
+		} catch (DateTimeParseException notAnInstant) {
+			// An opaque cursor
+		}
+		try {
+			var decoded = new String(Base64.getUrlDecoder()
+			                               .decode(token), StandardCharsets.UTF_8);
+			var separatorIndex = decoded.indexOf(SEPARATOR);
+			return new BookChangeCursor(Instant.parse(decoded.substring(0, separatorIndex)),
+			                            Long.parseLong(decoded.substring(separatorIndex + 1)));
+		} catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException exception) {
+			throw new InvalidBookRequestException(String.format("The change cursor %s is not valid.", token));
+		}
+	}
+}
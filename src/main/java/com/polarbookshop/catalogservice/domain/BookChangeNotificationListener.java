@@ -0,0 +1,105 @@
+package com.polarbookshop.catalogservice.domain;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Listens on the {@code book_changes} channel, fed by a trigger on the {@code book} table, and
+ * republishes every notification as a {@link BookChangedEvent}, so that all the replicas of the
+ * service learn about changes made through any of them. It uses its own connection, outside the
+ * pool, since a listening connection is held for the lifetime of the application.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "polar.change-notifications", name = "enabled", matchIfMissing = true)
+public class BookChangeNotificationListener implements SmartLifecycle {
+
+	static final String CHANNEL = "book_changes";
+
+	private static final int POLL_TIMEOUT_MILLIS = 1000;
+	private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+	private final DataSourceProperties dataSourceProperties;
+	private final ApplicationEventPublisher eventPublisher;
+
+	private volatile Thread listenerThread;
+
+	@Override
+	public void start() {
+		listenerThread = new Thread(this::listen, "book-change-listener");
+		listenerThread.setDaemon(true);
+		listenerThread.start();
+	}
+
+	@Override
+	public void stop() {
+		var thread = listenerThread;
+		listenerThread = null;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return listenerThread != null;
+	}
+
+	private void listen() {
+		var firstConnection = true;
+		while (isRunning()) {
+			try (var connection = connect()) {
+				try (var statement = connection.createStatement()) {
+					statement.execute("LISTEN " + CHANNEL);
+				}
+				if (!firstConnection) {
+					eventPublisher.publishEvent(new BookChangesMissedEvent());
+				}
+				firstConnection = false;
+				receive(connection.unwrap(PGConnection.class));
+			} catch (SQLException exception) {
+				log.warn("Lost the book change notification connection, reconnecting in {} ms: {}",
+				         RECONNECT_DELAY_MILLIS, exception.getMessage());
+				firstConnection = false;
+				try {
+					Thread.sleep(RECONNECT_DELAY_MILLIS);
+				} catch (InterruptedException interrupted) {
+					return;
+				}
+			}
+		}
+	}
+
+	private void receive(PGConnection connection) throws SQLException {
+		while (isRunning()) {
+			var notifications = connection.getNotifications(POLL_TIMEOUT_MILLIS);
+			if (notifications == null) {
+				continue;
+			}
+			for (var notification : notifications) {
+				try {
+					eventPublisher.publishEvent(BookChangedEvent.fromNotification(notification.getParameter()));
+				} catch (IllegalArgumentException exception) {
+					log.warn(exception.getMessage());
+				}
+			}
+		}
+	}
+
+	private Connection connect() throws SQLException {
+		return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+		                                   dataSourceProperties.determineUsername(),
+		                                   dataSourceProperties.determinePassword());
+	}
+}
@@ -0,0 +1,9 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.util.List;
+
+/**
+ * A page of the change feed, in the order the changes were made, and the cursor to get the
+ * next changes from, which is returned even when there are none yet.
+ */
+public record BookChangePage(List<BookChange> changes, String nextCursor) {}
@@ -0,0 +1,31 @@
+package com.polarbookshop.catalogservice.domain;
+
+/**
+ * Published whenever a book is created, updated or deleted, either by this instance or,
+ * through the {@code book_changes} notification channel, by any other replica.
+ */
+public record BookChangedEvent(String isbn, Type type) {
+
+	public enum Type {
+		CREATED,
+		UPDATED,
+		DELETED
+	}
+
+	/**
+	 * Parses the payload sent by the {@code notify_book_change} trigger, e.g. {@code UPDATE:1234567890}.
+	 */
+	static BookChangedEvent fromNotification(String payload) {
+		var separatorIndex = payload.indexOf(':');
+		if (separatorIndex < 0) {
+			throw new IllegalArgumentException("Malformed book change notification: " + payload);
+		}
+		var type = switch (payload.substring(0, separatorIndex)) {
+			case "INSERT" -> Type.CREATED;
+			case "UPDATE" -> Type.UPDATED;
+			case "DELETE" -> Type.DELETED;
+			default -> throw new IllegalArgumentException("Malformed book change notification: " + payload);
+		};
+		return new BookChangedEvent(payload.substring(separatorIndex + 1), type);
+	}
+}
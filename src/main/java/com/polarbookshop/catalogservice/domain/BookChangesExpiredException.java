@@ -0,0 +1,9 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.time.Instant;
+
+public class BookChangesExpiredException extends RuntimeException {
+	public BookChangesExpiredException(Instant since) {
+		super(String.format("The deletions since %s are no longer kept, resynchronize the whole catalog.", since));
+	}
+}
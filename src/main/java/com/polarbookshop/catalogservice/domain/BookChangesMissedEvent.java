@@ -0,0 +1,7 @@
+package com.polarbookshop.catalogservice.domain;
+
+/**
+ * Published when book change notifications may have been missed, e.g. after the listening
+ * connection was re-established. Any state derived from the catalog has to be rebuilt.
+ */
+public record BookChangesMissedEvent() {}
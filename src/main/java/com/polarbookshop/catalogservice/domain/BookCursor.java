@@ -0,0 +1,44 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token of a catalog page: the sort it was produced with and the key
+ * of the last book on the page. Clients pass it back unchanged to fetch the next page.
+ */
+public record BookCursor(BookSort sort, String lastKey) {
+
+	private static final String SEPARATOR = ":";
+
+	public static BookCursor after(BookSort sort, Book book) {
+		return new BookCursor(sort, switch (sort) {
+			case ID, ID_DESC -> String.valueOf(book.id());
+			case ISBN, ISBN_DESC -> book.isbn();
+		});
+	}
+
+	public String encode() {
+		var token = sort.name() + SEPARATOR + lastKey;
+		return Base64.getUrlEncoder()
+		             .withoutPadding()
+		             .encodeToString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static BookCursor decode(String token) {
+		try {
+			var decoded = new String(Base64.getUrlDecoder()
+			                               .decode(token), StandardCharsets.UTF_8);
+			var separatorIndex = decoded.indexOf(SEPARATOR);
+			var sort = BookSort.valueOf(decoded.substring(0, separatorIndex));
+			var lastKey = decoded.substring(separatorIndex + 1);
+			if (sort.column()
+			        .equals("id")) {
+				Long.parseLong(lastKey);
+			}
+			return new BookCursor(sort, lastKey);
+		} catch (IllegalArgumentException | IndexOutOfBoundsException exception) {
+			throw new InvalidBookRequestException(String.format("The cursor %s is not valid.", token));
+		}
+	}
+}
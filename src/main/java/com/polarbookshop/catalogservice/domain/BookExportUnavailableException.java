@@ -0,0 +1,7 @@
+package com.polarbookshop.catalogservice.domain;
+
+public class BookExportUnavailableException extends RuntimeException {
+	public BookExportUnavailableException(int maxConcurrentExports) {
+		super(String.format("No more than %d catalog exports can run at once, try again later.", maxConcurrentExports));
+	}
+}
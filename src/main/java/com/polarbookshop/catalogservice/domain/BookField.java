@@ -0,0 +1,73 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The fields of a book that clients can ask for with the {@code fields} parameter, each with its
+ * JSON property and its column. Being the whitelist of the projections, it is also the only source
+ * of the column names put in their queries.
+ */
+public enum BookField {
+
+	ID("id", "id", Book::id),
+	ISBN("isbn", "isbn", Book::isbn),
+	TITLE("title", "title", Book::title),
+	AUTHOR("author", "author", Book::author),
+	PRICE("price", "price", Book::price),
+	VERSION("version", "version", Book::version),
+	CREATED_DATE("createdDate", "created_date", Book::createdDate),
+	LAST_MODIFIED_DATE("lastModifiedDate", "last_modified_date", Book::lastModifiedDate);
+
+	public static final Set<BookField> ALL = Collections.unmodifiableSet(EnumSet.allOf(BookField.class));
+
+	private final String property;
+	private final String column;
+	private final Function<Book, Object> accessor;
+
+	BookField(String property, String column, Function<Book, Object> accessor) {
+		this.property = property;
+		this.column = column;
+		this.accessor = accessor;
+	}
+
+	public String property() {
+		return property;
+	}
+
+	public String column() {
+		return column;
+	}
+
+	public Object value(Book book) {
+		return accessor.apply(book);
+	}
+
+	/**
+	 * Parses a comma-separated list of JSON properties, e.g. {@code isbn,title,price}, into the
+	 * fields to return. All the fields are returned when the list is {@code null} or blank.
+	 */
+	public static Set<BookField> parse(@Nullable String expression) {
+		if (expression == null || expression.isBlank()) {
+			return ALL;
+		}
+		var fields = EnumSet.noneOf(BookField.class);
+		for (var property : expression.split(",", -1)) {
+			fields.add(ofProperty(property.trim(), expression));
+		}
+		return fields.size() == ALL.size() ? ALL : Collections.unmodifiableSet(fields);
+	}
+
+	private static BookField ofProperty(String property, String expression) {
+		for (var field : values()) {
+			if (field.property.equals(property)) {
+				return field;
+			}
+		}
+		throw new InvalidBookRequestException(String.format("The fields %s are not supported.", expression));
+	}
+}
@@ -0,0 +1,217 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the ISBNs of the whole catalog, so that lookups of ISBNs that definitely
+ * do not exist are answered without a database query. It is built when the application is
+ * ready, grows with every book created on any replica, and is rebuilt once enough books have
+ * been deleted or change notifications may have been missed. Until the first build completes,
+ * every ISBN is reported as possibly present. Without change notifications, the books created by
+ * other replicas would never be added, so the filter is then turned off.
+ */
+@Slf4j
+@Component
+public class BookIsbnFilter {
+
+	private final BookRepository bookRepository;
+	private final PolarProperties.IsbnFilter properties;
+	private final boolean enabled;
+	private final Counter rejections;
+
+	private volatile BloomFilter current;
+	private volatile BloomFilter next;
+	private final AtomicLong deletions = new AtomicLong();
+
+	public BookIsbnFilter(BookRepository bookRepository, PolarProperties polarProperties, MeterRegistry meterRegistry) {
+		this.bookRepository = bookRepository;
+		this.properties = polarProperties.getIsbnFilter();
+		this.enabled = properties.isEnabled() && polarProperties.getChangeNotifications()
+		                                                        .isEnabled();
+		if (properties.isEnabled() && !enabled) {
+			log.warn("The ISBN filter is turned off, as it needs change notifications to learn the books created by other replicas");
+		}
+		this.rejections = Counter.builder("books.isbn.filter.rejections")
+		                         .description("Lookups answered as not found by the ISBN filter, without a database query")
+		                         .register(meterRegistry);
+		Gauge.builder("books.isbn.filter.size", this, filter -> filter.current != null ? filter.current.bitSize() : 0)
+		     .description("Number of bits of the ISBN filter")
+		     .baseUnit("bits")
+		     .register(meterRegistry);
+		Gauge.builder("books.isbn.filter.insertions", this, filter -> filter.current != null ? filter.current.insertions() : 0)
+		     .description("Number of ISBNs added to the ISBN filter since it was built")
+		     .register(meterRegistry);
+		Gauge.builder("books.isbn.filter.false.positive.rate", this,
+		              filter -> filter.current != null ? filter.current.expectedFalsePositiveRate() : 0)
+		     .description("Expected rate of unknown ISBNs reported as possibly present, given the current fill")
+		     .register(meterRegistry);
+	}
+
+	/**
+	 * Returns {@code false} only if no book with the ISBN exists.
+	 */
+	public boolean mightContain(String isbn) {
+		var filter = current;
+		if (!enabled || filter == null || filter.mightContain(isbn)) {
+			return true;
+		}
+		rejections.increment();
+		return false;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		rebuild();
+	}
+
+	@EventListener
+	public void onBookChanged(BookChangedEvent event) {
+		switch (event.type()) {
+			case CREATED -> add(event.isbn());
+			case DELETED -> deletions.incrementAndGet();
+			case UPDATED -> {}
+		}
+	}
+
+	@EventListener(BookChangesMissedEvent.class)
+	public void onBookChangesMissed() {
+		rebuild();
+	}
+
+	@Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+	public void rebuildIfStale() {
+		var filter = current;
+		if (filter != null && deletions.get() > filter.insertions() * properties.getMaxDeletedRatio()) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Loads every ISBN into a new filter and swaps it in. Books created while the catalog is
+	 * being read are added to both filters, so none is lost in the swap.
+	 */
+	synchronized void rebuild() {
+		if (!enabled) {
+			return;
+		}
+		try {
+			var expectedInsertions = Math.max(properties.getExpectedInsertions(), 2 * bookRepository.count());
+			var filter = new BloomFilter(expectedInsertions, properties.getFalsePositiveRate());
+			next = filter;
+			deletions.set(0);
+			bookRepository.forEachIsbn(filter::put);
+			current = filter;
+			log.info("Built the ISBN filter with {} books in {} bits", filter.insertions(), filter.bitSize());
+		} catch (RuntimeException exception) {
+			log.warn("Could not build the ISBN filter, lookups will query the database: {}", exception.getMessage());
+		} finally {
+			next = null;
+		}
+	}
+
+	/**
+	 * Reads the filter being built before the current one: a rebuild completing in between then
+	 * makes both reads return the new filter, whereas the other way round the ISBN could only
+	 * reach the filter being replaced.
+	 */
+	private void add(String isbn) {
+		var nextFilter = next;
+		var filter = current;
+		if (nextFilter != null) {
+			nextFilter.put(isbn);
+		}
+		if (filter != null && filter != nextFilter) {
+			filter.put(isbn);
+		}
+	}
+
+	/**
+	 * Thread-safe Bloom filter over strings, using double hashing of a 64-bit hash of the
+	 * characters, so that neither adding nor checking an ISBN allocates.
+	 */
+	static final class BloomFilter {
+
+		private final AtomicLongArray bits;
+		private final long bitSize;
+		private final int hashFunctions;
+		private final AtomicLong insertions = new AtomicLong();
+
+		BloomFilter(long expectedInsertions, double falsePositiveRate) {
+			var optimalBits = (long) (-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+			this.bits = new AtomicLongArray(Math.toIntExact(Math.max(1, (optimalBits + 63) / 64)));
+			this.bitSize = bits.length() * 64L;
+			this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+		}
+
+		void put(String value) {
+			var hash = hash(value);
+			var hash1 = (int) hash;
+			var hash2 = (int) (hash >>> 32);
+			for (var i = 1; i <= hashFunctions; i++) {
+				var index = Integer.toUnsignedLong(hash1 + i * hash2) % bitSize;
+				var word = (int) (index >>> 6);
+				var mask = 1L << index;
+				long current;
+				while (((current = bits.get(word)) & mask) == 0) {
+					if (bits.compareAndSet(word, current, current | mask)) {
+						break;
+					}
+				}
+			}
+			insertions.incrementAndGet();
+		}
+
+		boolean mightContain(String value) {
+			var hash = hash(value);
+			var hash1 = (int) hash;
+			var hash2 = (int) (hash >>> 32);
+			for (var i = 1; i <= hashFunctions; i++) {
+				var index = Integer.toUnsignedLong(hash1 + i * hash2) % bitSize;
+				if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		long bitSize() {
+			return bitSize;
+		}
+
+		long insertions() {
+			return insertions.get();
+		}
+
+		double expectedFalsePositiveRate() {
+			return Math.pow(1 - Math.exp(-hashFunctions * (double) insertions.get() / bitSize), hashFunctions);
+		}
+
+		/**
+		 * FNV-1a over the characters, finished with the MurmurHash3 mixer to spread the bits.
+		 */
+		private static long hash(String value) {
+			var hash = 0xcbf29ce484222325L;
+			for (var i = 0; i < value.length(); i++) {
+				hash ^= value.charAt(i);
+				hash *= 0x100000001b3L;
+			}
+			hash ^= hash >>> 33;
+			hash *= 0xff51afd7ed558ccdL;
+			hash ^= hash >>> 33;
+			hash *= 0xc4ceb9fe1a85ec53L;
+			hash ^= hash >>> 33;
+			return hash;
+		}
+	}
+}
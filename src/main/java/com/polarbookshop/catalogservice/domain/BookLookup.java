@@ -0,0 +1,9 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.util.List;
+
+/**
+ * Result of looking up several books at once: the books found, in the requested order,
+ * and the ISBNs no book was found for.
+ */
+public record BookLookup(List<Book> books, List<String> missing) {}
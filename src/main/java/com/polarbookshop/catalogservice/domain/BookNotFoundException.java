@@ -1,7 +1,11 @@
 package com.polarbookshop.catalogservice.domain;
 
+/**
+ * Thrown for every unknown ISBN requested, often by crawlers and bad client data, so it is
+ * created without a stack trace: the message is all the handler needs.
+ */
 public class BookNotFoundException extends RuntimeException {
 	public BookNotFoundException(String isbn) {
-		super(String.format("The book with ISBN %s was not found.", isbn));
+		super("The book with ISBN " + isbn + " was not found.", null, false, false);
 	}
 }
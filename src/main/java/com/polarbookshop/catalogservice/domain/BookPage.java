@@ -0,0 +1,8 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.util.List;
+
+/**
+ * A page of the catalog, with the cursor of the following page or {@code null} on the last one.
+ */
+public record BookPage(List<Book> books, String nextCursor) {}
@@ -0,0 +1,56 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * What an update expects of the stored book: that it exists and, when {@code versions} is set,
+ * that it matches any of them. The id of a version tells the book a client read apart from one
+ * deleted and created again with the same ISBN. A precondition without any version to match, e.g.
+ * when a client only holds weak entity tags, fails whatever is stored.
+ */
+public record BookPrecondition(@Nullable List<Version> versions) {
+
+	/**
+	 * Matched by any stored book.
+	 */
+	public static final BookPrecondition EXISTS = new BookPrecondition(null);
+
+	/**
+	 * Matched by no book.
+	 */
+	public static final BookPrecondition UNSATISFIABLE = new BookPrecondition(List.of());
+
+	public static BookPrecondition of(@Nullable Long id, int version) {
+		return new BookPrecondition(List.of(new Version(id, version)));
+	}
+
+	public static BookPrecondition anyOf(List<Version> versions) {
+		return new BookPrecondition(List.copyOf(versions));
+	}
+
+	public boolean satisfiable() {
+		return versions == null || !versions.isEmpty();
+	}
+
+	public boolean matches(Book book) {
+		return versions == null || versions.stream()
+		                                   .anyMatch(version -> version.matches(book));
+	}
+
+	/**
+	 * A version of a book, with the id of the book or, for a bare version, of any book.
+	 */
+	public record Version(@Nullable Long id, int version) {
+
+		public boolean matches(Book book) {
+			return (id == null || id.equals(book.id())) && book.version() == version;
+		}
+
+		@Override
+		public String toString() {
+			return id != null ? id + "-" + version : String.valueOf(version);
+		}
+	}
+}
@@ -7,14 +7,32 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
-public interface BookRepository extends CrudRepository<Book, Long> {
+/**
+ * Books are looked up by the numeric {@code isbn_key} column rather than by the ISBN string, so
+ * that an ISBN-10 finds the book stored with its ISBN-13, through a smaller fixed-width index.
+ */
+public interface BookRepository extends CrudRepository<Book, Long>, BookRepositoryCustom {
 
-    Optional<Book> findByIsbn(String isbn);
+    default Optional<Book> findByIsbn(String isbn) {
+        return findByIsbnKey(Isbn.key(isbn));
+    }
 
-    boolean existsByIsbn(String isbn);
+    default boolean existsByIsbn(String isbn) {
+        return existsByIsbnKey(Isbn.key(isbn));
+    }
+
+    default void deleteByIsbn(String isbn) {
+        deleteByIsbnKey(Isbn.key(isbn));
+    }
+
+    @Query("select * from book where isbn_key = :isbnKey")
+    Optional<Book> findByIsbnKey(long isbnKey);
+
+    @Query("select exists (select 1 from book where isbn_key = :isbnKey)")
+    boolean existsByIsbnKey(long isbnKey);
 
     @Modifying
     @Transactional
-    @Query("delete from Book where isbn = :isbn")
-    void deleteByIsbn(String isbn);
+    @Query("delete from book where isbn_key = :isbnKey")
+    void deleteByIsbnKey(long isbnKey);
 }
@@ -0,0 +1,98 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Queries of {@link BookRepository} that cannot be expressed as derived or annotated queries.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Returns up to {@code limit} books in the given order, starting right after the book
+     * with the key {@code after}, or from the beginning of the catalog when it is {@code null}.
+     * Only the columns of the given fields and of the sort key are selected.
+     */
+    List<Book> findPage(BookSort sort, @Nullable String after, @Nullable String author, int limit, Set<BookField> fields);
+
+    /**
+     * Inserts the book and returns the persisted row, with its generated id, version and audit
+     * dates, in a single statement. Returns an empty result when the ISBN is already taken.
+     */
+    Optional<Book> insertIfAbsent(Book book);
+
+    /**
+     * Updates title, author and price of the book with the given ISBN, bumping its version and
+     * last modified date, and returns the updated row in a single statement. When a
+     * {@code precondition} is set, the row is only updated if it matches any of its versions.
+     * Returns an empty result when no row was updated.
+     */
+    Optional<Book> updateIfMatches(String isbn, Book book, @Nullable BookPrecondition precondition);
+
+    /**
+     * Inserts the books as one JDBC batch, skipping those whose ISBN is already taken. Returns,
+     * for each book, the number of inserted rows: 1 when it was created, 0 for a duplicate.
+     */
+    int[] insertAllIfAbsent(List<Book> books);
+
+    /**
+     * Returns the books with any of the given ISBNs with one {@code isbn_key = any(?)} query, whether
+     * they are given as ISBN-10 or ISBN-13.
+     */
+    List<Book> findAllByIsbn(Collection<String> isbns);
+
+    /**
+     * Passes the ISBN of every book to the consumer, reading them from a server-side cursor
+     * so that the catalog is never held in memory as a whole.
+     */
+    void forEachIsbn(Consumer<String> consumer);
+
+    /**
+     * Passes every book to the consumer in id order, reading them from a server-side cursor on
+     * the primary, for the copies of the catalog kept in memory.
+     */
+    void forEachBook(Consumer<Book> consumer);
+
+    /**
+     * Returns the current catalog watermark.
+     */
+    CatalogWatermark findCatalogWatermark();
+
+    /**
+     * Passes every book to the consumer in the given order, starting right after the book with
+     * the key {@code after}, reading them from a server-side cursor.
+     */
+    default void forEach(BookSort sort, @Nullable String after, Consumer<Book> consumer) {
+        forEach(sort, after, BookField.ALL, consumer);
+    }
+
+    /**
+     * Like {@link #forEach(BookSort, String, Consumer)}, selecting only the columns of the given
+     * fields and of the sort key.
+     */
+    void forEach(BookSort sort, @Nullable String after, Set<BookField> fields, Consumer<Book> consumer);
+
+    /**
+     * Returns {@code limit} books matching the query from {@code offset}, ranked by relevance,
+     * out of the first {@code maxResults} matches found in the full-text index.
+     */
+    List<Book> search(BookSearchQuery query, int offset, int limit, int maxResults);
+
+    /**
+     * Returns up to {@code limit} changes after the cursor in (modified date, id) order: the
+     * books modified since, as they are now, and the tombstones of the books deleted since.
+     * Changes dated at or after {@code settledBefore} are left out.
+     */
+    List<BookChange> findChanges(BookChangeCursor after, Instant settledBefore, int limit);
+
+    /**
+     * Deletes the tombstones of the books deleted before the given date, returning their number.
+     */
+    int deleteTombstonesBefore(Instant date);
+}
@@ -0,0 +1,270 @@
+package com.polarbookshop.catalogservice.domain;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    private static final int CURSOR_FETCH_SIZE = 1000;
+
+    private static final String INSERT_IF_ABSENT = """
+            insert into book (isbn, title, author, price, version, created_date, last_modified_date)
+            values (:isbn, :title, :author, :price, 1, :now, :now)
+            on conflict (isbn_key) do nothing
+            """;
+
+    /**
+     * Each branch reads its own (date, id) index up to the limit, so that the cost of a page
+     * does not depend on the catalog size.
+     */
+    private static final String FIND_CHANGES = """
+            (select 'UPSERTED' as change_type, id, isbn, title, author, price, version, created_date, last_modified_date
+             from book
+             where (last_modified_date, id) > (:afterDate, :afterId) and last_modified_date < :settledBefore
+             order by last_modified_date, id limit :limit)
+            union all
+            (select 'DELETED', id, isbn, null, null, null, null, null, deleted_date
+             from book_tombstone
+             where (deleted_date, id) > (:afterDate, :afterId) and deleted_date < :settledBefore
+             order by deleted_date, id limit :limit)
+            order by last_modified_date, id limit :limit
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Book> findPage(BookSort sort, @Nullable String after, @Nullable String author, int limit, Set<BookField> fields) {
+        var conditions = new ArrayList<String>();
+        var parameters = new MapSqlParameterSource("limit", limit);
+        if (after != null) {
+            conditions.add(sort.column() + (sort.ascending() ? " > :after" : " < :after"));
+            parameters.addValue("after", sort.column()
+                                             .equals("id") ? Long.valueOf(after) : after);
+        }
+        if (author != null) {
+            conditions.add("author = :author");
+            parameters.addValue("author", author);
+        }
+        var selected = selectedFields(sort, fields);
+        var sql = "select " + columns(selected) + " from book"
+                + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions))
+                + " order by " + sort.column() + (sort.ascending() ? " asc" : " desc")
+                + " limit :limit";
+        return jdbcTemplate.query(sql, parameters, BookRowMapper.of(selected));
+    }
+
+    @Override
+    public Optional<Book> insertIfAbsent(Book book) {
+        return jdbcTemplate.query(INSERT_IF_ABSENT + " returning *", insertParameters(book, Timestamp.from(Instant.now())),
+                                  BookRowMapper.INSTANCE)
+                           .stream()
+                           .findFirst();
+    }
+
+    @Override
+    public int[] insertAllIfAbsent(List<Book> books) {
+        var now = Timestamp.from(Instant.now());
+        var batch = books.stream()
+                         .map(book -> insertParameters(book, now))
+                         .toArray(SqlParameterSource[]::new);
+        return jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, batch);
+    }
+
+    @Override
+    public List<Book> findAllByIsbn(Collection<String> isbns) {
+        var isbnKeys = isbns.stream()
+                            .map(Isbn::key)
+                            .toArray(Long[]::new);
+        return jdbcTemplate.getJdbcOperations()
+                           .query("select * from book where isbn_key = any(?)",
+                                  statement -> statement.setArray(1, statement.getConnection()
+                                                                              .createArrayOf("bigint", isbnKeys)),
+                                  BookRowMapper.INSTANCE);
+    }
+
+    /**
+     * Not read-only, so that it reads the primary: an ISBN filter built from a lagging replica
+     * would report the books it misses as not found.
+     */
+    @Override
+    @Transactional
+    public void forEachIsbn(Consumer<String> consumer) {
+        queryWithCursor("select isbn from book", null, rs -> consumer.accept(rs.getString(1)));
+    }
+
+    /**
+     * Not read-only, so that it reads the primary: a copy of the catalog loaded from a lagging
+     * replica would miss the books changed within the lag, whose changes were already applied.
+     */
+    @Override
+    @Transactional
+    public void forEachBook(Consumer<Book> consumer) {
+        queryWithCursor("select * from book order by id", null, rs -> consumer.accept(BookRowMapper.INSTANCE.mapRow(rs, 0)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(BookSort sort, @Nullable String after, Set<BookField> fields, Consumer<Book> consumer) {
+        var selected = selectedFields(sort, fields);
+        var rowMapper = BookRowMapper.of(selected);
+        var sql = "select " + columns(selected) + " from book"
+                + (after != null ? " where " + sort.column() + (sort.ascending() ? " > ?" : " < ?") : "")
+                + " order by " + sort.column() + (sort.ascending() ? " asc" : " desc");
+        var afterKey = after != null && sort.column()
+                                            .equals("id") ? Long.valueOf(after) : after;
+        queryWithCursor(sql, afterKey, rs -> consumer.accept(rowMapper.mapRow(rs, 0)));
+    }
+
+    @Override
+    public CatalogWatermark findCatalogWatermark() {
+        return jdbcTemplate.getJdbcOperations()
+                           .queryForObject("select sum(version) as version, max(last_modified_date) as last_modified_date from catalog_watermark",
+                                           (rs, rowNum) -> new CatalogWatermark(rs.getLong("version"), rs.getTimestamp("last_modified_date")
+                                                                                                          .toInstant()));
+    }
+
+    @Override
+    public List<Book> search(BookSearchQuery query, int offset, int limit, int maxResults) {
+        var sql = "select * from ("
+                + " select * from book where search_vector @@ to_tsquery('simple', :query) limit :maxResults"
+                + ") matches"
+                + " order by ts_rank_cd(search_vector, to_tsquery('simple', :query)) desc, id"
+                + " offset :offset limit :limit";
+        var parameters = new MapSqlParameterSource("query", query.toTsQuery())
+                .addValue("maxResults", maxResults)
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(sql, parameters, BookRowMapper.INSTANCE);
+    }
+
+    @Override
+    public List<BookChange> findChanges(BookChangeCursor after, Instant settledBefore, int limit) {
+        var parameters = new MapSqlParameterSource("afterDate", Timestamp.from(after.modifiedDate()))
+                .addValue("afterId", after.id())
+                .addValue("settledBefore", Timestamp.from(settledBefore))
+                .addValue("limit", limit);
+        return jdbcTemplate.query(FIND_CHANGES, parameters, (rs, rowNum) -> rs.getString("change_type")
+                                                                              .equals("DELETED")
+                ? BookChange.deleted(rs.getLong("id"), rs.getString("isbn"), rs.getTimestamp("last_modified_date")
+                                                                               .toInstant())
+                : BookChange.upserted(BookRowMapper.INSTANCE.mapRow(rs, rowNum)));
+    }
+
+    @Override
+    public int deleteTombstonesBefore(Instant date) {
+        return jdbcTemplate.update("delete from book_tombstone where deleted_date < :date",
+                                   new MapSqlParameterSource("date", Timestamp.from(date)));
+    }
+
+    /**
+     * Runs the query with a bounded fetch size. Within a transaction, the PostgreSQL driver then
+     * reads the result through a server-side cursor, {@value #CURSOR_FETCH_SIZE} rows at a time.
+     */
+    private void queryWithCursor(String sql, @Nullable Object parameter, RowCallbackHandler rowCallbackHandler) {
+        jdbcTemplate.getJdbcOperations()
+                    .query(connection -> {
+                        var statement = connection.prepareStatement(sql);
+                        statement.setFetchSize(CURSOR_FETCH_SIZE);
+                        if (parameter != null) {
+                            statement.setObject(1, parameter);
+                        }
+                        return statement;
+                    }, rowCallbackHandler);
+    }
+
+    /**
+     * Adds the key of the sort to the fields of a projection, so that a page can be resumed after its last book.
+     */
+    private static Set<BookField> selectedFields(BookSort sort, Set<BookField> fields) {
+        if (fields.contains(sort.field())) {
+            return fields;
+        }
+        var selected = EnumSet.copyOf(fields);
+        selected.add(sort.field());
+        return selected;
+    }
+
+    private static String columns(Set<BookField> fields) {
+        if (fields.containsAll(BookField.ALL)) {
+            return "*";
+        }
+        return fields.stream()
+                     .map(BookField::column)
+                     .collect(Collectors.joining(", "));
+    }
+
+    private static SqlParameterSource insertParameters(Book book, Timestamp now) {
+        return new MapSqlParameterSource().addValue("isbn", book.isbn())
+                                          .addValue("title", book.title())
+                                          .addValue("author", book.author())
+                                          .addValue("price", book.price())
+                                          .addValue("now", now);
+    }
+
+    @Override
+    public Optional<Book> updateIfMatches(String isbn, Book book, @Nullable BookPrecondition precondition) {
+        var sql = """
+                update book
+                set title = :title, author = :author, price = :price,
+                    version = version + 1, last_modified_date = :now
+                where isbn_key = :isbnKey
+                """
+                + versionCondition(precondition)
+                + " returning *";
+        var parameters = new MapSqlParameterSource().addValue("isbnKey", Isbn.key(isbn))
+                                                    .addValue("title", book.title())
+                                                    .addValue("author", book.author())
+                                                    .addValue("price", book.price())
+                                                    .addValue("now", Timestamp.from(Instant.now()));
+        if (precondition != null && precondition.versions() != null) {
+            var versions = precondition.versions();
+            for (var index = 0; index < versions.size(); index++) {
+                parameters.addValue("expectedId" + index, versions.get(index)
+                                                                  .id())
+                          .addValue("expectedVersion" + index, versions.get(index)
+                                                                       .version());
+            }
+        }
+        return jdbcTemplate.query(sql, parameters, BookRowMapper.INSTANCE)
+                           .stream()
+                           .findFirst();
+    }
+
+    /**
+     * Returns the condition matching any of the versions of the precondition, with one
+     * {@code expectedId} and {@code expectedVersion} parameter of each, numbered from zero.
+     */
+    private static String versionCondition(@Nullable BookPrecondition precondition) {
+        if (precondition == null || precondition.versions() == null) {
+            return "";
+        }
+        if (!precondition.satisfiable()) {
+            return " and false";
+        }
+        var versions = precondition.versions();
+        var conditions = new ArrayList<String>(versions.size());
+        for (var index = 0; index < versions.size(); index++) {
+            conditions.add(versions.get(index)
+                                   .id() != null ? "(id = :expectedId" + index + " and version = :expectedVersion" + index + ")"
+                                                 : "version = :expectedVersion" + index);
+        }
+        return " and (" + String.join(" or ", conditions) + ")";
+    }
+}
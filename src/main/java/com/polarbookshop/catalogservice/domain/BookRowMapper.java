@@ -0,0 +1,58 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Maps a full {@code book} row, as selected by the hand-written queries of
+ * {@link BookRepositoryCustomImpl}, without going through the Spring Data entity converter.
+ */
+final class BookRowMapper implements RowMapper<Book> {
+
+	static final BookRowMapper INSTANCE = new BookRowMapper();
+
+	private BookRowMapper() {}
+
+	/**
+	 * Maps the rows of a projection, which only select the columns of the given fields, leaving
+	 * the other fields of the books unset.
+	 */
+	static RowMapper<Book> of(Set<BookField> fields) {
+		if (fields.containsAll(BookField.ALL)) {
+			return INSTANCE;
+		}
+		return (rs, rowNum) -> new Book(
+				fields.contains(BookField.ID) ? rs.getLong("id") : null,
+				fields.contains(BookField.ISBN) ? rs.getString("isbn") : null,
+				fields.contains(BookField.TITLE) ? rs.getString("title") : null,
+				fields.contains(BookField.AUTHOR) ? rs.getString("author") : null,
+				fields.contains(BookField.PRICE) ? rs.getDouble("price") : null,
+				fields.contains(BookField.VERSION) ? rs.getInt("version") : 0,
+				fields.contains(BookField.CREATED_DATE) ? toInstant(rs.getTimestamp("created_date")) : null,
+				fields.contains(BookField.LAST_MODIFIED_DATE) ? toInstant(rs.getTimestamp("last_modified_date")) : null
+		);
+	}
+
+	@Override
+	public Book mapRow(ResultSet rs, int rowNum) throws SQLException {
+		return new Book(
+				rs.getLong("id"),
+				rs.getString("isbn"),
+				rs.getString("title"),
+				rs.getString("author"),
+				rs.getDouble("price"),
+				rs.getInt("version"),
+				toInstant(rs.getTimestamp("created_date")),
+				toInstant(rs.getTimestamp("last_modified_date"))
+		);
+	}
+
+	private static Instant toInstant(Timestamp timestamp) {
+		return timestamp != null ? timestamp.toInstant() : null;
+	}
+}
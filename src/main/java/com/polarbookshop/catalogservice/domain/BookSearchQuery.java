@@ -0,0 +1,40 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * The words of a catalog search, each matched as a prefix of a word of the title or the author.
+ */
+public record BookSearchQuery(List<String> terms) {
+
+	/**
+	 * Splits the query on everything but letters and digits, keeping at most {@code maxTerms} words.
+	 */
+	public static BookSearchQuery parse(String query, int maxTerms) {
+		var terms = Arrays.stream(query.toLowerCase(Locale.ROOT)
+		                               .split("[^\\p{L}\\p{N}]+"))
+		                  .filter(term -> !term.isEmpty())
+		                  .distinct()
+		                  .toList();
+		if (terms.isEmpty()) {
+			throw new InvalidBookRequestException(String.format("The search query %s has no words.", query));
+		}
+		if (terms.size() > maxTerms) {
+			throw new InvalidBookRequestException(String.format("A search query cannot have more than %d words.", maxTerms));
+		}
+		return new BookSearchQuery(terms);
+	}
+
+	/**
+	 * Returns the query in the PostgreSQL {@code tsquery} syntax, matching books with every word as a prefix.
+	 * The terms hold only letters and digits, so they cannot inject operators.
+	 */
+	public String toTsQuery() {
+		return terms.stream()
+		            .map(term -> term + ":*")
+		            .collect(Collectors.joining(" & "));
+	}
+}
@@ -0,0 +1,10 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * A page of search results, best matches first, with the number of the following page or {@code null} on the last one.
+ */
+public record BookSearchResult(List<Book> books, @Nullable Integer nextPage) {}
@@ -1,51 +1,386 @@
 package com.polarbookshop.catalogservice.domain;
 
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Operations on the catalog. The read-only ones are marked as such, without starting a database
+ * transaction of their own, so that they are sent to the read replica when one is configured.
+ * Those whose result is cached are not, so that a replica lagging behind cannot fill the caches
+ * with books that have already changed.
+ */
 @RequiredArgsConstructor
 @Service
 public class BookService {
 
 	private final BookRepository bookRepository;
+	private final PolarProperties polarProperties;
+	private final Validator validator;
+	private final ApplicationEventPublisher eventPublisher;
+	private final BookIsbnFilter bookIsbnFilter;
+	private final BookSuggestionIndex bookSuggestionIndex;
+	private final InMemoryBookCatalog inMemoryBookCatalog;
+	private final SingleFlight<String, Book> bookLoads;
+	private final PlatformTransactionManager transactionManager;
+
+	private final AtomicInteger runningExports = new AtomicInteger();
+
+	/**
+	 * Returns a page of the catalog, reading only the given fields of the books and the key of
+	 * the sort. It reads the primary, as the page is kept in the response cache.
+	 */
+	public BookPage getBooks(@Nullable String cursor, @Nullable Integer limit, BookSort sort, @Nullable String author,
+	                         Set<BookField> fields) {
+		var pageSize = pageSize(limit);
+		var after = cursor != null ? BookCursor.decode(cursor) : null;
+		var pageSort = after != null ? after.sort() : sort;
+		var books = bookRepository.findPage(pageSort, after != null ? after.lastKey() : null, author, pageSize + 1, fields);
+		if (books.size() <= pageSize) {
+			return new BookPage(books, null);
+		}
+		var page = books.subList(0, pageSize);
+		return new BookPage(page, BookCursor.after(pageSort, page.get(pageSize - 1))
+		                                    .encode());
+	}
+
+	/**
+	 * Takes one of the export slots, which the returned permit gives back when closed. Callers
+	 * take it before they start writing the response, so that an export refused for lack of slots
+	 * can still be answered with an error.
+	 */
+	public ExportPermit acquireExportPermit() {
+		var maxConcurrent = polarProperties.getExport()
+		                                   .getMaxConcurrent();
+		if (runningExports.incrementAndGet() > maxConcurrent) {
+			runningExports.decrementAndGet();
+			throw new BookExportUnavailableException(maxConcurrent);
+		}
+		var released = new AtomicBoolean();
+		return () -> {
+			if (released.compareAndSet(false, true)) {
+				runningExports.decrementAndGet();
+			}
+		};
+	}
+
+	/**
+	 * Passes every book of the catalog to the consumer as it is read from the database, so that
+	 * memory use does not depend on the catalog size. The export resumes after the book with the
+	 * key {@code after} when it is set, and reads only the given fields of the books and the key
+	 * of the sort. It runs under a permit of {@link #acquireExportPermit()}.
+	 */
+	@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+	public void exportBooks(BookSort sort, @Nullable String after, Set<BookField> fields, Consumer<Book> consumer) {
+		bookRepository.forEach(sort, after, fields, consumer);
+	}
+
+	/**
+	 * A slot of the concurrent exports, given back on close.
+	 */
+	public interface ExportPermit extends AutoCloseable {
+
+		@Override
+		void close();
+	}
+
+	/**
+	 * Searches the titles and authors for books with every word of the query as a word prefix,
+	 * best matches first. Only the first matches up to the configured maximum are ranked, which
+	 * keeps the cost of a query bounded however many books match it.
+	 */
+	@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+	public BookSearchResult searchBooks(String query, @Nullable Integer page, @Nullable Integer limit) {
+		var search = polarProperties.getSearch();
+		var searchQuery = BookSearchQuery.parse(query, search.getMaxTerms());
+		var pageSize = pageSize(limit);
+		var pageNumber = page != null ? page : 0;
+		if (pageNumber < 0) {
+			throw new InvalidBookRequestException(String.format("The page %d must not be negative.", pageNumber));
+		}
+		var offset = (long) pageNumber * pageSize;
+		if (offset >= search.getMaxResults()) {
+			return new BookSearchResult(List.of(), null);
+		}
+		var books = bookRepository.search(searchQuery, (int) offset, Math.min(pageSize + 1, search.getMaxResults() - (int) offset),
+		                                  search.getMaxResults());
+		if (books.size() <= pageSize) {
+			return new BookSearchResult(books, null);
+		}
+		return new BookSearchResult(books.subList(0, pageSize), pageNumber + 1);
+	}
+
+	/**
+	 * Suggests books whose title or author has a word starting with what the user typed, from
+	 * memory, without querying the database.
+	 */
+	public List<BookSuggestion> suggestBooks(String prefix, @Nullable Integer limit) {
+		return bookSuggestionIndex.suggest(prefix, limit);
+	}
+
+	/**
+	 * Returns the changes made after the cursor, or from the beginning when there is none: the
+	 * books created or updated, as they are now, and the books deleted. The cost depends on the
+	 * number of changes, not on the catalog size. Changes younger than the settle time are held
+	 * back, since transactions still running may commit changes dated before them.
+	 */
+	@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+	public BookChangePage getChanges(@Nullable String since, @Nullable Integer limit) {
+		var changes = polarProperties.getChanges();
+		var pageSize = pageSize(limit, changes.getDefaultSize(), changes.getMaxSize());
+		var after = since != null ? BookChangeCursor.decode(since) : new BookChangeCursor(Instant.EPOCH, 0);
+		var now = Instant.now();
+		if (since != null && after.modifiedDate()
+		                          .isBefore(now.minus(changes.getTombstoneRetention()))) {
+			throw new BookChangesExpiredException(after.modifiedDate());
+		}
+		var page = bookRepository.findChanges(after, now.minus(changes.getSettleTime()), pageSize);
+		var next = page.isEmpty() ? after : BookChangeCursor.after(page.get(page.size() - 1));
+		return new BookChangePage(page, next.encode());
+	}
+
+	/**
+	 * Drops the deletions older than the tombstone retention, which the change feed no longer serves.
+	 */
+	@Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+	public void purgeExpiredTombstones() {
+		bookRepository.deleteTombstonesBefore(Instant.now()
+		                                             .minus(polarProperties.getChanges()
+		                                                                   .getTombstoneRetention()));
+	}
 
-	public Iterable<Book> getBooks() {
-		return bookRepository.findAll();
+	@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+	public CatalogWatermark getCatalogWatermark() {
+		return bookRepository.findCatalogWatermark();
 	}
 
+	/**
+	 * Looks up a book, through the cache and the in-memory catalog when enabled. Concurrent
+	 * misses for the same ISBN share one query, on the primary since its result is cached.
+	 */
+	@Cacheable(BookCacheInvalidator.BOOKS_CACHE)
 	public Book getBook(String isbn) {
-		return bookRepository.findByIsbn(isbn)
-		                     .orElseThrow(() -> new BookNotFoundException(isbn));
+		if (inMemoryBookCatalog.serves(isbn)) {
+			return inMemoryBookCatalog.find(isbn)
+			                          .orElseThrow(() -> new BookNotFoundException(isbn));
+		}
+		if (!bookIsbnFilter.mightContain(isbn)) {
+			throw new BookNotFoundException(isbn);
+		}
+		var book = bookLoads.execute(isbn, () -> bookRepository.findByIsbn(isbn)
+		                                                       .orElse(null));
+		if (book == null) {
+			throw new BookNotFoundException(isbn);
+		}
+		return book;
+	}
+
+	/**
+	 * Looks up the books with the given ISBNs in a single query, reporting the ISBNs that were not found.
+	 * The ISBNs already being loaded by concurrent lookups are waited for instead of queried again.
+	 * It reads the primary, as {@link #getBook} caches the loads it joins.
+	 */
+	public BookLookup getBooks(Collection<String> isbns) {
+		var requestedIsbns = new LinkedHashSet<>(isbns);
+		var maxIsbns = polarProperties.getLookup()
+		                              .getMaxIsbns();
+		if (requestedIsbns.size() > maxIsbns) {
+			throw new InvalidBookRequestException(String.format("No more than %d ISBNs can be looked up at once.", maxIsbns));
+		}
+		var booksByIsbn = new HashMap<String, Book>();
+		var candidateIsbns = new ArrayList<String>();
+		for (var isbn : requestedIsbns) {
+			if (inMemoryBookCatalog.serves(isbn)) {
+				inMemoryBookCatalog.find(isbn)
+				                   .ifPresent(book -> booksByIsbn.put(isbn, book));
+			} else if (bookIsbnFilter.mightContain(isbn)) {
+				candidateIsbns.add(isbn);
+			}
+		}
+		if (!candidateIsbns.isEmpty()) {
+			booksByIsbn.putAll(bookLoads.executeAll(candidateIsbns, this::findAllByIsbn));
+		}
+		var books = new ArrayList<Book>(booksByIsbn.size());
+		var missing = new ArrayList<String>();
+		for (var isbn : requestedIsbns) {
+			var book = booksByIsbn.get(isbn);
+			if (book != null) {
+				books.add(book);
+			} else {
+				missing.add(isbn);
+			}
+		}
+		return new BookLookup(books, missing);
 	}
 
 	public Book addBookToCatalog(Book book) {
-		if (bookRepository.existsByIsbn(book.isbn())) {
+		Book createdBook;
+		try {
+			createdBook = bookRepository.insertIfAbsent(book)
+			                            .orElseThrow(() -> new BookAlreadyExistsException(book.isbn()));
+		} catch (DuplicateKeyException exception) {
 			throw new BookAlreadyExistsException(book.isbn());
 		}
-		bookRepository.save(book);
-		return bookRepository.findByIsbn(book.isbn())
-		                     .orElse(null);
+		bookSuggestionIndex.add(createdBook);
+		inMemoryBookCatalog.put(createdBook);
+		eventPublisher.publishEvent(new BookChangedEvent(createdBook.isbn(), BookChangedEvent.Type.CREATED));
+		return createdBook;
+	}
+
+	/**
+	 * Validates the books, then inserts them in JDBC batches of the configured chunk size. Invalid,
+	 * missing and duplicate books are reported in the result instead of failing the batch. The books are
+	 * all read before the first insert, so that a slow upload or one over the limit holds no
+	 * connection, and each chunk commits in its own transaction before its books are announced.
+	 * The rows of a chunk are dated when it starts, so a chunk running for half the settle time of
+	 * the change feed is rolled back rather than committed behind cursors already handed out.
+	 */
+	public List<BookBatchResult> addBooksToCatalog(Iterator<Book> books) {
+		var batch = polarProperties.getBatch();
+		var results = new ArrayList<BookBatchResult>();
+		var validBooks = new ArrayList<Book>();
+		var validIndexes = new ArrayList<Integer>();
+		for (var index = 0; books.hasNext(); index++) {
+			if (index == batch.getMaxItems()) {
+				throw new InvalidBookRequestException(String.format("A batch cannot contain more than %d books.", batch.getMaxItems()));
+			}
+			var book = books.next();
+			if (book == null) {
+				results.add(BookBatchResult.invalid(index, null, Map.of("book", "The book must be defined.")));
+				continue;
+			}
+			var violations = validator.validate(book);
+			if (!violations.isEmpty()) {
+				results.add(BookBatchResult.invalid(index, book.isbn(), errors(violations)));
+				continue;
+			}
+			results.add(null);
+			validBooks.add(book);
+			validIndexes.add(index);
+		}
+		var transaction = new TransactionTemplate(transactionManager);
+		transaction.setTimeout((int) Math.max(1, polarProperties.getChanges()
+		                                                        .getSettleTime()
+		                                                        .toSeconds() / 2));
+		for (var from = 0; from < validBooks.size(); from += batch.getChunkSize()) {
+			var to = Math.min(from + batch.getChunkSize(), validBooks.size());
+			var chunk = validBooks.subList(from, to);
+			var chunkIndexes = validIndexes.subList(from, to);
+			var createdBooks = transaction.execute(status -> insertChunk(chunk, chunkIndexes, results));
+			for (var createdBook : createdBooks) {
+				bookSuggestionIndex.add(createdBook);
+				inMemoryBookCatalog.put(createdBook);
+				eventPublisher.publishEvent(new BookChangedEvent(createdBook.isbn(), BookChangedEvent.Type.CREATED));
+			}
+		}
+		return results;
 	}
 
 	public void deleteBookFromCatalog(String isbn) {
 		bookRepository.deleteByIsbn(isbn);
+		bookSuggestionIndex.remove(isbn);
+		inMemoryBookCatalog.remove(isbn);
+		eventPublisher.publishEvent(new BookChangedEvent(isbn, BookChangedEvent.Type.DELETED));
 	}
 
 	public Book editBook(String isbn, Book book) {
-		return bookRepository.findByIsbn(isbn)
-		                     .map(existingBook -> {
-			                     var bookToUpdate = Book.builder()
-			                                            .id(existingBook.id())
-			                                            .isbn(existingBook.isbn())
-			                                            .title(book.title())
-			                                            .author(book.author())
-			                                            .price(book.price())
-			                                            .version(existingBook.version())
-			                                            .createdDate(existingBook.createdDate())
-			                                            .lastModifiedDate(existingBook.lastModifiedDate())
-			                                            .build();
-			                     return bookRepository.save(bookToUpdate);
-		                     })
-		                     .orElseGet(() -> addBookToCatalog(book));
+		return editBook(isbn, book, null);
+	}
+
+	/**
+	 * Updates the book in place. When {@code precondition} is set, the update only succeeds
+	 * if the stored book matches it, and a missing book is reported as not found rather than as
+	 * a mismatch; otherwise a missing book is created.
+	 */
+	public Book editBook(String isbn, Book book, @Nullable BookPrecondition precondition) {
+		var updatedBook = precondition == null || precondition.satisfiable() ? bookRepository.updateIfMatches(isbn, book, precondition)
+		                                                                     : Optional.<Book>empty();
+		if (updatedBook.isPresent()) {
+			bookSuggestionIndex.add(updatedBook.get());
+			inMemoryBookCatalog.put(updatedBook.get());
+			eventPublisher.publishEvent(new BookChangedEvent(isbn, BookChangedEvent.Type.UPDATED));
+			return updatedBook.get();
+		}
+		if (precondition != null) {
+			if (!bookRepository.existsByIsbn(isbn)) {
+				throw new BookNotFoundException(isbn);
+			}
+			throw new BookVersionMismatchException(isbn, precondition);
+		}
+		return addBookToCatalog(book);
+	}
+
+	private Map<String, Book> findAllByIsbn(List<String> isbns) {
+		var booksByIsbn = new HashMap<String, Book>();
+		bookRepository.findAllByIsbn(isbns)
+		              .forEach(book -> booksByIsbn.put(book.isbn(), book));
+		return booksByIsbn;
+	}
+
+	/**
+	 * Inserts a chunk and returns the rows it created, as stored.
+	 */
+	private List<Book> insertChunk(List<Book> chunk, List<Integer> chunkIndexes, List<BookBatchResult> results) {
+		var insertedRows = bookRepository.insertAllIfAbsent(chunk);
+		var createdIsbns = new ArrayList<String>();
+		for (var i = 0; i < insertedRows.length; i++) {
+			var index = chunkIndexes.get(i);
+			var isbn = chunk.get(i)
+			                .isbn();
+			if (insertedRows[i] == 0) {
+				results.set(index, BookBatchResult.duplicate(index, isbn));
+			} else {
+				results.set(index, BookBatchResult.created(index, isbn));
+				createdIsbns.add(isbn);
+			}
+		}
+		return createdIsbns.isEmpty() ? List.of() : bookRepository.findAllByIsbn(createdIsbns);
+	}
+
+	private static Map<String, String> errors(Set<ConstraintViolation<Book>> violations) {
+		var errors = new HashMap<String, String>();
+		violations.forEach(violation -> errors.put(violation.getPropertyPath()
+		                                                    .toString(), violation.getMessage()));
+		return errors;
+	}
+
+	private int pageSize(@Nullable Integer limit) {
+		var page = polarProperties.getPage();
+		return pageSize(limit, page.getDefaultSize(), page.getMaxSize());
+	}
+
+	private static int pageSize(@Nullable Integer limit, int defaultSize, int maxSize) {
+		if (limit == null) {
+			return defaultSize;
+		}
+		if (limit < 1) {
+			throw new InvalidBookRequestException(String.format("The page size %d must be greater than zero.", limit));
+		}
+		return Math.min(limit, maxSize);
 	}
 }
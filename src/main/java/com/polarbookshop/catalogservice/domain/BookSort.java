@@ -0,0 +1,76 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Locale;
+
+/**
+ * The orders in which the catalog can be paged through. Each one is backed by a unique,
+ * indexed column, so that a page can be resumed from the last key seen.
+ */
+public enum BookSort {
+
+	ID(BookField.ID, true),
+	ID_DESC(BookField.ID, false),
+	ISBN(BookField.ISBN, true),
+	ISBN_DESC(BookField.ISBN, false);
+
+	private final BookField field;
+	private final boolean ascending;
+
+	BookSort(BookField field, boolean ascending) {
+		this.field = field;
+		this.ascending = ascending;
+	}
+
+	/**
+	 * The field holding the key of the sort, which a projection always selects so that the page
+	 * can be resumed after its last book.
+	 */
+	public BookField field() {
+		return field;
+	}
+
+	public String column() {
+		return field.column();
+	}
+
+	public boolean ascending() {
+		return ascending;
+	}
+
+	/**
+	 * Checks that a key to resume after can be compared with the keys of the sort, the ids being
+	 * numbers, so that a bad one is refused before anything is read or written.
+	 */
+	public void validateAfter(@Nullable String after) {
+		if (after == null || field != BookField.ID) {
+			return;
+		}
+		try {
+			Long.parseLong(after);
+		} catch (NumberFormatException exception) {
+			throw new InvalidBookRequestException(String.format("The position %s is not a book id.", after));
+		}
+	}
+
+	/**
+	 * Parses a sort expression in the {@code property[,asc|desc]} form, e.g. {@code isbn,desc}.
+	 */
+	public static BookSort parse(String expression) {
+		var parts = expression.split(",", -1);
+		var property = parts[0].trim()
+		                       .toLowerCase(Locale.ROOT);
+		var direction = parts.length > 1 ? parts[1].trim()
+		                                           .toLowerCase(Locale.ROOT) : "asc";
+		if (parts.length > 2 || !(direction.equals("asc") || direction.equals("desc"))) {
+			throw new InvalidBookRequestException(String.format("The sort %s is not supported.", expression));
+		}
+		var descending = direction.equals("desc");
+		return switch (property) {
+			case "id" -> descending ? ID_DESC : ID;
+			case "isbn" -> descending ? ISBN_DESC : ISBN;
+			default -> throw new InvalidBookRequestException(String.format("The sort %s is not supported.", expression));
+		};
+	}
+}
@@ -0,0 +1,6 @@
+package com.polarbookshop.catalogservice.domain;
+
+/**
+ * A book offered while the user types, with just what is needed to display it.
+ */
+public record BookSuggestion(String isbn, String title, String author) {}
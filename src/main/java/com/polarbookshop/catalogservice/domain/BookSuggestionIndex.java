@@ -0,0 +1,384 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix index over the words of the titles and authors of the whole catalog, so that typeahead
+ * suggestions never query the database. It is built when the application is ready and updated
+ * by {@link BookService} as books are created, edited and deleted. Changes made by the other
+ * replicas are read back in one query every few seconds, and the index is rebuilt when change
+ * notifications may have been missed. Until the first build completes, nothing is suggested.
+ */
+@Slf4j
+@Component
+public class BookSuggestionIndex {
+
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final int MAX_SCANNED = 10_000;
+	private static final int MAX_REFRESHED = 1000;
+
+	private final BookRepository bookRepository;
+	private final PolarProperties.Suggest properties;
+
+	private volatile Index current;
+	private volatile Index next;
+	private final Set<String> changedIsbns = ConcurrentHashMap.newKeySet();
+
+	public BookSuggestionIndex(BookRepository bookRepository, PolarProperties polarProperties, MeterRegistry meterRegistry) {
+		this.bookRepository = bookRepository;
+		this.properties = polarProperties.getSuggest();
+		Gauge.builder("books.suggest.index.books", this, index -> index.current != null ? index.current.size() : 0)
+		     .description("Number of books in the suggestion index")
+		     .register(meterRegistry);
+		Gauge.builder("books.suggest.index.words", this, index -> index.current != null ? index.current.wordCount() : 0)
+		     .description("Number of distinct title and author words in the suggestion index")
+		     .register(meterRegistry);
+	}
+
+	/**
+	 * Returns up to {@code limit} books with a title or author word starting with the last word
+	 * of the prefix and containing all the words before it. Title matches come first, then
+	 * author matches, each in the order of the matching words.
+	 */
+	public List<BookSuggestion> suggest(String prefix, @Nullable Integer limit) {
+		var words = words(prefix);
+		if (words.isEmpty()) {
+			throw new InvalidBookRequestException(String.format("The prefix %s has no words.", prefix));
+		}
+		var size = size(limit);
+		var index = current;
+		if (index == null) {
+			return List.of();
+		}
+		return index.suggest(words, size);
+	}
+
+	public void add(Book book) {
+		var index = current;
+		if (index != null) {
+			index.put(book);
+		}
+		var nextIndex = next;
+		if (nextIndex != null) {
+			nextIndex.put(book);
+		}
+	}
+
+	public void remove(String isbn) {
+		var index = current;
+		if (index != null) {
+			index.remove(isbn);
+		}
+		var nextIndex = next;
+		if (nextIndex != null) {
+			nextIndex.remove(isbn);
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		rebuild();
+	}
+
+	/**
+	 * Remembers the changed book, since the event may come from another replica and carries no
+	 * title or author. Changes made here have already been applied, and are read back harmlessly.
+	 */
+	@EventListener
+	public void onBookChanged(BookChangedEvent event) {
+		if (current != null || next != null) {
+			changedIsbns.add(event.isbn());
+		}
+	}
+
+	@EventListener(BookChangesMissedEvent.class)
+	public void onBookChangesMissed() {
+		rebuild();
+	}
+
+	/**
+	 * Reads the books changed since the last refresh in one query, and drops the ones that no
+	 * longer exist.
+	 */
+	@Scheduled(fixedDelay = 5000, initialDelay = 5000)
+	public void refresh() {
+		if (changedIsbns.isEmpty()) {
+			return;
+		}
+		var isbns = new ArrayList<String>(Math.min(changedIsbns.size(), MAX_REFRESHED));
+		for (var iterator = changedIsbns.iterator(); iterator.hasNext() && isbns.size() < MAX_REFRESHED; ) {
+			isbns.add(iterator.next());
+			iterator.remove();
+		}
+		try {
+			var missing = new HashSet<>(isbns);
+			for (var book : bookRepository.findAllByIsbn(isbns)) {
+				missing.remove(book.isbn());
+				add(book);
+			}
+			missing.forEach(this::remove);
+		} catch (RuntimeException exception) {
+			changedIsbns.addAll(isbns);
+			log.warn("Could not refresh the suggestion index, retrying later: {}", exception.getMessage());
+		}
+	}
+
+	/**
+	 * Loads every book from the primary into a new index and swaps it in. Books changed while the
+	 * catalog is being read are applied to both indexes, so none is lost in the swap.
+	 */
+	synchronized void rebuild() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		try {
+			var index = new Index();
+			next = index;
+			changedIsbns.clear();
+			bookRepository.forEachBook(index::put);
+			current = index;
+			log.info("Built the suggestion index with {} books and {} words", index.size(), index.wordCount());
+		} catch (RuntimeException exception) {
+			log.warn("Could not build the suggestion index, no books will be suggested: {}", exception.getMessage());
+		} finally {
+			next = null;
+		}
+	}
+
+	/**
+	 * Splits the text into lower-case words of letters and digits, without diacritics.
+	 */
+	static List<String> words(@Nullable String text) {
+		if (text == null) {
+			return List.of();
+		}
+		var folded = (isAscii(text) ? text : DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+		                                               .replaceAll("")).toLowerCase(Locale.ROOT);
+		return Arrays.stream(SEPARATORS.split(folded))
+		             .filter(word -> !word.isEmpty())
+		             .distinct()
+		             .toList();
+	}
+
+	private static boolean isAscii(String text) {
+		for (var i = 0; i < text.length(); i++) {
+			if (text.charAt(i) > 127) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int size(@Nullable Integer limit) {
+		if (limit == null) {
+			return properties.getDefaultSize();
+		}
+		if (limit < 1) {
+			throw new InvalidBookRequestException(String.format("The number of suggestions %d must be greater than zero.", limit));
+		}
+		return Math.min(limit, properties.getMaxSize());
+	}
+
+	/**
+	 * Sorted maps from each word to the books having it in their title or author. Readers never
+	 * lock; writers are serialized, so that a book is never half added or half removed.
+	 */
+	static final class Index {
+
+		private final ConcurrentSkipListMap<String, Postings> titleWords = new ConcurrentSkipListMap<>();
+		private final ConcurrentSkipListMap<String, Postings> authorWords = new ConcurrentSkipListMap<>();
+		private final ConcurrentHashMap<String, BookSuggestion> books = new ConcurrentHashMap<>();
+
+		synchronized void put(Book book) {
+			var suggestion = new BookSuggestion(book.isbn(), book.title(), book.author());
+			var previous = books.put(book.isbn(), suggestion);
+			if (previous != null) {
+				unindex(previous);
+			}
+			words(suggestion.title()).forEach(word -> titleWords.computeIfAbsent(word, key -> new Postings())
+			                                                    .add(suggestion));
+			words(suggestion.author()).forEach(word -> authorWords.computeIfAbsent(word, key -> new Postings())
+			                                                      .add(suggestion));
+		}
+
+		synchronized void remove(String isbn) {
+			var previous = books.remove(isbn);
+			if (previous != null) {
+				unindex(previous);
+			}
+		}
+
+		List<BookSuggestion> suggest(List<String> words, int limit) {
+			var prefix = words.get(words.size() - 1);
+			var required = words.subList(0, words.size() - 1);
+			if (!required.isEmpty()) {
+				return suggestWithRequiredWords(prefix, required, limit);
+			}
+			var matches = new LinkedHashMap<String, BookSuggestion>();
+			var scanned = collect(titleWords, prefix, limit, matches, 0);
+			collect(authorWords, prefix, limit, matches, scanned);
+			return List.copyOf(matches.values());
+		}
+
+		int size() {
+			return books.size();
+		}
+
+		int wordCount() {
+			return titleWords.size() + authorWords.size();
+		}
+
+		/**
+		 * Adds the books with a word starting with the prefix until the limit is reached, or
+		 * until {@value #MAX_SCANNED} books have been looked at.
+		 */
+		private int collect(ConcurrentSkipListMap<String, Postings> index, String prefix, int limit,
+		                    Map<String, BookSuggestion> matches, int scanned) {
+			for (var entry : index.tailMap(prefix)
+			                      .entrySet()) {
+				if (!entry.getKey()
+				          .startsWith(prefix)) {
+					break;
+				}
+				var postings = entry.getValue();
+				var size = postings.size;
+				var suggestions = postings.suggestions;
+				for (var i = 0; i < size; i++) {
+					if (matches.size() >= limit || scanned++ >= MAX_SCANNED) {
+						return scanned;
+					}
+					var suggestion = suggestions[i];
+					if (isCurrent(suggestion)) {
+						matches.putIfAbsent(suggestion.isbn(), suggestion);
+					}
+				}
+			}
+			return scanned;
+		}
+
+		/**
+		 * Looks for the matches among the books having the rarest of the words typed before the
+		 * prefix, which are complete words, rather than among all the books matching the prefix.
+		 */
+		private List<BookSuggestion> suggestWithRequiredWords(String prefix, List<String> required, int limit) {
+			String rarestWord = null;
+			var rarestCount = Integer.MAX_VALUE;
+			for (var word : required) {
+				var count = size(titleWords.get(word)) + size(authorWords.get(word));
+				if (count < rarestCount) {
+					rarestWord = word;
+					rarestCount = count;
+				}
+			}
+			if (rarestCount == 0) {
+				return List.of();
+			}
+			var titleMatches = new LinkedHashMap<String, BookSuggestion>();
+			var authorMatches = new LinkedHashMap<String, BookSuggestion>();
+			var scanned = 0;
+			for (var postings : new Postings[] {titleWords.get(rarestWord), authorWords.get(rarestWord)}) {
+				var size = size(postings);
+				for (var i = 0; i < size && titleMatches.size() < limit && scanned++ < MAX_SCANNED; i++) {
+					var suggestion = postings.suggestions[i];
+					if (!isCurrent(suggestion)) {
+						continue;
+					}
+					var titleWords = words(suggestion.title());
+					var authorWords = words(suggestion.author());
+					if (!required.stream()
+					             .allMatch(word -> titleWords.contains(word) || authorWords.contains(word))) {
+						continue;
+					}
+					if (titleWords.stream()
+					              .anyMatch(word -> word.startsWith(prefix))) {
+						titleMatches.putIfAbsent(suggestion.isbn(), suggestion);
+					} else if (authorWords.stream()
+					                      .anyMatch(word -> word.startsWith(prefix))) {
+						authorMatches.putIfAbsent(suggestion.isbn(), suggestion);
+					}
+				}
+			}
+			authorMatches.forEach(titleMatches::putIfAbsent);
+			return titleMatches.values()
+			                   .stream()
+			                   .limit(limit)
+			                   .toList();
+		}
+
+		private boolean isCurrent(@Nullable BookSuggestion suggestion) {
+			return suggestion != null && books.get(suggestion.isbn()) == suggestion;
+		}
+
+		private static int size(@Nullable Postings postings) {
+			return postings != null ? postings.size : 0;
+		}
+
+		private void unindex(BookSuggestion suggestion) {
+			words(suggestion.title()).forEach(word -> remove(titleWords, word, suggestion));
+			words(suggestion.author()).forEach(word -> remove(authorWords, word, suggestion));
+		}
+
+		private static void remove(ConcurrentSkipListMap<String, Postings> index, String word, BookSuggestion suggestion) {
+			var postings = index.get(word);
+			if (postings != null && postings.remove(suggestion) && postings.size == 0) {
+				index.remove(word);
+			}
+		}
+	}
+
+	/**
+	 * The books having a word, in a compact array that grows by doubling. Only the index writer
+	 * changes it; a reader racing with a removal may miss or see twice the last book, which the
+	 * index tolerates.
+	 */
+	static final class Postings {
+
+		private volatile BookSuggestion[] suggestions = new BookSuggestion[1];
+		private volatile int size;
+
+		void add(BookSuggestion suggestion) {
+			var array = suggestions;
+			if (size == array.length) {
+				array = Arrays.copyOf(array, array.length * 2);
+			}
+			array[size] = suggestion;
+			suggestions = array;
+			size = size + 1;
+		}
+
+		boolean remove(BookSuggestion suggestion) {
+			var array = suggestions;
+			for (var i = 0; i < size; i++) {
+				if (array[i] == suggestion) {
+					array[i] = array[size - 1];
+					array[size - 1] = null;
+					size = size - 1;
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
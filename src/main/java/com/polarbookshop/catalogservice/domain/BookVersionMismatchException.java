@@ -0,0 +1,26 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.util.stream.Collectors;
+
+public class BookVersionMismatchException extends RuntimeException {
+	public BookVersionMismatchException(String isbn, BookPrecondition precondition) {
+		super(message(isbn, precondition));
+	}
+
+	private static String message(String isbn, BookPrecondition precondition) {
+		var versions = precondition.versions();
+		if (versions == null || versions.isEmpty()) {
+			return String.format("The book with ISBN %s does not match the precondition.", isbn);
+		}
+		if (versions.size() > 1) {
+			return String.format("The book with ISBN %s is at none of the versions %s.", isbn, versions.stream()
+			                                                                                     .map(BookPrecondition.Version::toString)
+			                                                                                     .collect(Collectors.joining(", ")));
+		}
+		var version = versions.get(0);
+		if (version.id() == null) {
+			return String.format("The book with ISBN %s is not at version %d.", isbn, version.version());
+		}
+		return String.format("The book with ISBN %s is not book %d at version %d.", isbn, version.id(), version.version());
+	}
+}
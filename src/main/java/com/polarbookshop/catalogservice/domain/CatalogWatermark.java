@@ -0,0 +1,11 @@
+package com.polarbookshop.catalogservice.domain;
+
+import java.time.Instant;
+
+/**
+ * Catalog-wide change marker, bumped by a trigger on every statement that changes rows of the
+ * {@code book} table. It is kept in stripes, each connection bumping the one its backend process
+ * picks so that writers do not queue on one row, and the version is their sum: it grows with
+ * every commit, in commit order. Reading it costs a scan of the stripes, whatever the catalog size.
+ */
+public record CatalogWatermark(long version, Instant lastModifiedDate) {}
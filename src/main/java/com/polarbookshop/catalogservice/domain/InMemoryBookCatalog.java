@@ -0,0 +1,220 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The whole catalog in memory, in a {@link PackedBookStore}, so that the lookups by ISBN never
+ * query the database. It is loaded when the application is ready, updated by
+ * {@link BookService} as books are created, edited and deleted, and reconciled with the change
+ * feed of the database every 30 seconds, which applies the changes whose notifications were lost.
+ * The books changed by other replicas are looked up in the database until they have been read
+ * back, a second later at most, so that they are never served, nor cached, stale. Until the
+ * first load completes, nothing is served from memory.
+ */
+@Slf4j
+@Component
+public class InMemoryBookCatalog {
+
+	private static final int MAX_REFRESHED = 1000;
+
+	private final BookRepository bookRepository;
+	private final PolarProperties.InMemoryCatalog properties;
+	private final PolarProperties.Changes changes;
+
+	private volatile PackedBookStore current;
+	private volatile PackedBookStore next;
+	private volatile BookChangeCursor reconciledUntil;
+	private final ConcurrentHashMap<String, Long> changedIsbns = new ConcurrentHashMap<>();
+	private final AtomicLong changeSequence = new AtomicLong();
+
+	public InMemoryBookCatalog(BookRepository bookRepository, PolarProperties polarProperties, MeterRegistry meterRegistry) {
+		this.bookRepository = bookRepository;
+		this.properties = polarProperties.getInMemoryCatalog();
+		this.changes = polarProperties.getChanges();
+		Gauge.builder("books.catalog.memory.books", this, catalog -> catalog.current != null ? catalog.current.size() : 0)
+		     .description("Number of books held by the in-memory catalog")
+		     .register(meterRegistry);
+		Gauge.builder("books.catalog.memory.size", this, catalog -> catalog.current != null ? catalog.current.retainedBytes() : 0)
+		     .description("Heap held by the arrays of the in-memory catalog")
+		     .baseUnit("bytes")
+		     .register(meterRegistry);
+	}
+
+	/**
+	 * Whether the book with the ISBN, or its absence, can be read from memory.
+	 */
+	public boolean serves(String isbn) {
+		return current != null && !changedIsbns.containsKey(isbn);
+	}
+
+	public Optional<Book> find(String isbn) {
+		var store = current;
+		return store != null ? Optional.ofNullable(store.get(isbn)) : Optional.empty();
+	}
+
+	public void put(Book book) {
+		var store = current;
+		if (store != null) {
+			store.put(book);
+		}
+		var nextStore = next;
+		if (nextStore != null) {
+			nextStore.put(book);
+		}
+	}
+
+	public void remove(String isbn) {
+		var store = current;
+		if (store != null) {
+			store.remove(isbn);
+		}
+		var nextStore = next;
+		if (nextStore != null) {
+			nextStore.remove(isbn);
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		load();
+	}
+
+	/**
+	 * Marks the book as changed until it is read back, since the event may come from another
+	 * replica. Changes made here have already been applied, and are read back harmlessly.
+	 */
+	@EventListener
+	public void onBookChanged(BookChangedEvent event) {
+		if (current != null || next != null) {
+			changedIsbns.put(event.isbn(), changeSequence.incrementAndGet());
+		}
+	}
+
+	@EventListener(BookChangesMissedEvent.class)
+	public void onBookChangesMissed() {
+		load();
+	}
+
+	/**
+	 * Reads the books changed since the last refresh in one query, and drops the ones that no
+	 * longer exist. A book changed again meanwhile stays marked for the next refresh.
+	 */
+	@Scheduled(fixedDelay = 1000, initialDelay = 1000)
+	public void refresh() {
+		if (changedIsbns.isEmpty()) {
+			return;
+		}
+		var sequences = new HashMap<String, Long>();
+		for (var iterator = changedIsbns.entrySet()
+		                                .iterator(); iterator.hasNext() && sequences.size() < MAX_REFRESHED; ) {
+			var entry = iterator.next();
+			sequences.put(entry.getKey(), entry.getValue());
+		}
+		try {
+			var missing = new HashSet<>(sequences.keySet());
+			for (var book : bookRepository.findAllByIsbn(new ArrayList<>(sequences.keySet()))) {
+				missing.remove(book.isbn());
+				putIfNotOlder(book);
+			}
+			missing.forEach(this::remove);
+			sequences.forEach(changedIsbns::remove);
+		} catch (RuntimeException exception) {
+			log.warn("Could not refresh the in-memory catalog, retrying later: {}", exception.getMessage());
+		}
+	}
+
+	/**
+	 * Applies the changes of the change feed since the last reconciliation. A change older than
+	 * the book in memory is skipped, so that the feed never undoes a more recent local write.
+	 */
+	@Scheduled(fixedDelay = 30_000, initialDelay = 30_000)
+	public synchronized void reconcile() {
+		var store = current;
+		var cursor = reconciledUntil;
+		if (store == null || cursor == null) {
+			return;
+		}
+		var now = Instant.now();
+		if (cursor.modifiedDate()
+		          .isBefore(now.minus(changes.getTombstoneRetention()))) {
+			load();
+			return;
+		}
+		try {
+			var applied = 0;
+			while (true) {
+				var page = bookRepository.findChanges(cursor, now.minus(changes.getSettleTime()), changes.getMaxSize());
+				for (var change : page) {
+					switch (change.type()) {
+						case UPSERTED -> store.putIfNotOlder(change.book());
+						case DELETED -> store.removeIfNotModifiedAfter(change.isbn(), change.modifiedDate());
+					}
+				}
+				applied += page.size();
+				if (!page.isEmpty()) {
+					cursor = BookChangeCursor.after(page.get(page.size() - 1));
+					reconciledUntil = cursor;
+				}
+				if (page.size() < changes.getMaxSize()) {
+					break;
+				}
+			}
+			log.debug("Reconciled the in-memory catalog with {} changes", applied);
+		} catch (RuntimeException exception) {
+			log.warn("Could not reconcile the in-memory catalog, retrying later: {}", exception.getMessage());
+		}
+	}
+
+	/**
+	 * Loads every book from the primary into a new store and swaps it in. Books changed while the
+	 * catalog is being read are applied to both stores, and a book read from the database never replaces a more
+	 * recent one, so none is lost in the swap. The change feed is then reconciled from the settle
+	 * time before the load, to catch the transactions that committed during it.
+	 */
+	synchronized void load() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		try {
+			var started = Instant.now();
+			var count = bookRepository.count();
+			var store = new PackedBookStore((int) Math.min(count + count / 8, PackedBookStore.MAX_EXPECTED_BOOKS));
+			next = store;
+			changedIsbns.clear();
+			bookRepository.forEachBook(store::putIfNotOlder);
+			reconciledUntil = new BookChangeCursor(started.minus(changes.getSettleTime()), 0);
+			current = store;
+			log.info("Loaded the {} books of the catalog into {} MB of memory", store.size(), store.retainedBytes() / 1_000_000);
+		} catch (RuntimeException exception) {
+			log.warn("Could not load the catalog into memory, lookups will query the database: {}", exception.getMessage());
+		} finally {
+			next = null;
+		}
+	}
+
+	private void putIfNotOlder(Book book) {
+		var store = current;
+		if (store != null) {
+			store.putIfNotOlder(book);
+		}
+		var nextStore = next;
+		if (nextStore != null) {
+			nextStore.putIfNotOlder(book);
+		}
+	}
+}
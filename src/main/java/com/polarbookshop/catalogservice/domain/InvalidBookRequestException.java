@@ -0,0 +1,7 @@
+package com.polarbookshop.catalogservice.domain;
+
+public class InvalidBookRequestException extends RuntimeException {
+	public InvalidBookRequestException(String message) {
+		super(message);
+	}
+}
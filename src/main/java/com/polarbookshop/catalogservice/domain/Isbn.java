@@ -0,0 +1,133 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * ISBN checksums, the canonical ISBN-13 form, and the numeric key of the {@code isbn_key} column,
+ * computed without allocating so that validating and looking up books stays cheap.
+ */
+public final class Isbn {
+
+	/**
+	 * Key of a string that is not a 10 or 13 digit ISBN, which no book has.
+	 */
+	static final long NO_KEY = Long.MIN_VALUE;
+
+	// 9, 7 and 8 weighted 1, 3 and 1: the sum of the 978 prefix in an ISBN-13 checksum
+	private static final int PREFIX_978_SUM = 38;
+
+	private Isbn() {}
+
+	/**
+	 * Whether the ISBN is 10 digits, the last of which may be X, or 13 digits, with a valid checksum.
+	 */
+	public static boolean isValid(@Nullable CharSequence isbn) {
+		if (isbn == null) {
+			return false;
+		}
+		return switch (isbn.length()) {
+			case 10 -> isbn10Checksum(isbn) == 0;
+			case 13 -> isbn13Checksum(isbn) == 0;
+			default -> false;
+		};
+	}
+
+	/**
+	 * Returns the ISBN-13 of a valid ISBN-10, and any other string unchanged.
+	 */
+	@Nullable
+	public static String normalize(@Nullable String isbn) {
+		if (isbn == null || isbn.length() != 10 || isbn10Checksum(isbn) != 0) {
+			return isbn;
+		}
+		return Long.toString(isbn13Key(isbn));
+	}
+
+	/**
+	 * Returns the value of the {@code isbn_key} column for the ISBN, as computed by the
+	 * {@code isbn_key} function of the database: the number of an ISBN-13, the number of the
+	 * ISBN-13 of a valid ISBN-10, the negated number of an invalid 10-digit ISBN stored before
+	 * checksums were validated, or {@link #NO_KEY} for anything else.
+	 */
+	public static long key(@Nullable String isbn) {
+		if (isbn == null) {
+			return NO_KEY;
+		}
+		if (isbn.length() == 13) {
+			var number = digits(isbn);
+			return number >= 0 ? number : NO_KEY;
+		}
+		if (isbn.length() != 10) {
+			return NO_KEY;
+		}
+		if (isbn10Checksum(isbn) == 0) {
+			return isbn13Key(isbn);
+		}
+		var number = digits(isbn);
+		return number >= 0 ? -number : NO_KEY;
+	}
+
+	/**
+	 * The number of the ISBN-13 with the 978 prefix and the first 9 digits of the ISBN-10.
+	 */
+	private static long isbn13Key(CharSequence isbn10) {
+		var number = 978L;
+		var sum = PREFIX_978_SUM;
+		for (var i = 0; i < 9; i++) {
+			var digit = isbn10.charAt(i) - '0';
+			number = number * 10 + digit;
+			sum += digit * (i % 2 == 0 ? 3 : 1);
+		}
+		return number * 10 + (10 - sum % 10) % 10;
+	}
+
+	/**
+	 * The remainder modulo 11 of the ISBN-10 weighted sum, zero when valid, or -1 when malformed.
+	 */
+	private static int isbn10Checksum(CharSequence isbn) {
+		var sum = 0;
+		for (var i = 0; i < 10; i++) {
+			var c = isbn.charAt(i);
+			int digit;
+			if (c >= '0' && c <= '9') {
+				digit = c - '0';
+			} else if (c == 'X' && i == 9) {
+				digit = 10;
+			} else {
+				return -1;
+			}
+			sum += digit * (10 - i);
+		}
+		return sum % 11;
+	}
+
+	/**
+	 * The remainder modulo 10 of the ISBN-13 weighted sum, zero when valid, or -1 when malformed.
+	 */
+	private static int isbn13Checksum(CharSequence isbn) {
+		var sum = 0;
+		for (var i = 0; i < 13; i++) {
+			var c = isbn.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			sum += (c - '0') * (i % 2 == 0 ? 1 : 3);
+		}
+		return sum % 10;
+	}
+
+	/**
+	 * The number of a string of digits, or -1 if it has any other character.
+	 */
+	private static long digits(CharSequence isbn) {
+		var number = 0L;
+		for (var i = 0; i < isbn.length(); i++) {
+			var c = isbn.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			number = number * 10 + (c - '0');
+		}
+		return number;
+	}
+}
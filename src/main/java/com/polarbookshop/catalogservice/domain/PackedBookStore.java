@@ -0,0 +1,473 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Books held in primitive arrays, for the in-memory catalog. An open-addressing table maps the
+ * ISBN, read as a number, to the index of the book in parallel arrays of its fields. Titles and
+ * authors are UTF-8 bytes in one shared array, and each distinct author is stored once. There is
+ * no object per book: a {@link Book} is only created when one is read.
+ * <p>
+ * Writes are serialized by a lock. Reads are optimistic: they copy the fields of the book
+ * without locking, and only read again under the lock if a write happened meanwhile. The text of
+ * a book is never overwritten in place, so it can be decoded once the copy has been validated.
+ */
+final class PackedBookStore {
+
+	private static final long ISBN_10 = 1L << 60;
+	private static final long ISBN_13 = 1L << 61;
+	private static final long NO_DATE = Long.MIN_VALUE;
+	private static final long NO_ID = Long.MIN_VALUE;
+	private static final int MIN_CAPACITY = 16;
+	private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+	private static final int TEXT_PER_BOOK = 32;
+
+	/**
+	 * The most books a store is sized for up front, that is as many as get their share of the
+	 * largest text array; a store may still grow past it.
+	 */
+	static final int MAX_EXPECTED_BOOKS = MAX_ARRAY_LENGTH / TEXT_PER_BOOK;
+
+	private final StampedLock lock = new StampedLock();
+
+	// ISBN keys to book indexes, with linear probing; a key of 0 marks a free slot
+	private long[] slotKeys;
+	private int[] slotBooks;
+
+	// Fields of the books, by index; a key of 0 marks a deleted book
+	private long[] keys;
+	private long[] ids;
+	private double[] prices;
+	private int[] versions;
+	private long[] createdDates;
+	private long[] lastModifiedDates;
+	private int[] titleOffsets;
+	private int[] titleLengths;
+	private int[] authors;
+	private int bookCount;
+	private int[] freeBooks = new int[MIN_CAPACITY];
+	private int freeCount;
+
+	// Distinct authors, found through their own open-addressing table of author index + 1
+	private int[] authorOffsets;
+	private int[] authorLengths;
+	private int[] authorSlots;
+	private int authorCount;
+
+	private byte[] text;
+	private int textLength;
+	private long unusedText;
+
+	PackedBookStore(int expectedBooks) {
+		allocate(Math.max(MIN_CAPACITY, Math.min(expectedBooks, MAX_EXPECTED_BOOKS)));
+	}
+
+	/**
+	 * Returns the number the ISBN is stored under, or 0 if it is not made of 10 or 13 digits.
+	 * The length is part of the key, so that ISBNs with leading zeros stay distinct.
+	 */
+	static long key(String isbn) {
+		var length = isbn.length();
+		if (length != 10 && length != 13) {
+			return 0;
+		}
+		var value = 0L;
+		for (var i = 0; i < length; i++) {
+			var digit = isbn.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return 0;
+			}
+			value = value * 10 + digit;
+		}
+		return value | (length == 10 ? ISBN_10 : ISBN_13);
+	}
+
+	static String isbn(long key) {
+		var digits = Long.toString(key & (ISBN_10 - 1));
+		var length = (key & ISBN_10) != 0 ? 10 : 13;
+		return "0".repeat(length - digits.length()) + digits;
+	}
+
+	@Nullable
+	Book get(String isbn) {
+		var key = key(isbn);
+		if (key == 0) {
+			return null;
+		}
+		var stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				var copy = copy(key);
+				if (lock.validate(stamp)) {
+					return copy != null ? copy.toBook(isbn) : null;
+				}
+			} catch (RuntimeException exception) {
+				// Arrays resized by a concurrent write, read again under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			var copy = copy(key);
+			return copy != null ? copy.toBook(isbn) : null;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	void put(Book book) {
+		var key = key(book.isbn());
+		if (key == 0) {
+			return;
+		}
+		var stamp = lock.writeLock();
+		try {
+			putLocked(key, book);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Stores the book unless the stored one was modified later, so that a change read from the
+	 * database before a more recent local write does not undo it.
+	 */
+	void putIfNotOlder(Book book) {
+		var key = key(book.isbn());
+		if (key == 0) {
+			return;
+		}
+		var stamp = lock.writeLock();
+		try {
+			var index = find(key);
+			if (index < 0 || lastModifiedDates[index] <= micros(book.lastModifiedDate())) {
+				putLocked(key, book);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	void remove(String isbn) {
+		removeIfNotModifiedAfter(isbn, null);
+	}
+
+	/**
+	 * Removes the book unless it was modified after the given date, i.e. created again after
+	 * the deletion. Without a date the book is always removed.
+	 */
+	void removeIfNotModifiedAfter(String isbn, @Nullable Instant date) {
+		var key = key(isbn);
+		if (key == 0) {
+			return;
+		}
+		var stamp = lock.writeLock();
+		try {
+			var slot = slot(key);
+			if (slotKeys[slot] == 0) {
+				return;
+			}
+			var index = slotBooks[slot];
+			if (date != null && lastModifiedDates[index] > micros(date)) {
+				return;
+			}
+			deleteSlot(slot);
+			unusedText += titleLengths[index];
+			keys[index] = 0;
+			if (freeCount == freeBooks.length) {
+				freeBooks = Arrays.copyOf(freeBooks, freeCount * 2);
+			}
+			freeBooks[freeCount++] = index;
+			compactIfWasteful();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	int size() {
+		return bookCount - freeCount;
+	}
+
+	/**
+	 * Bytes held by the arrays, as an estimate of the heap used by the catalog.
+	 */
+	long retainedBytes() {
+		var stamp = lock.readLock();
+		try {
+			return slotKeys.length * 12L + keys.length * 56L + authorOffsets.length * 8L + authorSlots.length * 4L
+					+ text.length + freeBooks.length * 4L;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private void putLocked(long key, Book book) {
+		var slot = slot(key);
+		int index;
+		if (slotKeys[slot] != 0) {
+			index = slotBooks[slot];
+			unusedText += titleLengths[index];
+		} else {
+			index = freeCount > 0 ? freeBooks[--freeCount] : bookCount++;
+			if (index == keys.length) {
+				growBooks();
+			}
+			if ((long) (size() + 1) * 4 > slotKeys.length * 3L) {
+				growSlots();
+			}
+			slot = slot(key);
+			slotKeys[slot] = key;
+			slotBooks[slot] = index;
+		}
+		var title = book.title()
+		                .getBytes(StandardCharsets.UTF_8);
+		keys[index] = key;
+		ids[index] = book.id() != null ? book.id() : NO_ID;
+		prices[index] = book.price() != null ? book.price() : Double.NaN;
+		versions[index] = book.version();
+		createdDates[index] = micros(book.createdDate());
+		lastModifiedDates[index] = micros(book.lastModifiedDate());
+		titleOffsets[index] = append(title);
+		titleLengths[index] = title.length;
+		authors[index] = author(book.author());
+		compactIfWasteful();
+	}
+
+	@Nullable
+	private Copy copy(long key) {
+		var slotKeys = this.slotKeys;
+		var slotBooks = this.slotBooks;
+		var mask = slotKeys.length - 1;
+		var slot = hash(key) & mask;
+		for (var probes = 0; probes <= mask; probes++) {
+			var slotKey = slotKeys[slot];
+			if (slotKey == 0) {
+				return null;
+			}
+			if (slotKey == key) {
+				return copyOf(slotBooks[slot]);
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	private int find(long key) {
+		var slot = slot(key);
+		return slotKeys[slot] != 0 ? slotBooks[slot] : -1;
+	}
+
+	/**
+	 * Returns the slot holding the key, or the free slot ending its probe sequence.
+	 */
+	private int slot(long key) {
+		var mask = slotKeys.length - 1;
+		var slot = hash(key) & mask;
+		while (slotKeys[slot] != 0 && slotKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Frees the slot by shifting back the following keys of the cluster that probed past it, so
+	 * that no tombstones are needed.
+	 */
+	private void deleteSlot(int slot) {
+		var mask = slotKeys.length - 1;
+		var hole = slot;
+		for (var next = (slot + 1) & mask; slotKeys[next] != 0; next = (next + 1) & mask) {
+			var home = hash(slotKeys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				slotKeys[hole] = slotKeys[next];
+				slotBooks[hole] = slotBooks[next];
+				hole = next;
+			}
+		}
+		slotKeys[hole] = 0;
+	}
+
+	private int author(String author) {
+		var bytes = author.getBytes(StandardCharsets.UTF_8);
+		var mask = authorSlots.length - 1;
+		var slot = Arrays.hashCode(bytes) & mask;
+		for (; authorSlots[slot] != 0; slot = (slot + 1) & mask) {
+			var candidate = authorSlots[slot] - 1;
+			if (Arrays.equals(text, authorOffsets[candidate], authorOffsets[candidate] + authorLengths[candidate], bytes, 0,
+			                  bytes.length)) {
+				return candidate;
+			}
+		}
+		if (authorCount == authorOffsets.length) {
+			authorOffsets = Arrays.copyOf(authorOffsets, authorCount * 2);
+			authorLengths = Arrays.copyOf(authorLengths, authorCount * 2);
+		}
+		var index = authorCount++;
+		authorOffsets[index] = append(bytes);
+		authorLengths[index] = bytes.length;
+		authorSlots[slot] = index + 1;
+		if ((long) authorCount * 4 > authorSlots.length * 3L) {
+			rehashAuthors(authorSlots.length * 2);
+		}
+		return index;
+	}
+
+	private int append(byte[] bytes) {
+		if (textLength + (long) bytes.length > text.length) {
+			text = Arrays.copyOf(text, textCapacity(textLength + (long) bytes.length, text.length + (long) (text.length >> 1)));
+		}
+		var offset = textLength;
+		System.arraycopy(bytes, 0, text, offset, bytes.length);
+		textLength += bytes.length;
+		return offset;
+	}
+
+	/**
+	 * Rewrites the text without the titles of updated and deleted books, once they take half of it.
+	 */
+	private void compactIfWasteful() {
+		if (unusedText * 2 <= textLength || textLength < 1 << 16) {
+			return;
+		}
+		var books = new Book[size()];
+		var count = 0;
+		for (var index = 0; index < bookCount; index++) {
+			if (keys[index] != 0) {
+				books[count++] = copyOf(index).toBook(isbn(keys[index]));
+			}
+		}
+		allocate(Math.max(MIN_CAPACITY, count));
+		for (var book : books) {
+			putLocked(key(book.isbn()), book);
+		}
+	}
+
+	private Copy copyOf(int index) {
+		var author = authors[index];
+		return new Copy(ids[index], prices[index], versions[index], createdDates[index], lastModifiedDates[index], text,
+		                titleOffsets[index], titleLengths[index], authorOffsets[author], authorLengths[author]);
+	}
+
+	private void allocate(int capacity) {
+		slotKeys = new long[tableSize(capacity)];
+		slotBooks = new int[slotKeys.length];
+		keys = new long[capacity];
+		ids = new long[capacity];
+		prices = new double[capacity];
+		versions = new int[capacity];
+		createdDates = new long[capacity];
+		lastModifiedDates = new long[capacity];
+		titleOffsets = new int[capacity];
+		titleLengths = new int[capacity];
+		authors = new int[capacity];
+		bookCount = 0;
+		freeCount = 0;
+		authorOffsets = new int[MIN_CAPACITY];
+		authorLengths = new int[MIN_CAPACITY];
+		authorSlots = new int[tableSize(MIN_CAPACITY)];
+		authorCount = 0;
+		text = new byte[textCapacity(0, (long) capacity * TEXT_PER_BOOK)];
+		textLength = 0;
+		unusedText = 0;
+	}
+
+	private void growBooks() {
+		var capacity = keys.length * 2;
+		keys = Arrays.copyOf(keys, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+		prices = Arrays.copyOf(prices, capacity);
+		versions = Arrays.copyOf(versions, capacity);
+		createdDates = Arrays.copyOf(createdDates, capacity);
+		lastModifiedDates = Arrays.copyOf(lastModifiedDates, capacity);
+		titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+		titleLengths = Arrays.copyOf(titleLengths, capacity);
+		authors = Arrays.copyOf(authors, capacity);
+	}
+
+	private void growSlots() {
+		var oldKeys = slotKeys;
+		var oldBooks = slotBooks;
+		slotKeys = new long[oldKeys.length * 2];
+		slotBooks = new int[slotKeys.length];
+		for (var i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				var slot = slot(oldKeys[i]);
+				slotKeys[slot] = oldKeys[i];
+				slotBooks[slot] = oldBooks[i];
+			}
+		}
+	}
+
+	private void rehashAuthors(int size) {
+		authorSlots = new int[size];
+		var mask = size - 1;
+		for (var index = 0; index < authorCount; index++) {
+			var slot = hashText(authorOffsets[index], authorLengths[index]) & mask;
+			while (authorSlots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			authorSlots[slot] = index + 1;
+		}
+	}
+
+	/**
+	 * Same hash as {@link Arrays#hashCode(byte[])} over a range of the text.
+	 */
+	private int hashText(int offset, int length) {
+		var hash = 1;
+		for (var i = offset; i < offset + length; i++) {
+			hash = 31 * hash + text[i];
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the length of a text array holding at least {@code required} bytes and, as far as
+	 * the largest array allows, {@code wanted} bytes.
+	 */
+	static int textCapacity(long required, long wanted) {
+		if (required > MAX_ARRAY_LENGTH) {
+			throw new IllegalStateException("The text of the catalog does not fit in " + MAX_ARRAY_LENGTH + " bytes.");
+		}
+		return (int) Math.min(Math.max(required, wanted), MAX_ARRAY_LENGTH);
+	}
+
+	private static int tableSize(int capacity) {
+		return Integer.highestOneBit(Math.max(MIN_CAPACITY, capacity * 4 / 3) - 1) << 1;
+	}
+
+	private static int hash(long key) {
+		var hash = key * 0x9e3779b97f4a7c15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private static long micros(@Nullable Instant instant) {
+		if (instant == null) {
+			return NO_DATE;
+		}
+		return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1000);
+	}
+
+	@Nullable
+	private static Instant instant(long micros) {
+		return micros != NO_DATE ? Instant.EPOCH.plus(micros, ChronoUnit.MICROS) : null;
+	}
+
+	/**
+	 * The fields of a book copied out of the arrays, decoded into a {@link Book} once the copy is known to be consistent.
+	 */
+	private record Copy(long id, double price, int version, long createdDate, long lastModifiedDate, byte[] text,
+	                    int titleOffset, int titleLength, int authorOffset, int authorLength) {
+
+		Book toBook(String isbn) {
+			return new Book(id != NO_ID ? id : null, isbn, new String(text, titleOffset, titleLength, StandardCharsets.UTF_8),
+			                new String(text, authorOffset, authorLength, StandardCharsets.UTF_8), Double.isNaN(price) ? null : price,
+			                version, instant(createdDate), instant(lastModifiedDate));
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.polarbookshop.catalogservice.domain;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the load, and the callers
+ * asking for the key while it is in flight wait for it and receive its value or its exception.
+ * Nothing is kept once the load completes, so it adds no staleness on top of the cache. Values
+ * may be {@code null}, e.g. for a book that does not exist.
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final Counter coalesced;
+
+	public SingleFlight(Counter coalesced) {
+		this.coalesced = coalesced;
+	}
+
+	@Nullable
+	public V execute(K key, Supplier<V> loader) {
+		var future = new CompletableFuture<V>();
+		var existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			coalesced.increment();
+			return join(existing);
+		}
+		try {
+			var value = loader.get();
+			future.complete(value);
+			return value;
+		} catch (RuntimeException | Error exception) {
+			future.completeExceptionally(exception);
+			throw exception;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	/**
+	 * Loads the keys not in flight with one call of the loader, which returns the values found,
+	 * and waits for the others. The keys with no value are left out of the result. The loads of
+	 * the other callers are only waited for once this one completes, so that two callers sharing
+	 * keys never wait for each other.
+	 */
+	public Map<K, V> executeAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+		var owned = new LinkedHashMap<K, CompletableFuture<V>>();
+		var joined = new HashMap<K, CompletableFuture<V>>();
+		for (var key : keys) {
+			var future = new CompletableFuture<V>();
+			var existing = inFlight.putIfAbsent(key, future);
+			if (existing == null) {
+				owned.put(key, future);
+			} else if (!owned.containsKey(key)) {
+				coalesced.increment();
+				joined.put(key, existing);
+			}
+		}
+		var values = new HashMap<K, V>();
+		if (!owned.isEmpty()) {
+			try {
+				var loaded = loader.apply(new ArrayList<>(owned.keySet()));
+				owned.forEach((key, future) -> future.complete(loaded.get(key)));
+				values.putAll(loaded);
+			} catch (RuntimeException | Error exception) {
+				owned.values()
+				     .forEach(future -> future.completeExceptionally(exception));
+				throw exception;
+			} finally {
+				owned.forEach(inFlight::remove);
+			}
+		}
+		joined.forEach((key, future) -> {
+			var value = join(future);
+			if (value != null) {
+				values.put(key, value);
+			}
+		});
+		return values;
+	}
+
+	private static <V> V join(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException exception) {
+			if (exception.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (exception.getCause() instanceof Error cause) {
+				throw cause;
+			}
+			throw exception;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.polarbookshop.catalogservice.domain;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated string must be an ISBN-10 or ISBN-13 with a valid checksum, see {@link Isbn#isValid}.
+ * A {@code null} value is valid.
+ */
+@Documented
+@Constraint(validatedBy = ValidIsbnValidator.class)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER, ElementType.RECORD_COMPONENT})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ValidIsbn {
+
+	String message() default "The ISBN format must be valid: a 10 or 13 digit number.";
+
+	Class<?>[] groups() default {};
+
+	Class<? extends Payload>[] payload() default {};
+}
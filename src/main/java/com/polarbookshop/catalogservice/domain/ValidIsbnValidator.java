@@ -0,0 +1,12 @@
+package com.polarbookshop.catalogservice.domain;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class ValidIsbnValidator implements ConstraintValidator<ValidIsbn, CharSequence> {
+
+	@Override
+	public boolean isValid(CharSequence isbn, ConstraintValidatorContext context) {
+		return isbn == null || Isbn.isValid(isbn);
+	}
+}
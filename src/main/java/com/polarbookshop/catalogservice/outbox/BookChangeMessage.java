@@ -0,0 +1,13 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+
+import java.time.Instant;
+
+/**
+ * A book change as published to the sink: the book as it was after the change, or just before
+ * it was deleted. The id increases with every change, and the version of the book orders the
+ * changes of one book, since messages may be delivered more than once.
+ */
+public record BookChangeMessage(long id, BookChangedEvent.Type type, Book book, Instant occurredDate) {}
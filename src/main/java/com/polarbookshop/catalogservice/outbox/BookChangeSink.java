@@ -0,0 +1,12 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import java.util.List;
+
+/**
+ * Destination of the book changes drained from the outbox. A batch is deleted from the outbox
+ * only once {@link #publish(List)} returns, so throwing makes the whole batch be published again.
+ */
+public interface BookChangeSink {
+
+	void publish(List<BookChangeMessage> messages);
+}
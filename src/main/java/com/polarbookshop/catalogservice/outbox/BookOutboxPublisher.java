@@ -0,0 +1,141 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Drains the {@code book_outbox} table, filled by a trigger in the transaction of every book
+ * change, to the {@link BookChangeSink} in batches. Each batch is claimed for a while in one
+ * short statement, so that replicas drain the outbox side by side, then published outside of any
+ * transaction, so that a slow sink holds neither locks nor a connection, and deleted in another
+ * short statement. A batch is published again if anything fails before its deletion, by this
+ * replica right away or by any once the claim has expired: delivery is at least once.
+ */
+@Slf4j
+public class BookOutboxPublisher {
+
+	private static final String CLAIM_BATCH = """
+			update book_outbox set claimed_until = localtimestamp + make_interval(secs => ?)
+			where id in (select id from book_outbox
+			             where claimed_until is null or claimed_until < localtimestamp
+			             order by id limit ? for update skip locked)
+			returning *
+			""";
+
+	private static final String RELEASE_BATCH = "update book_outbox set claimed_until = null where id = any(?)";
+
+	private static final String DELETE_BATCH = "delete from book_outbox where id = any(?)";
+
+	private static final RowMapper<BookChangeMessage> MESSAGE_MAPPER = (rs, rowNum) -> new BookChangeMessage(
+			rs.getLong("id"),
+			BookChangedEvent.Type.valueOf(rs.getString("change_type")),
+			new Book(rs.getLong("book_id"), rs.getString("isbn"), rs.getString("title"), rs.getString("author"),
+			         rs.getDouble("price"), rs.getInt("version"), rs.getTimestamp("created_date")
+			                                                        .toInstant(),
+			         rs.getTimestamp("last_modified_date")
+			           .toInstant()),
+			rs.getTimestamp("occurred_date")
+			  .toInstant());
+
+	private final JdbcTemplate jdbcTemplate;
+	private final BookChangeSink sink;
+	private final int batchSize;
+	private final double claimSeconds;
+	private final Counter published;
+	private final Counter failures;
+	private final Timer publishTime;
+	private final Timer lag;
+
+	public BookOutboxPublisher(JdbcTemplate jdbcTemplate, BookChangeSink sink, PolarProperties.Outbox properties,
+	                           MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.sink = sink;
+		this.batchSize = properties.getBatchSize();
+		this.claimSeconds = properties.getClaimTime()
+		                              .toMillis() / 1000.0;
+		this.published = Counter.builder("books.outbox.published")
+		                        .description("Book changes published from the outbox")
+		                        .register(meterRegistry);
+		this.failures = Counter.builder("books.outbox.failures")
+		                       .description("Outbox batches that could not be published and will be retried")
+		                       .register(meterRegistry);
+		this.publishTime = Timer.builder("books.outbox.publish")
+		                        .description("Time the sink takes to publish one batch of the outbox")
+		                        .register(meterRegistry);
+		this.lag = Timer.builder("books.outbox.lag")
+		                .description("Time from a book change to its publication")
+		                .publishPercentileHistogram()
+		                .register(meterRegistry);
+	}
+
+	/**
+	 * Publishes batches until the outbox is drained or a batch fails.
+	 */
+	@Scheduled(fixedDelay = 1000, initialDelay = 1000)
+	public void publishPending() {
+		try {
+			while (publishBatch() == batchSize) {
+				// Keep draining
+			}
+		} catch (RuntimeException exception) {
+			failures.increment();
+			log.warn("Could not publish the book changes, retrying later: {}", exception.getMessage());
+		}
+	}
+
+	/**
+	 * Publishes and deletes the oldest batch not claimed by another replica, returning its size.
+	 * A batch the sink fails to publish is released, to be taken again on the next run.
+	 */
+	int publishBatch() {
+		var messages = jdbcTemplate.query(CLAIM_BATCH, MESSAGE_MAPPER, claimSeconds, batchSize)
+		                           .stream()
+		                           .sorted(Comparator.comparingLong(BookChangeMessage::id))
+		                           .toList();
+		if (messages.isEmpty()) {
+			return 0;
+		}
+		var ids = ids(messages);
+		try {
+			publishTime.record(() -> sink.publish(messages));
+		} catch (RuntimeException exception) {
+			try {
+				jdbcTemplate.update(RELEASE_BATCH, ids);
+			} catch (RuntimeException releaseException) {
+				exception.addSuppressed(releaseException);
+			}
+			throw exception;
+		}
+		jdbcTemplate.update(DELETE_BATCH, ids);
+		recordPublished(messages);
+		return messages.size();
+	}
+
+	private static PreparedStatementSetter ids(List<BookChangeMessage> messages) {
+		var ids = messages.stream()
+		                  .map(BookChangeMessage::id)
+		                  .toArray(Long[]::new);
+		return statement -> statement.setArray(1, statement.getConnection()
+		                                                   .createArrayOf("bigint", ids));
+	}
+
+	private void recordPublished(List<BookChangeMessage> messages) {
+		var now = Instant.now();
+		published.increment(messages.size());
+		messages.forEach(message -> lag.record(Duration.between(message.occurredDate(), now)));
+	}
+}
@@ -0,0 +1,51 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends the messages to a file as NDJSON, one batch per write, and forces them to disk before
+ * the batch is deleted from the outbox.
+ */
+public class FileBookChangeSink implements BookChangeSink {
+
+	private final Path file;
+	private final ObjectWriter writer;
+
+	public FileBookChangeSink(Path file, ObjectWriter writer) {
+		this.file = file;
+		this.writer = writer;
+	}
+
+	@Override
+	public synchronized void publish(List<BookChangeMessage> messages) {
+		try {
+			var batch = new ByteArrayOutputStream();
+			for (var message : messages) {
+				batch.write(writer.writeValueAsBytes(message));
+				batch.write('\n');
+			}
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				var buffer = ByteBuffer.wrap(batch.toByteArray());
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			}
+		} catch (IOException exception) {
+			throw new UncheckedIOException("Could not append the book changes to " + file, exception);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Posts each batch as one NDJSON request, for instance to the HTTP bridge of a message broker.
+ * Any response but a 2xx fails the batch, which is then published again.
+ */
+public class HttpBookChangeSink implements BookChangeSink {
+
+	private final URI url;
+	private final RestTemplate restTemplate;
+	private final ObjectWriter writer;
+
+	public HttpBookChangeSink(URI url, RestTemplate restTemplate, ObjectWriter writer) {
+		this.url = url;
+		this.restTemplate = restTemplate;
+		this.writer = writer;
+	}
+
+	@Override
+	public void publish(List<BookChangeMessage> messages) {
+		var body = new ByteArrayOutputStream();
+		try {
+			for (var message : messages) {
+				body.write(writer.writeValueAsBytes(message));
+				body.write('\n');
+			}
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		restTemplate.exchange(RequestEntity.post(url)
+		                                   .contentType(MediaType.APPLICATION_NDJSON)
+		                                   .body(body.toByteArray()), Void.class);
+	}
+}
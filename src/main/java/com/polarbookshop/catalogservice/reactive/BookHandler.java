@@ -0,0 +1,350 @@
+package com.polarbookshop.catalogservice.reactive;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookAlreadyExistsException;
+import com.polarbookshop.catalogservice.domain.BookChangeCursor;
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import com.polarbookshop.catalogservice.domain.BookChangesExpiredException;
+import com.polarbookshop.catalogservice.domain.BookCursor;
+import com.polarbookshop.catalogservice.domain.BookExportUnavailableException;
+import com.polarbookshop.catalogservice.domain.BookIsbnFilter;
+import com.polarbookshop.catalogservice.domain.BookLookup;
+import com.polarbookshop.catalogservice.domain.BookNotFoundException;
+import com.polarbookshop.catalogservice.domain.BookPrecondition;
+import com.polarbookshop.catalogservice.domain.BookSearchQuery;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import com.polarbookshop.catalogservice.domain.BookSuggestionIndex;
+import com.polarbookshop.catalogservice.domain.BookVersionMismatchException;
+import com.polarbookshop.catalogservice.domain.InvalidBookRequestException;
+import com.polarbookshop.catalogservice.domain.Isbn;
+import com.polarbookshop.catalogservice.web.BookETags;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handlers of the book routes on the reactive stack, with the same contract as
+ * {@link com.polarbookshop.catalogservice.web.BookController}. Book changes are published as
+ * {@link BookChangedEvent}s like {@link com.polarbookshop.catalogservice.domain.BookService} does,
+ * so that the cache and the ISBN filter stay up to date, and the suggestion index is updated
+ * in place.
+ */
+@RequiredArgsConstructor
+public class BookHandler {
+
+	private final ReactiveBookRepository bookRepository;
+	private final PolarProperties polarProperties;
+	private final Validator validator;
+	private final ApplicationEventPublisher eventPublisher;
+	private final BookIsbnFilter bookIsbnFilter;
+	private final BookSuggestionIndex bookSuggestionIndex;
+
+	private final AtomicInteger runningExports = new AtomicInteger();
+
+	public Mono<ServerResponse> getBooks(ServerRequest request) {
+		var pageSize = pageSize(request.queryParam("limit")
+		                               .map(BookHandler::parseLimit)
+		                               .orElse(null));
+		var after = request.queryParam("cursor")
+		                   .map(BookCursor::decode)
+		                   .orElse(null);
+		var sort = after != null ? after.sort() : BookSort.parse(request.queryParam("sort")
+		                                                                .orElse("id"));
+		return bookRepository.findPage(sort, after != null ? after.lastKey() : null, request.queryParam("author")
+		                                                                                     .orElse(null), pageSize + 1)
+		                     .collectList()
+		                     .flatMap(books -> {
+			                     if (books.size() <= pageSize) {
+				                     return ServerResponse.ok()
+				                                          .bodyValue(books);
+			                     }
+			                     var page = books.subList(0, pageSize);
+			                     var nextPage = UriComponentsBuilder.fromUri(request.uri())
+			                                                        .replaceQueryParam("cursor", BookCursor.after(sort, page.get(pageSize - 1))
+			                                                                                               .encode())
+			                                                        .toUriString();
+			                     return ServerResponse.ok()
+			                                          .header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"")
+			                                          .bodyValue(page);
+		                     });
+	}
+
+	public Mono<ServerResponse> searchBooks(ServerRequest request) {
+		var search = polarProperties.getSearch();
+		var query = BookSearchQuery.parse(request.queryParam("q")
+		                                         .orElseThrow(() -> new InvalidBookRequestException("The search query q is missing.")),
+		                                  search.getMaxTerms());
+		var pageSize = pageSize(request.queryParam("limit")
+		                               .map(BookHandler::parseLimit)
+		                               .orElse(null));
+		var pageNumber = request.queryParam("page")
+		                        .map(BookHandler::parsePage)
+		                        .orElse(0);
+		var offset = (long) pageNumber * pageSize;
+		if (offset >= search.getMaxResults()) {
+			return ServerResponse.ok()
+			                     .bodyValue(List.of());
+		}
+		return bookRepository.search(query, (int) offset, Math.min(pageSize + 1, search.getMaxResults() - (int) offset), search.getMaxResults())
+		                     .collectList()
+		                     .flatMap(books -> {
+			                     if (books.size() <= pageSize) {
+				                     return ServerResponse.ok()
+				                                          .bodyValue(books);
+			                     }
+			                     var nextPage = UriComponentsBuilder.fromUri(request.uri())
+			                                                        .replaceQueryParam("page", pageNumber + 1)
+			                                                        .toUriString();
+			                     return ServerResponse.ok()
+			                                          .header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"")
+			                                          .bodyValue(books.subList(0, pageSize));
+		                     });
+	}
+
+	public Mono<ServerResponse> getChanges(ServerRequest request) {
+		var changes = polarProperties.getChanges();
+		var pageSize = request.queryParam("limit")
+		                      .map(BookHandler::parseLimit)
+		                      .map(limit -> pageSize(limit, changes.getDefaultSize(), changes.getMaxSize()))
+		                      .orElse(changes.getDefaultSize());
+		var since = request.queryParam("since");
+		var after = since.map(BookChangeCursor::decode)
+		                 .orElse(new BookChangeCursor(Instant.EPOCH, 0));
+		var now = Instant.now();
+		if (since.isPresent() && after.modifiedDate()
+		                              .isBefore(now.minus(changes.getTombstoneRetention()))) {
+			throw new BookChangesExpiredException(after.modifiedDate());
+		}
+		return bookRepository.findChanges(after, now.minus(changes.getSettleTime()), pageSize)
+		                     .collectList()
+		                     .flatMap(page -> {
+			                     var next = page.isEmpty() ? after : BookChangeCursor.after(page.get(page.size() - 1));
+			                     var nextPage = UriComponentsBuilder.fromUri(request.uri())
+			                                                        .replaceQueryParam("since", next.encode())
+			                                                        .toUriString();
+			                     return ServerResponse.ok()
+			                                          .header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"")
+			                                          .bodyValue(page);
+		                     });
+	}
+
+	public Mono<ServerResponse> suggestBooks(ServerRequest request) {
+		var prefix = request.queryParam("prefix")
+		                    .orElseThrow(() -> new InvalidBookRequestException("The prefix is missing."));
+		var limit = request.queryParam("limit")
+		                   .map(BookHandler::parseLimit)
+		                   .orElse(null);
+		return ServerResponse.ok()
+		                     .bodyValue(bookSuggestionIndex.suggest(prefix, limit));
+	}
+
+	/**
+	 * Streams the catalog as NDJSON, or as a JSON array when only {@code application/json} is
+	 * acceptable. Rows are fetched from the database as the client consumes the response. The
+	 * export slot is taken when the body is subscribed to and given back when it ends, so that a
+	 * response never written holds none; a refused export fails before anything is written.
+	 */
+	public Mono<ServerResponse> exportBooks(ServerRequest request) {
+		var sort = BookSort.parse(request.queryParam("sort")
+		                                 .orElse("id"));
+		var after = request.queryParam("after")
+		                   .orElse(null);
+		sort.validateAfter(after);
+		var acceptedTypes = request.headers()
+		                           .accept();
+		var jsonArray = acceptedTypes.stream()
+		                             .anyMatch(MediaType.APPLICATION_JSON::equalsTypeAndSubtype)
+				&& acceptedTypes.stream()
+				                .noneMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+		var books = Flux.using(this::takeExportSlot, slot -> bookRepository.streamAll(sort, after), AtomicInteger::decrementAndGet);
+		return ServerResponse.ok()
+		                     .contentType(jsonArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+		                     .body(books, Book.class);
+	}
+
+	private AtomicInteger takeExportSlot() {
+		var maxConcurrent = polarProperties.getExport()
+		                                   .getMaxConcurrent();
+		if (runningExports.incrementAndGet() > maxConcurrent) {
+			runningExports.decrementAndGet();
+			throw new BookExportUnavailableException(maxConcurrent);
+		}
+		return runningExports;
+	}
+
+	public Mono<ServerResponse> getBooksByIsbn(ServerRequest request) {
+		var requestedIsbns = new LinkedHashSet<String>();
+		request.queryParams()
+		       .get("isbn")
+		       .forEach(isbns -> Arrays.stream(isbns.split(","))
+		                               .map(Isbn::normalize)
+		                               .forEach(requestedIsbns::add));
+		var maxIsbns = polarProperties.getLookup()
+		                              .getMaxIsbns();
+		if (requestedIsbns.size() > maxIsbns) {
+			return Mono.error(new InvalidBookRequestException(String.format("No more than %d ISBNs can be looked up at once.", maxIsbns)));
+		}
+		var candidateIsbns = requestedIsbns.stream()
+		                                   .filter(bookIsbnFilter::mightContain)
+		                                   .toList();
+		var booksByIsbn = candidateIsbns.isEmpty() ? Mono.just(Map.<String, Book>of())
+		                                           : bookRepository.findAllByIsbnIn(candidateIsbns)
+		                                                           .collectMap(Book::isbn);
+		return booksByIsbn.flatMap(found -> {
+			var books = new ArrayList<Book>(found.size());
+			var missing = new ArrayList<String>();
+			for (var isbn : requestedIsbns) {
+				var book = found.get(isbn);
+				if (book != null) {
+					books.add(book);
+				} else {
+					missing.add(isbn);
+				}
+			}
+			return ServerResponse.ok()
+			                     .bodyValue(new BookLookup(books, missing));
+		});
+	}
+
+	public Mono<ServerResponse> getBook(ServerRequest request) {
+		var isbn = Isbn.normalize(request.pathVariable("isbn"));
+		if (!bookIsbnFilter.mightContain(isbn)) {
+			return Mono.error(new BookNotFoundException(isbn));
+		}
+		return bookRepository.findByIsbn(isbn)
+		                     .switchIfEmpty(Mono.error(() -> new BookNotFoundException(isbn)))
+		                     .flatMap(book -> request.checkNotModified(book.lastModifiedDate(), BookETags.of(book))
+		                                             .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+		                                                                                           .eTag(BookETags.of(book))
+		                                                                                           .lastModified(book.lastModifiedDate())
+		                                                                                           .bodyValue(book))));
+	}
+
+	public Mono<ServerResponse> postBook(ServerRequest request) {
+		return request.bodyToMono(Book.class)
+		              .flatMap(book -> validate(book).switchIfEmpty(Mono.defer(() -> addBookToCatalog(book).flatMap(
+				              createdBook -> ServerResponse.status(HttpStatus.CREATED)
+				                                           .bodyValue(createdBook)))));
+	}
+
+	public Mono<ServerResponse> editBook(ServerRequest request) {
+		var isbn = Isbn.normalize(request.pathVariable("isbn"));
+		var precondition = BookETags.precondition(request.headers()
+		                                                 .firstHeader(HttpHeaders.IF_MATCH));
+		return request.bodyToMono(Book.class)
+		              .flatMap(book -> validate(book).switchIfEmpty(Mono.defer(() -> editBook(isbn, book, precondition).flatMap(
+				              updatedBook -> ServerResponse.ok()
+				                                           .eTag(BookETags.of(updatedBook))
+				                                           .bodyValue(updatedBook)))));
+	}
+
+	public Mono<ServerResponse> deleteBook(ServerRequest request) {
+		var isbn = Isbn.normalize(request.pathVariable("isbn"));
+		return bookRepository.deleteByIsbn(isbn)
+		                     .then(Mono.fromRunnable(() -> {
+			                     bookSuggestionIndex.remove(isbn);
+			                     eventPublisher.publishEvent(new BookChangedEvent(isbn, BookChangedEvent.Type.DELETED));
+		                     }))
+		                     .then(ServerResponse.noContent()
+		                                         .build());
+	}
+
+	private Mono<Book> addBookToCatalog(Book book) {
+		return bookRepository.insertIfAbsent(book)
+		                     .switchIfEmpty(Mono.error(() -> new BookAlreadyExistsException(book.isbn())))
+		                     .doOnNext(createdBook -> {
+			                     bookSuggestionIndex.add(createdBook);
+			                     eventPublisher.publishEvent(new BookChangedEvent(createdBook.isbn(), BookChangedEvent.Type.CREATED));
+		                     });
+	}
+
+	private Mono<Book> editBook(String isbn, Book book, BookPrecondition precondition) {
+		var update = precondition == null || precondition.satisfiable() ? bookRepository.updateIfMatches(isbn, book, precondition)
+		                                                                : Mono.<Book>empty();
+		return update.doOnNext(updatedBook -> {
+			             bookSuggestionIndex.add(updatedBook);
+			             eventPublisher.publishEvent(new BookChangedEvent(isbn, BookChangedEvent.Type.UPDATED));
+		             })
+		             .switchIfEmpty(Mono.defer(() -> precondition != null
+		                                             ? preconditionFailure(isbn, precondition)
+		                                             : addBookToCatalog(book)));
+	}
+
+	/**
+	 * Emits a 404 error when the book is missing, or a 412 one when it does not match the precondition.
+	 */
+	private Mono<Book> preconditionFailure(String isbn, BookPrecondition precondition) {
+		return bookRepository.existsByIsbn(isbn)
+		                     .flatMap(exists -> Mono.error(exists ? new BookVersionMismatchException(isbn, precondition)
+		                                                          : new BookNotFoundException(isbn)));
+	}
+
+	/**
+	 * Emits a 400 response with the constraint violations of the book, or nothing if it is valid.
+	 */
+	private Mono<ServerResponse> validate(Book book) {
+		var violations = validator.validate(book);
+		if (violations.isEmpty()) {
+			return Mono.empty();
+		}
+		var errors = new HashMap<String, String>();
+		violations.forEach(violation -> errors.put(violation.getPropertyPath()
+		                                                    .toString(), violation.getMessage()));
+		return ServerResponse.badRequest()
+		                     .bodyValue(errors);
+	}
+
+	private int pageSize(Integer limit) {
+		var page = polarProperties.getPage();
+		if (limit == null) {
+			return page.getDefaultSize();
+		}
+		return pageSize(limit, page.getDefaultSize(), page.getMaxSize());
+	}
+
+	private static int pageSize(int limit, int defaultSize, int maxSize) {
+		if (limit < 1) {
+			throw new InvalidBookRequestException(String.format("The page size %d must be greater than zero.", limit));
+		}
+		return Math.min(limit, maxSize);
+	}
+
+	private static int parsePage(String page) {
+		int pageNumber;
+		try {
+			pageNumber = Integer.parseInt(page);
+		} catch (NumberFormatException exception) {
+			throw new InvalidBookRequestException(String.format("The page %s is not a number.", page));
+		}
+		if (pageNumber < 0) {
+			throw new InvalidBookRequestException(String.format("The page %d must not be negative.", pageNumber));
+		}
+		return pageNumber;
+	}
+
+	private static Integer parseLimit(String limit) {
+		try {
+			return Integer.valueOf(limit);
+		} catch (NumberFormatException exception) {
+			throw new InvalidBookRequestException(String.format("The page size %s is not a number.", limit));
+		}
+	}
+}
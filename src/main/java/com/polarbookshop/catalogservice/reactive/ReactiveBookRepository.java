@@ -0,0 +1,49 @@
+package com.polarbookshop.catalogservice.reactive;
+
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.Isbn;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Non-blocking counterpart of {@link com.polarbookshop.catalogservice.domain.BookRepository},
+ * looking books up by the numeric {@code isbn_key} column in the same way.
+ */
+public interface ReactiveBookRepository extends R2dbcRepository<Book, Long>, ReactiveBookRepositoryCustom {
+
+    default Mono<Book> findByIsbn(String isbn) {
+        return findByIsbnKey(Isbn.key(isbn));
+    }
+
+    default Mono<Boolean> existsByIsbn(String isbn) {
+        return existsByIsbnKey(Isbn.key(isbn));
+    }
+
+    default Flux<Book> findAllByIsbnIn(Collection<String> isbns) {
+        return findAllByIsbnKeyIn(isbns.stream()
+                                       .map(Isbn::key)
+                                       .toList());
+    }
+
+    default Mono<Void> deleteByIsbn(String isbn) {
+        return deleteByIsbnKey(Isbn.key(isbn));
+    }
+
+    @Query("select * from book where isbn_key = :isbnKey")
+    Mono<Book> findByIsbnKey(long isbnKey);
+
+    @Query("select exists (select 1 from book where isbn_key = :isbnKey)")
+    Mono<Boolean> existsByIsbnKey(long isbnKey);
+
+    @Query("select * from book where isbn_key in (:isbnKeys)")
+    Flux<Book> findAllByIsbnKeyIn(Collection<Long> isbnKeys);
+
+    @Modifying
+    @Query("delete from book where isbn_key = :isbnKey")
+    Mono<Void> deleteByIsbnKey(long isbnKey);
+}
@@ -0,0 +1,52 @@
+package com.polarbookshop.catalogservice.reactive;
+
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChange;
+import com.polarbookshop.catalogservice.domain.BookChangeCursor;
+import com.polarbookshop.catalogservice.domain.BookPrecondition;
+import com.polarbookshop.catalogservice.domain.BookSearchQuery;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface ReactiveBookRepositoryCustom {
+
+    /**
+     * Returns up to {@code limit} books in the given order, starting after the book with the
+     * key {@code after} when it is set, optionally restricted to one author.
+     */
+    Flux<Book> findPage(BookSort sort, @Nullable String after, @Nullable String author, int limit);
+
+    /**
+     * Emits every book in the given order as it is fetched from a server-side cursor, at the
+     * pace the subscriber requests them.
+     */
+    Flux<Book> streamAll(BookSort sort, @Nullable String after);
+
+    /**
+     * Inserts the book unless one with the same ISBN exists, emitting the persisted book only if it was inserted.
+     */
+    Mono<Book> insertIfAbsent(Book book);
+
+    /**
+     * Updates the book in place, only if it matches any of the versions of
+     * {@code precondition} when that is set, emitting the updated book only if it was updated.
+     */
+    Mono<Book> updateIfMatches(String isbn, Book book, @Nullable BookPrecondition precondition);
+
+    /**
+     * Emits {@code limit} books matching the query from {@code offset}, ranked by relevance,
+     * out of the first {@code maxResults} matches found in the full-text index.
+     */
+    Flux<Book> search(BookSearchQuery query, int offset, int limit, int maxResults);
+
+    /**
+     * Emits up to {@code limit} changes after the cursor in (modified date, id) order: the books
+     * modified since and the tombstones of the books deleted since, leaving out the changes dated
+     * at or after {@code settledBefore}.
+     */
+    Flux<BookChange> findChanges(BookChangeCursor after, Instant settledBefore, int limit);
+}
@@ -0,0 +1,193 @@
+package com.polarbookshop.catalogservice.reactive;
+
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChange;
+import com.polarbookshop.catalogservice.domain.BookChangeCursor;
+import com.polarbookshop.catalogservice.domain.BookPrecondition;
+import com.polarbookshop.catalogservice.domain.BookSearchQuery;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import com.polarbookshop.catalogservice.domain.Isbn;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+
+@RequiredArgsConstructor
+class ReactiveBookRepositoryCustomImpl implements ReactiveBookRepositoryCustom {
+
+    /**
+     * Number of rows fetched per round trip when streaming the catalog.
+     */
+    private static final int CURSOR_FETCH_SIZE = 1000;
+
+    private final R2dbcEntityTemplate template;
+
+    @Override
+    public Flux<Book> findPage(BookSort sort, @Nullable String after, @Nullable String author, int limit) {
+        var conditions = new ArrayList<String>();
+        if (after != null) {
+            conditions.add(sort.column() + (sort.ascending() ? " > :after" : " < :after"));
+        }
+        if (author != null) {
+            conditions.add("author = :author");
+        }
+        var sql = "select * from book"
+                + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions))
+                + " order by " + sort.column() + (sort.ascending() ? " asc" : " desc")
+                + " limit :limit";
+        var spec = template.getDatabaseClient()
+                           .sql(sql)
+                           .bind("limit", limit);
+        if (after != null) {
+            spec = spec.bind("after", afterKey(sort, after));
+        }
+        if (author != null) {
+            spec = spec.bind("author", author);
+        }
+        return spec.map(this::read)
+                   .all();
+    }
+
+    @Override
+    public Flux<Book> streamAll(BookSort sort, @Nullable String after) {
+        var sql = "select * from book"
+                + (after != null ? " where " + sort.column() + (sort.ascending() ? " > :after" : " < :after") : "")
+                + " order by " + sort.column() + (sort.ascending() ? " asc" : " desc");
+        var spec = template.getDatabaseClient()
+                           .sql(sql)
+                           .filter(statement -> statement.fetchSize(CURSOR_FETCH_SIZE));
+        if (after != null) {
+            spec = spec.bind("after", afterKey(sort, after));
+        }
+        return spec.map(this::read)
+                   .all();
+    }
+
+    @Override
+    public Mono<Book> insertIfAbsent(Book book) {
+        return template.getDatabaseClient()
+                       .sql("insert into book (isbn, title, author, price, version, created_date, last_modified_date)"
+                                    + " values (:isbn, :title, :author, :price, 1, now(), now())"
+                                    + " on conflict (isbn_key) do nothing returning *")
+                       .bind("isbn", book.isbn())
+                       .bind("title", book.title())
+                       .bind("author", book.author())
+                       .bind("price", book.price())
+                       .map(this::read)
+                       .one();
+    }
+
+    @Override
+    public Mono<Book> updateIfMatches(String isbn, Book book, @Nullable BookPrecondition precondition) {
+        var spec = template.getDatabaseClient()
+                           .sql("update book set title = :title, author = :author, price = :price,"
+                                        + " version = version + 1, last_modified_date = now()"
+                                        + " where isbn_key = :isbnKey" + versionCondition(precondition)
+                                        + " returning *")
+                           .bind("isbnKey", Isbn.key(isbn))
+                           .bind("title", book.title())
+                           .bind("author", book.author())
+                           .bind("price", book.price());
+        if (precondition != null && precondition.versions() != null) {
+            var versions = precondition.versions();
+            for (var index = 0; index < versions.size(); index++) {
+                var version = versions.get(index);
+                if (version.id() != null) {
+                    spec = spec.bind("expectedId" + index, version.id());
+                }
+                spec = spec.bind("expectedVersion" + index, version.version());
+            }
+        }
+        return spec.map(this::read)
+                   .one();
+    }
+
+    @Override
+    public Flux<Book> search(BookSearchQuery query, int offset, int limit, int maxResults) {
+        return template.getDatabaseClient()
+                       .sql("select * from ("
+                                    + " select * from book where search_vector @@ to_tsquery('simple', :query) limit :maxResults"
+                                    + ") matches"
+                                    + " order by ts_rank_cd(search_vector, to_tsquery('simple', :query)) desc, id"
+                                    + " offset :offset limit :limit")
+                       .bind("query", query.toTsQuery())
+                       .bind("maxResults", maxResults)
+                       .bind("offset", offset)
+                       .bind("limit", limit)
+                       .map(this::read)
+                       .all();
+    }
+
+    @Override
+    public Flux<BookChange> findChanges(BookChangeCursor after, Instant settledBefore, int limit) {
+        return template.getDatabaseClient()
+                       .sql("(select 'UPSERTED' as change_type, id, isbn, title, author, price, version, created_date, last_modified_date"
+                                    + " from book"
+                                    + " where (last_modified_date, id) > (:afterDate, :afterId) and last_modified_date < :settledBefore"
+                                    + " order by last_modified_date, id limit :limit)"
+                                    + " union all"
+                                    + " (select 'DELETED', id, isbn, null, null, null, null, null, deleted_date"
+                                    + " from book_tombstone"
+                                    + " where (deleted_date, id) > (:afterDate, :afterId) and deleted_date < :settledBefore"
+                                    + " order by deleted_date, id limit :limit)"
+                                    + " order by last_modified_date, id limit :limit")
+                       .bind("afterDate", toLocalDateTime(after.modifiedDate()))
+                       .bind("afterId", after.id())
+                       .bind("settledBefore", toLocalDateTime(settledBefore))
+                       .bind("limit", limit)
+                       .map((row, metadata) -> "DELETED".equals(row.get("change_type", String.class))
+                               ? BookChange.deleted(row.get("id", Long.class), row.get("isbn", String.class),
+                                                    row.get("last_modified_date", LocalDateTime.class)
+                                                       .atZone(ZoneId.systemDefault())
+                                                       .toInstant())
+                               : BookChange.upserted(read(row, metadata)))
+                       .all();
+    }
+
+    private Book read(Row row, RowMetadata metadata) {
+        return template.getConverter()
+                       .read(Book.class, row, metadata);
+    }
+
+    /**
+     * The {@code timestamp} columns hold local date-times, like the JDBC driver writes them.
+     */
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    /**
+     * Returns the condition matching any of the versions of the precondition, with one
+     * {@code expectedId} and {@code expectedVersion} parameter of each, numbered from zero.
+     */
+    private static String versionCondition(@Nullable BookPrecondition precondition) {
+        if (precondition == null || precondition.versions() == null) {
+            return "";
+        }
+        if (!precondition.satisfiable()) {
+            return " and false";
+        }
+        var versions = precondition.versions();
+        var conditions = new ArrayList<String>(versions.size());
+        for (var index = 0; index < versions.size(); index++) {
+            conditions.add(versions.get(index)
+                                   .id() != null ? "(id = :expectedId" + index + " and version = :expectedVersion" + index + ")"
+                                                 : "version = :expectedVersion" + index);
+        }
+        return " and (" + String.join(" or ", conditions) + ")";
+    }
+
+    private static Object afterKey(BookSort sort, String after) {
+        return sort.column()
+                   .equals("id") ? Long.valueOf(after) : after;
+    }
+}
@@ -0,0 +1,71 @@
+package com.polarbookshop.catalogservice.reactive;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+
+/**
+ * R2DBC connection pool and repositories of the reactive stack. The R2DBC auto-configuration is
+ * excluded, because its reactive transaction manager would stop the JDBC one from being created,
+ * and Flyway, the ISBN filter and the change notifications keep using JDBC in both stacks. For the
+ * same reason the Hikari pool is declared here, since Spring Boot does not auto-configure a JDBC
+ * data source next to an R2DBC connection factory.
+ */
+@RequiredArgsConstructor
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties({DataSourceProperties.class, R2dbcProperties.class})
+@EnableR2dbcRepositories(basePackageClasses = ReactiveBookRepository.class)
+public class ReactiveDataConfig extends AbstractR2dbcConfiguration {
+
+	private final R2dbcProperties properties;
+
+	/**
+	 * Makes the JDBC repositories, which look up the mapping context by its common supertype,
+	 * pick the JDBC one over the R2DBC one.
+	 */
+	@Bean
+	static BeanFactoryPostProcessor jdbcMappingContextPrimaryPostProcessor() {
+		return beanFactory -> beanFactory.getBeanDefinition("jdbcMappingContext")
+		                                 .setPrimary(true);
+	}
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+		return dataSourceProperties.initializeDataSourceBuilder()
+		                           .type(HikariDataSource.class)
+		                           .build();
+	}
+
+	@Bean
+	@Override
+	public ConnectionFactory connectionFactory() {
+		var connectionFactory = ConnectionFactoryBuilder.withUrl(properties.getUrl())
+		                                                .username(properties.getUsername())
+		                                                .password(properties.getPassword())
+		                                                .build();
+		var pool = properties.getPool();
+		var configuration = ConnectionPoolConfiguration.builder(connectionFactory)
+		                                               .initialSize(pool.getInitialSize())
+		                                               .maxSize(pool.getMaxSize())
+		                                               .maxIdleTime(pool.getMaxIdleTime());
+		if (pool.getMaxAcquireTime() != null) {
+			configuration.maxAcquireTime(pool.getMaxAcquireTime());
+		}
+		return new ConnectionPool(configuration.build());
+	}
+}
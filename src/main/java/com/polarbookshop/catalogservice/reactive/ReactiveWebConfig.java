@@ -0,0 +1,98 @@
+package com.polarbookshop.catalogservice.reactive;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.BookAlreadyExistsException;
+import com.polarbookshop.catalogservice.domain.BookChangesExpiredException;
+import com.polarbookshop.catalogservice.domain.BookExportUnavailableException;
+import com.polarbookshop.catalogservice.domain.BookIsbnFilter;
+import com.polarbookshop.catalogservice.domain.BookNotFoundException;
+import com.polarbookshop.catalogservice.domain.BookSuggestionIndex;
+import com.polarbookshop.catalogservice.domain.BookVersionMismatchException;
+import com.polarbookshop.catalogservice.domain.InvalidBookRequestException;
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the book routes with WebFlux functional endpoints on Netty when the application runs
+ * as a reactive web application, which the {@code reactive} profile selects.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+	/**
+	 * Netty rather than the reactive adapter of Tomcat, which is also on the classpath and would be picked first.
+	 */
+	@Bean
+	NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	@Bean
+	BookHandler bookHandler(ReactiveBookRepository bookRepository, PolarProperties polarProperties, Validator validator,
+	                        ApplicationEventPublisher eventPublisher, BookIsbnFilter bookIsbnFilter,
+	                        BookSuggestionIndex bookSuggestionIndex) {
+		return new BookHandler(bookRepository, polarProperties, validator, eventPublisher, bookIsbnFilter, bookSuggestionIndex);
+	}
+
+	@Bean
+	RouterFunction<ServerResponse> bookRoutes(BookHandler bookHandler) {
+		return RouterFunctions.route()
+		                      .GET("/books/export", bookHandler::exportBooks)
+		                      .GET("/books/search", bookHandler::searchBooks)
+		                      .GET("/books/suggest", bookHandler::suggestBooks)
+		                      .GET("/books/changes", bookHandler::getChanges)
+		                      .GET("/books", RequestPredicates.queryParam("isbn", isbn -> true), bookHandler::getBooksByIsbn)
+		                      .GET("/books", bookHandler::getBooks)
+		                      .POST("/books", bookHandler::postBook)
+		                      .GET("/books/{isbn}", bookHandler::getBook)
+		                      .PUT("/books/{isbn}", bookHandler::editBook)
+		                      .DELETE("/books/{isbn}", bookHandler::deleteBook)
+		                      .filter((request, next) -> Mono.defer(() -> next.handle(request))
+		                                                     .onErrorResume(ReactiveWebConfig::errorResponse))
+		                      .build();
+	}
+
+	/**
+	 * Maps the domain exceptions to responses like {@link com.polarbookshop.catalogservice.web.BookControllerAdvice}.
+	 */
+	private static Mono<ServerResponse> errorResponse(Throwable exception) {
+		if (exception instanceof BookNotFoundException) {
+			return textResponse(HttpStatus.NOT_FOUND, exception);
+		}
+		if (exception instanceof BookAlreadyExistsException || exception instanceof InvalidBookRequestException) {
+			return textResponse(HttpStatus.BAD_REQUEST, exception);
+		}
+		if (exception instanceof BookChangesExpiredException) {
+			return textResponse(HttpStatus.GONE, exception);
+		}
+		if (exception instanceof BookVersionMismatchException) {
+			return textResponse(HttpStatus.PRECONDITION_FAILED, exception);
+		}
+		if (exception instanceof BookExportUnavailableException) {
+			return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+			                     .header(HttpHeaders.RETRY_AFTER, "60")
+			                     .contentType(MediaType.TEXT_PLAIN)
+			                     .bodyValue(exception.getMessage());
+		}
+		return Mono.error(exception);
+	}
+
+	private static Mono<ServerResponse> textResponse(HttpStatus status, Throwable exception) {
+		return ServerResponse.status(status)
+		                     .contentType(MediaType.TEXT_PLAIN)
+		                     .bodyValue(exception.getMessage());
+	}
+}
@@ -0,0 +1,70 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit adjusted by additive increase, multiplicative decrease: it grows by one
+ * for every limit's worth of fast requests while it is in use, and shrinks by the backoff ratio
+ * whenever a request is slow or the connection pool is saturated.
+ */
+final class AimdLimiter {
+
+	private final PolarProperties.Limit properties;
+	private final long latencyThresholdNanos;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private double limit;
+	private volatile int currentLimit;
+
+	AimdLimiter(PolarProperties.Limit properties) {
+		this.properties = properties;
+		this.latencyThresholdNanos = properties.getLatencyThreshold()
+		                                       .toNanos();
+		this.limit = properties.getInitial();
+		this.currentLimit = properties.getInitial();
+	}
+
+	boolean tryAcquire() {
+		while (true) {
+			var current = inFlight.get();
+			if (current >= currentLimit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Releases a permit taken by {@link #tryAcquire()} and adjusts the limit to the outcome of the request.
+	 */
+	void release(long latencyNanos, boolean overloaded) {
+		var current = inFlight.getAndDecrement();
+		if (overloaded || latencyNanos > latencyThresholdNanos) {
+			decrease();
+		} else if (2 * current >= currentLimit) {
+			increase();
+		}
+	}
+
+	int getLimit() {
+		return currentLimit;
+	}
+
+	int getInFlight() {
+		return inFlight.get();
+	}
+
+	private synchronized void increase() {
+		limit = Math.min(properties.getMax(), limit + 1 / limit);
+		currentLimit = (int) limit;
+	}
+
+	private synchronized void decrease() {
+		limit = Math.max(properties.getMin(), limit * properties.getBackoffRatio());
+		currentLimit = (int) limit;
+	}
+}
@@ -1,35 +1,204 @@
 package com.polarbookshop.catalogservice.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookBatchResult;
+import com.polarbookshop.catalogservice.domain.BookChange;
+import com.polarbookshop.catalogservice.domain.BookField;
+import com.polarbookshop.catalogservice.domain.BookLookup;
 import com.polarbookshop.catalogservice.domain.BookService;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import com.polarbookshop.catalogservice.domain.BookSuggestion;
+import com.polarbookshop.catalogservice.domain.InvalidBookRequestException;
+import com.polarbookshop.catalogservice.domain.Isbn;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("books")
 public class BookController {
 
 	private final BookService bookService;
+	private final BookResponseCache bookResponseCache;
+	private final BookObjectMappers objectMappers;
 
+	/**
+	 * Returns a page of the catalog in the negotiated {@link BookFormat}, written from the
+	 * {@link BookResponseCache} when it has not changed since the page was last served. The books
+	 * only have the {@code fields} asked for, all of them by default.
+	 */
 	@GetMapping
-	public Iterable<Book> getBooks() {
-		return bookService.getBooks();
+	public ResponseEntity<byte[]> getBooks(@RequestParam(required = false) String cursor,
+	                                       @RequestParam(required = false) Integer limit,
+	                                       @RequestParam(defaultValue = "id") String sort,
+	                                       @RequestParam(required = false) String author,
+	                                       @RequestParam(required = false) String fields,
+	                                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+	                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+	                                       WebRequest request) throws HttpMediaTypeNotAcceptableException {
+		var format = responseFormat(accept);
+		var gzip = acceptsGzip(acceptEncoding);
+		var watermark = bookService.getCatalogWatermark();
+		if (request.checkNotModified(BookETags.of(BookETags.of(watermark), format, gzip), watermark.lastModifiedDate()
+		                                                                                           .toEpochMilli())) {
+			return null;
+		}
+		var bookSort = BookSort.parse(sort);
+		var bookFields = BookField.parse(fields);
+		var page = bookResponseCache.page(watermark, cursor, limit, bookSort, author, bookFields, format,
+		                                  () -> bookService.getBooks(cursor, limit, bookSort, author, bookFields));
+		var response = ResponseEntity.ok();
+		if (page.nextCursor() != null) {
+			var nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+			                                          .replaceQueryParam("cursor", page.nextCursor())
+			                                          .toUriString();
+			response.header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+		}
+		return encoded(response, format, page, gzip);
+	}
+
+	@GetMapping("search")
+	public ResponseEntity<List<Book>> searchBooks(@RequestParam String q,
+	                                              @RequestParam(required = false) Integer page,
+	                                              @RequestParam(required = false) Integer limit) {
+		var result = bookService.searchBooks(q, page, limit);
+		var response = ResponseEntity.ok();
+		if (result.nextPage() != null) {
+			var nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+			                                          .replaceQueryParam("page", result.nextPage())
+			                                          .toUriString();
+			response.header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+		}
+		return response.body(result.books());
+	}
+
+	/**
+	 * Returns the changes after the {@code since} cursor. The {@code Link} header always points to
+	 * the next changes, so that clients can keep polling it.
+	 */
+	@GetMapping("changes")
+	public ResponseEntity<List<BookChange>> getChanges(@RequestParam(required = false) String since,
+	                                                   @RequestParam(required = false) Integer limit) {
+		var page = bookService.getChanges(since, limit);
+		var nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+		                                          .replaceQueryParam("since", page.nextCursor())
+		                                          .toUriString();
+		return ResponseEntity.ok()
+		                     .header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"")
+		                     .body(page.changes());
+	}
+
+	@GetMapping("suggest")
+	public List<BookSuggestion> suggestBooks(@RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+		return bookService.suggestBooks(prefix, limit);
+	}
+
+	/**
+	 * Streams the catalog as NDJSON, as a JSON array when only {@code application/json} is
+	 * acceptable, or as a CBOR or Smile array when one of them is preferred, writing each book as
+	 * it is read from the database with only the {@code fields} asked for. The export permit is
+	 * taken before the response is opened, so that a refused export is still answered with 503.
+	 */
+	@GetMapping("export")
+	public void exportBooks(@RequestParam(defaultValue = "id") String sort,
+	                        @RequestParam(required = false) String after,
+	                        @RequestParam(required = false) String fields,
+	                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+	                        HttpServletResponse response) throws IOException {
+		var bookSort = BookSort.parse(sort);
+		bookSort.validateAfter(after);
+		var bookFields = BookField.parse(fields);
+		var projected = !bookFields.containsAll(BookField.ALL);
+		var acceptedTypes = MediaType.parseMediaTypes(accept);
+		var format = BookFormat.negotiate(acceptedTypes);
+		var array = format != null && format.isBinary() || acceptedTypes.stream()
+		                                                                 .anyMatch(MediaType.APPLICATION_JSON::equalsTypeAndSubtype)
+				&& acceptedTypes.stream()
+				                .noneMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+		if (format == null || !array) {
+			format = BookFormat.JSON;
+		}
+		var writer = objectMappers.get(format)
+		                          .writerFor(projected ? BookProjection.class : Book.class)
+		                          .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+		                          .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		var permit = bookService.acquireExportPermit();
+		response.setContentType(array ? format.mediaType()
+		                                      .toString() : MediaType.APPLICATION_NDJSON_VALUE);
+		try (var books = array ? writer.writeValuesAsArray(response.getOutputStream())
+		                       : writer.withRootValueSeparator("\n")
+		                               .writeValues(response.getOutputStream())) {
+			bookService.exportBooks(bookSort, after, bookFields, book -> {
+				try {
+					books.write(projected ? new BookProjection(book, bookFields) : book);
+				} catch (IOException exception) {
+					throw new UncheckedIOException(exception);
+				}
+			});
+		} catch (UncheckedIOException exception) {
+			throw exception.getCause();
+		} finally {
+			permit.close();
+		}
+	}
+
+	@GetMapping(params = "isbn")
+	public BookLookup getByIsbns(@RequestParam List<String> isbn) {
+		return bookService.getBooks(isbn.stream()
+		                                .map(Isbn::normalize)
+		                                .toList());
 	}
 
 	@GetMapping("{isbn}")
-	public Book getByIsbn(@PathVariable String isbn) {
-		return bookService.getBook(isbn);
+	public ResponseEntity<byte[]> getByIsbn(@PathVariable String isbn,
+	                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+	                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+	                                        WebRequest request) throws HttpMediaTypeNotAcceptableException {
+		var format = responseFormat(accept);
+		var gzip = acceptsGzip(acceptEncoding);
+		var book = bookService.getBook(Isbn.normalize(isbn));
+		var lastModified = book.lastModifiedDate() != null ? book.lastModifiedDate()
+		                                                         .toEpochMilli() : -1;
+		if (request.checkNotModified(BookETags.of(BookETags.of(book), format, gzip), lastModified)) {
+			return null;
+		}
+		return encoded(ResponseEntity.ok(), format, bookResponseCache.book(book, format), gzip);
 	}
 
 	@PostMapping
@@ -38,14 +207,184 @@ public class BookController {
 		return bookService.addBookToCatalog(book);
 	}
 
+	/**
+	 * Reads the array of books one at a time as the batch is validated, so that the limit of
+	 * items bounds what is held in memory, rather than binding the whole array first.
+	 */
+	@PostMapping(path = "batch", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+	                                          BookFormat.APPLICATION_SMILE_VALUE })
+	public List<BookBatchResult> postBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+	                                       InputStream body) throws IOException {
+		var format = Arrays.stream(BookFormat.values())
+		                   .filter(candidate -> candidate.mediaType()
+		                                                 .isCompatibleWith(contentType))
+		                   .findFirst()
+		                   .orElse(BookFormat.JSON);
+		var objectMapper = objectMappers.get(format);
+		try (var parser = objectMapper.createParser(body)) {
+			try {
+				if (parser.nextToken() != JsonToken.START_ARRAY) {
+					throw new InvalidBookRequestException("The request body is not an array of books.");
+				}
+			} catch (IOException exception) {
+				throw invalidBody(format.name(), exception);
+			}
+			parser.clearCurrentToken();
+			return bookService.addBooksToCatalog(arrayIterator(parser, objectMapper.readerFor(Book.class), format.name()));
+		}
+	}
+
+	@PostMapping(path = "batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	public List<BookBatchResult> postBookStream(InputStream body) throws IOException {
+		try (var books = objectMappers.get(BookFormat.JSON)
+		                              .readerFor(Book.class)
+		                              .<Book>readValues(body)) {
+			return bookService.addBooksToCatalog(bookIterator(books, "NDJSON"));
+		}
+	}
+
 	@DeleteMapping("{isbn}")
 	@ResponseStatus(HttpStatus.NO_CONTENT)
 	public void deleteBook(@PathVariable String isbn) {
-		bookService.deleteBookFromCatalog(isbn);
+		bookService.deleteBookFromCatalog(Isbn.normalize(isbn));
 	}
 
 	@PutMapping("{isbn}")
-	public Book editBook(@Valid @PathVariable String isbn, @RequestBody Book book) {
-		return bookService.editBook(isbn, book);
+	public ResponseEntity<Book> editBook(@Valid @PathVariable String isbn, @RequestBody Book book,
+	                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		var updatedBook = bookService.editBook(Isbn.normalize(isbn), book, BookETags.precondition(ifMatch));
+		return ResponseEntity.ok()
+		                     .eTag(BookETags.of(updatedBook))
+		                     .body(updatedBook);
+	}
+
+	/**
+	 * Returns the format of the responses written from the {@link BookResponseCache}, which bypass
+	 * the content negotiation of Spring MVC.
+	 */
+	private static BookFormat responseFormat(String accept) throws HttpMediaTypeNotAcceptableException {
+		var acceptedTypes = MediaType.parseMediaTypes(accept);
+		var format = BookFormat.negotiate(acceptedTypes);
+		if (format == null) {
+			throw new HttpMediaTypeNotAcceptableException(Arrays.stream(BookFormat.values())
+			                                                    .map(BookFormat::mediaType)
+			                                                    .toList());
+		}
+		return format;
+	}
+
+	/**
+	 * Writes the encoded response as is, gzipped when the client accepts it and a gzipped copy was kept.
+	 */
+	private static ResponseEntity<byte[]> encoded(ResponseEntity.BodyBuilder response, BookFormat format,
+	                                              BookResponseCache.EncodedResponse encoded, boolean gzip) {
+		response.contentType(format.mediaType())
+		        .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+		if (encoded.gzippedBody() != null && gzip) {
+			return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+			               .body(encoded.gzippedBody());
+		}
+		return response.body(encoded.body());
+	}
+
+	/**
+	 * Tells whether the {@code Accept-Encoding} header lets gzip through with a non-zero quality,
+	 * by name or, unless gzip is refused by name, through {@code *}.
+	 */
+	private static boolean acceptsGzip(@Nullable String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Boolean gzip = null;
+		var any = false;
+		for (var element : acceptEncoding.split(",")) {
+			var parameters = element.split(";");
+			var coding = parameters[0].trim();
+			var accepted = quality(parameters) > 0;
+			if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+				gzip = accepted;
+			} else if (coding.equals("*")) {
+				any = accepted;
+			}
+		}
+		return gzip != null ? gzip : any;
+	}
+
+	private static double quality(String[] parameters) {
+		for (var i = 1; i < parameters.length; i++) {
+			var parameter = parameters[i].trim();
+			if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2));
+				} catch (NumberFormatException exception) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Reads the elements of the array whose start the parser has just passed one at a time,
+	 * {@code null} ones included, reporting malformed ones as a bad request.
+	 */
+	private static Iterator<Book> arrayIterator(JsonParser parser, ObjectReader reader, String format) {
+		return new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				try {
+					var token = parser.hasCurrentToken() ? parser.currentToken() : parser.nextToken();
+					if (token == null) {
+						throw new InvalidBookRequestException(String.format("The request body is not valid %s: the array is not closed.", format));
+					}
+					return token != JsonToken.END_ARRAY;
+				} catch (IOException exception) {
+					throw invalidBody(format, exception);
+				}
+			}
+
+			@Override
+			public Book next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				try {
+					Book book = reader.readValue(parser);
+					parser.clearCurrentToken();
+					return book;
+				} catch (IOException exception) {
+					throw invalidBody(format, exception);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Adapts a stream of books, reporting malformed ones as a bad request.
+	 */
+	private static Iterator<Book> bookIterator(MappingIterator<Book> books, String format) {
+		return new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				try {
+					return books.hasNextValue();
+				} catch (IOException exception) {
+					throw invalidBody(format, exception);
+				}
+			}
+
+			@Override
+			public Book next() {
+				try {
+					return books.nextValue();
+				} catch (IOException exception) {
+					throw invalidBody(format, exception);
+				}
+			}
+		};
+	}
+
+	private static InvalidBookRequestException invalidBody(String format, IOException exception) {
+		return new InvalidBookRequestException(String.format("The request body is not valid %s: %s", format, exception.getMessage()));
 	}
 }
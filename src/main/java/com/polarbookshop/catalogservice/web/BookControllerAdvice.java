@@ -1,8 +1,15 @@
 package com.polarbookshop.catalogservice.web;
 
 import com.polarbookshop.catalogservice.domain.BookAlreadyExistsException;
+import com.polarbookshop.catalogservice.domain.BookChangesExpiredException;
+import com.polarbookshop.catalogservice.domain.BookExportUnavailableException;
 import com.polarbookshop.catalogservice.domain.BookNotFoundException;
+import com.polarbookshop.catalogservice.domain.BookVersionMismatchException;
+import com.polarbookshop.catalogservice.domain.InvalidBookRequestException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -12,6 +19,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import java.util.HashMap;
 import java.util.Map;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestControllerAdvice
 public class BookControllerAdvice {
 
@@ -27,6 +35,31 @@ public class BookControllerAdvice {
 		return exception.getMessage();
 	}
 
+	@ExceptionHandler(BookVersionMismatchException.class)
+	@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+	String bookVersionMismatchHandler(BookVersionMismatchException exception) {
+		return exception.getMessage();
+	}
+
+	@ExceptionHandler(BookChangesExpiredException.class)
+	@ResponseStatus(HttpStatus.GONE)
+	String bookChangesExpiredHandler(BookChangesExpiredException exception) {
+		return exception.getMessage();
+	}
+
+	@ExceptionHandler(BookExportUnavailableException.class)
+	ResponseEntity<String> bookExportUnavailableHandler(BookExportUnavailableException exception) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+		                     .header(HttpHeaders.RETRY_AFTER, "60")
+		                     .body(exception.getMessage());
+	}
+
+	@ExceptionHandler(InvalidBookRequestException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	String invalidBookRequestHandler(InvalidBookRequestException exception) {
+		return exception.getMessage();
+	}
+
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	Map<String, String> handleValidationExceptions(MethodArgumentNotValidException exception) {
@@ -0,0 +1,92 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookPrecondition;
+import com.polarbookshop.catalogservice.domain.CatalogWatermark;
+import com.polarbookshop.catalogservice.domain.InvalidBookRequestException;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Strong entity tags of the catalog resources. A book is tagged with its id and version, so
+ * that a book deleted and created again never matches a tag of its previous incarnation; the
+ * catalog listings are tagged with the catalog watermark. The representations other than plain
+ * JSON get a suffix naming their format and content coding, such as {@code "42-3.cbor.gz"}.
+ */
+public final class BookETags {
+
+	private BookETags() {}
+
+	public static String of(Book book) {
+		return "\"" + book.id() + "-" + book.version() + "\"";
+	}
+
+	public static String of(CatalogWatermark watermark) {
+		return "\"catalog-" + watermark.version() + "\"";
+	}
+
+	/**
+	 * Returns the tag of one representation of what the given tag stands for, so that no two
+	 * representations that differ share a strong tag. A client accepting gzip gets the gzip tag
+	 * even for the bodies too small to be gzipped, which are then the same for every such client.
+	 */
+	public static String of(String tag, BookFormat format, boolean gzip) {
+		if (format == BookFormat.JSON && !gzip) {
+			return tag;
+		}
+		var variant = new StringBuilder(tag.substring(0, tag.length() - 1));
+		if (format != BookFormat.JSON) {
+			variant.append('.')
+			       .append(format.name()
+			                     .toLowerCase(Locale.ROOT));
+		}
+		if (gzip) {
+			variant.append(".gz");
+		}
+		return variant.append('"')
+		              .toString();
+	}
+
+	/**
+	 * Reads what an update expects of the stored book from an {@code If-Match} header: any book
+	 * for {@code *}, or else any of the books of its tags, such as {@code "42-3"}, a bare version
+	 * such as {@code "3"} matching any book at that version, whatever the representation suffix of
+	 * the tag. Weak tags never match, as {@code If-Match} compares tags strongly, so a header
+	 * holding only weak tags matches no book.
+	 */
+	public static BookPrecondition precondition(String ifMatch) {
+		if (ifMatch == null) {
+			return null;
+		}
+		if (ifMatch.trim()
+		           .equals("*")) {
+			return BookPrecondition.EXISTS;
+		}
+		var versions = new LinkedHashSet<BookPrecondition.Version>();
+		for (var tag : ifMatch.split(",")) {
+			tag = tag.trim();
+			if (!tag.startsWith("W/")) {
+				versions.add(parse(tag, ifMatch));
+			}
+		}
+		return BookPrecondition.anyOf(List.copyOf(versions));
+	}
+
+	private static BookPrecondition.Version parse(String tag, String ifMatch) {
+		if (tag.startsWith("\"") && tag.endsWith("\"") && tag.length() > 1) {
+			tag = tag.substring(1, tag.length() - 1);
+		}
+		if (tag.indexOf('.') >= 0) {
+			tag = tag.substring(0, tag.indexOf('.'));
+		}
+		var separator = tag.indexOf('-');
+		try {
+			return new BookPrecondition.Version(separator >= 0 ? Long.valueOf(tag.substring(0, separator)) : null,
+			                                    Integer.parseInt(tag.substring(separator + 1)));
+		} catch (NumberFormatException exception) {
+			throw new InvalidBookRequestException(String.format("The If-Match header %s is not a book version.", ifMatch));
+		}
+	}
+}
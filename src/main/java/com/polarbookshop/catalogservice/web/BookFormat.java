@@ -0,0 +1,60 @@
+package com.polarbookshop.catalogservice.web;
+
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The representations of the book resources: JSON by default, or CBOR and Smile, the binary
+ * encodings of the same data model that service-to-service clients can ask for, which are smaller
+ * and faster to parse.
+ */
+public enum BookFormat {
+
+	JSON(MediaType.APPLICATION_JSON_VALUE),
+	CBOR(MediaType.APPLICATION_CBOR_VALUE),
+	SMILE(BookFormat.APPLICATION_SMILE_VALUE);
+
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+	private final MediaType mediaType;
+
+	BookFormat(String mediaType) {
+		this.mediaType = MediaType.parseMediaType(mediaType);
+	}
+
+	public MediaType mediaType() {
+		return mediaType;
+	}
+
+	public boolean isBinary() {
+		return this != JSON;
+	}
+
+	/**
+	 * Returns the format most preferred by the accepted media types, JSON when no type is accepted
+	 * or when wildcards are, or {@code null} when none of the formats is acceptable.
+	 */
+	@Nullable
+	public static BookFormat negotiate(List<MediaType> acceptedTypes) {
+		if (acceptedTypes.isEmpty()) {
+			return JSON;
+		}
+		var sortedTypes = new ArrayList<>(acceptedTypes);
+		MimeTypeUtils.sortBySpecificity(sortedTypes);
+		for (var acceptedType : sortedTypes) {
+			if (acceptedType.getQualityValue() == 0) {
+				continue;
+			}
+			for (var format : values()) {
+				if (acceptedType.includes(format.mediaType)) {
+					return format;
+				}
+			}
+		}
+		return null;
+	}
+}
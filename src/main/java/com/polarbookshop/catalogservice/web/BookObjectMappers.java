@@ -0,0 +1,27 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * An {@link ObjectMapper} for each {@link BookFormat}, the binary ones being copies of the JSON
+ * one so that books are written with the same modules and features whatever the format.
+ */
+public class BookObjectMappers {
+
+	private final Map<BookFormat, ObjectMapper> objectMappers = new EnumMap<>(BookFormat.class);
+
+	public BookObjectMappers(ObjectMapper objectMapper) {
+		objectMappers.put(BookFormat.JSON, objectMapper);
+		objectMappers.put(BookFormat.CBOR, objectMapper.copyWith(new CBORFactory()));
+		objectMappers.put(BookFormat.SMILE, objectMapper.copyWith(new SmileFactory()));
+	}
+
+	public ObjectMapper get(BookFormat format) {
+		return objectMappers.get(format);
+	}
+}
@@ -0,0 +1,46 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookField;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A book written with only the fields a client asked for, in the order of {@link BookField}.
+ * The values are written by the serializers of the mapper, so that they look as in a whole book.
+ */
+record BookProjection(Book book, Set<BookField> fields) implements JsonSerializable {
+
+	/**
+	 * Returns the books as they are when all the fields are asked for, or their projections.
+	 */
+	static List<?> of(List<Book> books, Set<BookField> fields) {
+		if (fields.containsAll(BookField.ALL)) {
+			return books;
+		}
+		return books.stream()
+		            .map(book -> new BookProjection(book, fields))
+		            .toList();
+	}
+
+	@Override
+	public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+		generator.writeStartObject(book);
+		for (var field : fields) {
+			provider.defaultSerializeField(field.property(), field.value(book), generator);
+		}
+		generator.writeEndObject();
+	}
+
+	@Override
+	public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer)
+			throws IOException {
+		serialize(generator, provider);
+	}
+}
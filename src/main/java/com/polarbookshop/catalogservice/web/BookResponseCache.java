@@ -0,0 +1,154 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import com.polarbookshop.catalogservice.domain.BookField;
+import com.polarbookshop.catalogservice.domain.BookChangesMissedEvent;
+import com.polarbookshop.catalogservice.domain.BookPage;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import com.polarbookshop.catalogservice.domain.CatalogWatermark;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The encoded JSON, CBOR or Smile of the books and catalog pages served, so that unchanged books
+ * are not serialized again on every request. A book is cached under its ISBN and format with its
+ * entity tag, and encoded again when another version of it is served. A page is cached under the
+ * catalog version, its query, fields and format, so that any change of the catalog makes the cached pages
+ * unreachable, and they are then evicted as the cache fills up. The entries are weighed by their
+ * size in bytes.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BookResponseCache {
+
+	// Headers of the arrays and of the entry, roughly
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final BookObjectMappers objectMappers;
+	private final PolarProperties.ResponseCache properties;
+	private final Cache<Object, EncodedResponse> cache;
+
+	public BookResponseCache(BookObjectMappers objectMappers, PolarProperties polarProperties, MeterRegistry meterRegistry) {
+		this.objectMappers = objectMappers;
+		this.properties = polarProperties.getResponseCache();
+		this.cache = Caffeine.newBuilder()
+		                     .maximumWeight(properties.getMaxSize()
+		                                              .toBytes())
+		                     .weigher((Object key, EncodedResponse response) -> response.weight())
+		                     .recordStats()
+		                     .build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "books.responses");
+		Gauge.builder("books.responses.cache.size", cache, responses -> responses.policy()
+		                                                                         .eviction()
+		                                                                         .map(eviction -> eviction.weightedSize()
+		                                                                                                  .orElse(0))
+		                                                                         .orElse(0L))
+		     .description("Size of the encoded responses held by the response cache")
+		     .baseUnit("bytes")
+		     .register(meterRegistry);
+	}
+
+	public EncodedResponse book(Book book, BookFormat format) {
+		var tag = BookETags.of(book);
+		if (!properties.isEnabled()) {
+			return encode(format, book, tag, null);
+		}
+		var key = new BookKey(book.isbn(), format);
+		var cached = cache.getIfPresent(key);
+		if (cached != null && cached.tag()
+		                            .equals(tag)) {
+			return cached;
+		}
+		var encoded = encode(format, book, tag, null);
+		cache.put(key, encoded);
+		return encoded;
+	}
+
+	/**
+	 * Returns the encoded page, loading it only when it is not cached for the catalog version.
+	 */
+	public EncodedResponse page(CatalogWatermark watermark, @Nullable String cursor, @Nullable Integer limit, BookSort sort,
+	                            @Nullable String author, Set<BookField> fields, BookFormat format, Supplier<BookPage> loader) {
+		var tag = BookETags.of(watermark);
+		if (!properties.isEnabled()) {
+			var page = loader.get();
+			return encode(format, BookProjection.of(page.books(), fields), tag, page.nextCursor());
+		}
+		var key = new PageKey(watermark.version(), cursor, limit, sort, author, fields, format);
+		var cached = cache.getIfPresent(key);
+		if (cached != null) {
+			return cached;
+		}
+		var page = loader.get();
+		var encoded = encode(format, BookProjection.of(page.books(), fields), tag, page.nextCursor());
+		cache.put(key, encoded);
+		return encoded;
+	}
+
+	@EventListener
+	public void onBookChanged(BookChangedEvent event) {
+		for (var format : BookFormat.values()) {
+			cache.invalidate(new BookKey(event.isbn(), format));
+		}
+	}
+
+	@EventListener(BookChangesMissedEvent.class)
+	public void onBookChangesMissed() {
+		cache.invalidateAll();
+	}
+
+	private EncodedResponse encode(BookFormat format, Object value, String tag, @Nullable String nextCursor) {
+		try {
+			var body = objectMappers.get(format)
+			                        .writeValueAsBytes(value);
+			var gzipped = properties.isGzip() && body.length >= properties.getGzipMinSize()
+			                                                              .toBytes() ? gzip(body) : null;
+			return new EncodedResponse(body, gzipped, tag, nextCursor);
+		} catch (JsonProcessingException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private static byte[] gzip(byte[] body) {
+		var compressed = new ByteArrayOutputStream(body.length / 4);
+		try (var gzip = new GZIPOutputStream(compressed)) {
+			gzip.write(body);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return compressed.toByteArray();
+	}
+
+	/**
+	 * A response body, gzipped too when large enough, with the entity tag of what it encodes and,
+	 * for a page, the cursor of the following page.
+	 */
+	public record EncodedResponse(byte[] body, @Nullable byte[] gzippedBody, String tag, @Nullable String nextCursor) {
+
+		int weight() {
+			return ENTRY_OVERHEAD + body.length + (gzippedBody != null ? gzippedBody.length : 0);
+		}
+	}
+
+	private record BookKey(String isbn, BookFormat format) {}
+
+	private record PageKey(long catalogVersion, @Nullable String cursor, @Nullable Integer limit, BookSort sort,
+	                       @Nullable String author, Set<BookField> fields, BookFormat format) {}
+}
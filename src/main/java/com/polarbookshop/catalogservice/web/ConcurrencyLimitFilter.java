@@ -0,0 +1,103 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.function.IntSupplier;
+
+/**
+ * Sheds the requests to the book endpoints above an adaptive limit with a fast 503, so that
+ * a burst does not leave the request threads blocked on the small connection pool until they
+ * time out. Reads and writes have separate limits. The catalog export is left out, since it
+ * has its own cap and its latency says nothing about overload, and so are the suggestions,
+ * which are served from memory.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+	private static final String EXPORT_PATH = "/books/export";
+	private static final String SUGGEST_PATH = "/books/suggest";
+
+	private final AimdLimiter readLimiter;
+	private final AimdLimiter writeLimiter;
+	private final IntSupplier pendingConnections;
+	private final int maxPendingConnections;
+	private final String retryAfter;
+	private final Counter readRejections;
+	private final Counter writeRejections;
+
+	public ConcurrencyLimitFilter(PolarProperties.ConcurrencyLimit properties, IntSupplier pendingConnections,
+	                              MeterRegistry meterRegistry) {
+		this.readLimiter = new AimdLimiter(properties.getRead());
+		this.writeLimiter = new AimdLimiter(properties.getWrite());
+		this.pendingConnections = pendingConnections;
+		this.maxPendingConnections = properties.getMaxPendingConnections();
+		this.retryAfter = String.valueOf(Math.max(1, properties.getRetryAfter()
+		                                                       .toSeconds()));
+		this.readRejections = registerMeters("read", readLimiter, meterRegistry);
+		this.writeRejections = registerMeters("write", writeLimiter, meterRegistry);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		var uri = request.getRequestURI();
+		return uri.startsWith(EXPORT_PATH) || uri.startsWith(SUGGEST_PATH);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		var read = isRead(request);
+		var limiter = read ? readLimiter : writeLimiter;
+		if (!limiter.tryAcquire()) {
+			(read ? readRejections : writeRejections).increment();
+			reject(response);
+			return;
+		}
+		var start = System.nanoTime();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			limiter.release(System.nanoTime() - start, pendingConnections.getAsInt() > maxPendingConnections);
+		}
+	}
+
+	private void reject(HttpServletResponse response) throws IOException {
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+		response.getWriter()
+		        .write("Too many concurrent requests, try again later.");
+	}
+
+	private static boolean isRead(HttpServletRequest request) {
+		var method = request.getMethod();
+		return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+	}
+
+	private static Counter registerMeters(String kind, AimdLimiter limiter, MeterRegistry meterRegistry) {
+		Gauge.builder("books.concurrency.limit", limiter, AimdLimiter::getLimit)
+		     .description("Current limit on the concurrent requests to the book endpoints")
+		     .tag("kind", kind)
+		     .register(meterRegistry);
+		Gauge.builder("books.concurrency.in.flight", limiter, AimdLimiter::getInFlight)
+		     .description("Requests to the book endpoints being processed")
+		     .tag("kind", kind)
+		     .register(meterRegistry);
+		return Counter.builder("books.concurrency.rejections")
+		              .description("Requests to the book endpoints rejected above the concurrency limit")
+		              .tag("kind", kind)
+		              .register(meterRegistry);
+	}
+}
@@ -0,0 +1,4 @@
+-- A page of the books of an author is read in (author, id) or (author, isbn) order, so that its
+-- cost depends on the size of the page, not on the catalog or on how rare the author is.
+CREATE INDEX book_author_id_idx ON book (author, id);
+CREATE INDEX book_author_isbn_idx ON book (author, isbn);
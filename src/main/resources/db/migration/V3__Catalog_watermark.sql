@@ -0,0 +1,18 @@
+CREATE TABLE catalog_watermark (
+    id                  integer PRIMARY KEY NOT NULL CHECK (id = 1),
+    version             bigint NOT NULL,
+    last_modified_date  timestamp NOT NULL
+);
+
+INSERT INTO catalog_watermark (id, version, last_modified_date) VALUES (1, 0, localtimestamp);
+
+CREATE FUNCTION bump_catalog_watermark() RETURNS trigger AS $$
+BEGIN
+    UPDATE catalog_watermark SET version = version + 1, last_modified_date = localtimestamp WHERE id = 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER catalog_watermark_bump
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON book
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_watermark();
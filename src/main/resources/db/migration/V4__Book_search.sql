@@ -0,0 +1,7 @@
+-- Words of the title (weight A) and of the author (weight B), kept up to date by PostgreSQL.
+-- The 'simple' configuration does not stem, so that prefixes of what users type match.
+ALTER TABLE book ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', title), 'A') || setweight(to_tsvector('simple', author), 'B')
+) STORED;
+
+CREATE INDEX book_search_vector_idx ON book USING GIN (search_vector);
@@ -0,0 +1,22 @@
+-- Books are read in (last_modified_date, id) order by the change feed.
+CREATE INDEX book_last_modified_date_id_idx ON book (last_modified_date, id);
+
+-- Deleted books, kept for a while so that the change feed can report the deletions.
+CREATE TABLE book_tombstone (
+    id                  bigint PRIMARY KEY NOT NULL,
+    isbn                varchar(255) NOT NULL,
+    deleted_date        timestamp NOT NULL
+);
+
+CREATE INDEX book_tombstone_deleted_date_id_idx ON book_tombstone (deleted_date, id);
+
+CREATE FUNCTION record_book_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO book_tombstone (id, isbn, deleted_date) VALUES (OLD.id, OLD.isbn, localtimestamp);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER book_tombstone_record
+    AFTER DELETE ON book
+    FOR EACH ROW EXECUTE FUNCTION record_book_tombstone();
@@ -0,0 +1,32 @@
+-- Every change of a book, written in the transaction of the change and deleted once published.
+CREATE TABLE book_outbox (
+    id                  BIGSERIAL PRIMARY KEY NOT NULL,
+    change_type         varchar(16) NOT NULL,
+    book_id             bigint NOT NULL,
+    isbn                varchar(255) NOT NULL,
+    title               varchar(255) NOT NULL,
+    author              varchar(255) NOT NULL,
+    price               float8 NOT NULL,
+    version             integer NOT NULL,
+    created_date        timestamp NOT NULL,
+    last_modified_date  timestamp NOT NULL,
+    occurred_date       timestamp NOT NULL
+);
+
+CREATE FUNCTION record_book_outbox() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO book_outbox (change_type, book_id, isbn, title, author, price, version, created_date, last_modified_date, occurred_date)
+        VALUES ('DELETED', OLD.id, OLD.isbn, OLD.title, OLD.author, OLD.price, OLD.version, OLD.created_date, OLD.last_modified_date, localtimestamp);
+    ELSE
+        INSERT INTO book_outbox (change_type, book_id, isbn, title, author, price, version, created_date, last_modified_date, occurred_date)
+        VALUES (CASE TG_OP WHEN 'INSERT' THEN 'CREATED' ELSE 'UPDATED' END, NEW.id, NEW.isbn, NEW.title, NEW.author, NEW.price,
+                NEW.version, NEW.created_date, NEW.last_modified_date, localtimestamp);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER book_outbox_record
+    AFTER INSERT OR UPDATE OR DELETE ON book
+    FOR EACH ROW EXECUTE FUNCTION record_book_outbox();
@@ -0,0 +1,49 @@
+-- The ISBN-13 of a book as a number, its canonical key: the number of an ISBN-13, the number of
+-- the ISBN-13 of a valid ISBN-10, or the negated number of an invalid 10-digit ISBN stored before
+-- checksums were validated, so that it stays unique. Mirrored by Isbn.key in the application.
+CREATE FUNCTION isbn_key(isbn varchar) RETURNS bigint AS $$
+DECLARE
+    isbn10_sum  integer := 0;
+    isbn13_sum  integer := 38; -- 9, 7 and 8 of the 978 prefix, weighted 1, 3 and 1
+    digit       integer;
+BEGIN
+    IF isbn ~ '^[0-9]{13}$' THEN
+        RETURN isbn::bigint;
+    END IF;
+    IF isbn !~ '^[0-9]{9}[0-9X]$' THEN
+        RETURN NULL;
+    END IF;
+    FOR i IN 1..9 LOOP
+        digit := substr(isbn, i, 1)::integer;
+        isbn10_sum := isbn10_sum + digit * (11 - i);
+        isbn13_sum := isbn13_sum + digit * CASE WHEN i % 2 = 1 THEN 3 ELSE 1 END;
+    END LOOP;
+    digit := CASE WHEN right(isbn, 1) = 'X' THEN 10 ELSE right(isbn, 1)::integer END;
+    IF (isbn10_sum + digit) % 11 = 0 THEN
+        RETURN ('978' || substr(isbn, 1, 9) || ((10 - isbn13_sum % 10) % 10)::text)::bigint;
+    END IF;
+    IF digit = 10 THEN
+        RETURN NULL;
+    END IF;
+    RETURN -isbn::bigint;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE STRICT;
+
+-- A book stored both as a valid ISBN-10 and as its ISBN-13 keeps the ISBN-13 row. The other row
+-- is deleted, so that the tombstone and outbox triggers report the deletion to the consumers.
+DELETE FROM book isbn10
+USING book isbn13
+WHERE length(isbn10.isbn) = 10 AND isbn_key(isbn10.isbn) > 0
+  AND isbn13.isbn = isbn_key(isbn10.isbn)::text;
+
+-- Valid ISBN-10s are stored as their ISBN-13, like the books added from now on.
+UPDATE book
+SET isbn = isbn_key(isbn)::text, version = version + 1, last_modified_date = localtimestamp
+WHERE length(isbn) = 10 AND isbn_key(isbn) > 0;
+
+ALTER TABLE book ADD COLUMN isbn_key bigint GENERATED ALWAYS AS (isbn_key(isbn)) STORED;
+
+-- Identifies the books whether they are given as ISBN-10 or ISBN-13, now that no book is stored
+-- both ways. The unique constraint of the ISBN strings is kept, as the index the isbn sort orders
+-- and seeks on.
+CREATE UNIQUE INDEX book_isbn_key_idx ON book (isbn_key);
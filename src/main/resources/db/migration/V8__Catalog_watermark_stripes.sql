@@ -0,0 +1,43 @@
+-- The watermark is split into stripes, each connection bumping its own, so that concurrent
+-- writers no longer queue on a single row. The catalog version is the sum of the stripes.
+ALTER TABLE catalog_watermark DROP CONSTRAINT catalog_watermark_id_check;
+ALTER TABLE catalog_watermark ADD CONSTRAINT catalog_watermark_id_check CHECK (id BETWEEN 0 AND 15);
+
+INSERT INTO catalog_watermark (id, version, last_modified_date)
+SELECT stripe, 0, last_modified_date
+FROM generate_series(0, 15) AS stripe, catalog_watermark
+WHERE catalog_watermark.id = 1 AND stripe <> 1;
+
+-- Statements that change no rows, such as an insert of a duplicate ISBN or an update whose
+-- version did not match, leave the watermark alone so that cached responses stay valid.
+CREATE OR REPLACE FUNCTION bump_catalog_watermark() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP <> 'TRUNCATE' THEN
+        IF NOT EXISTS (SELECT 1 FROM changed_rows) THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    UPDATE catalog_watermark SET version = version + 1, last_modified_date = localtimestamp
+    WHERE id = pg_backend_pid() % 16;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables need one trigger per event, and are not available for TRUNCATE.
+DROP TRIGGER catalog_watermark_bump ON book;
+
+CREATE TRIGGER catalog_watermark_bump_insert
+    AFTER INSERT ON book REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_watermark();
+
+CREATE TRIGGER catalog_watermark_bump_update
+    AFTER UPDATE ON book REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_watermark();
+
+CREATE TRIGGER catalog_watermark_bump_delete
+    AFTER DELETE ON book REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_watermark();
+
+CREATE TRIGGER catalog_watermark_bump_truncate
+    AFTER TRUNCATE ON book
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_watermark();
@@ -0,0 +1,3 @@
+-- Set when a publisher takes a batch, so that the other replicas skip the batch while it is
+-- published outside of any transaction, and take it over once the claim has expired.
+ALTER TABLE book_outbox ADD COLUMN claimed_until timestamp;
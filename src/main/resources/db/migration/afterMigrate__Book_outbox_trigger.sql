@@ -0,0 +1,15 @@
+-- Records the book changes in the outbox only while polar.outbox.enabled is set, since nothing
+-- drains it otherwise. Run after every migration, so on every start, and only altering the table,
+-- which locks it, when the trigger is not in the state asked for.
+DO $$
+BEGIN
+    IF ${outbox_enabled} <> EXISTS (SELECT 1 FROM pg_trigger
+                                    WHERE tgrelid = 'book'::regclass AND tgname = 'book_outbox_record' AND tgenabled <> 'D') THEN
+        IF ${outbox_enabled} THEN
+            ALTER TABLE book ENABLE TRIGGER book_outbox_record;
+        ELSE
+            ALTER TABLE book DISABLE TRIGGER book_outbox_record;
+        END IF;
+    END IF;
+END
+$$;
@@ -22,7 +22,7 @@ class CatalogServiceApplicationTests {
 //	@Test
 //	@DisplayName("If a correct GET request is sent with an existing ISBN, the book is returned.")
 //	void getBookEndpointTest() {
-//		var isbn = "1234567890";
+//		var isbn = "9782345678908";
 //		var bookToCreate = Book.builder()
 //		                       .isbn(isbn)
 //		                       .title("Title")
@@ -56,7 +56,7 @@ class CatalogServiceApplicationTests {
 //	@DisplayName("If a correct POST request is sent, then book is created.")
 //	void postBookEndpointTest() {
 //		var bookToCreate = Book.builder()
-//		                       .isbn("1234567891")
+//		                       .isbn("9782345678915")
 //		                       .title("Title")
 //		                       .author("Author")
 //		                       .price(9.90)
@@ -78,7 +78,7 @@ class CatalogServiceApplicationTests {
 //	@Test
 //	@DisplayName("If a correct PUT request is sent, then book is updated.")
 //	void putBookEndpointTest() {
-//		var isbn = "1234567892";
+//		var isbn = "9782345678922";
 //		var bookToCreate = Book.builder()
 //		                       .isbn(isbn)
 //		                       .title("Title")
@@ -121,7 +121,7 @@ class CatalogServiceApplicationTests {
 //	@Test
 //	@DisplayName("If correct DELETE request is sent, then book is deleted.")
 //	void deleteBookEndpointTest() {
-//		var isbn = "1234567893";
+//		var isbn = "9782345678939";
 //		var bookToCreate = Book.builder()
 //		                       .isbn(isbn)
 //		                       .title("Title")
@@ -0,0 +1,89 @@
+package com.polarbookshop.catalogservice.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ConcurrencyLimitedDataSourceTests {
+
+	private DataSource targetDataSource;
+	private ConcurrencyLimitedDataSource dataSource;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		targetDataSource = mock(DataSource.class);
+		given(targetDataSource.getConnection()).willAnswer(invocation -> mock(Connection.class));
+		dataSource = new ConcurrencyLimitedDataSource(targetDataSource, 2, Duration.ofMillis(50));
+	}
+
+	@Test
+	@DisplayName("When every permit is taken, then borrowing a connection fails after the timeout.")
+	void testTimeoutWhenExhausted() throws SQLException {
+		dataSource.getConnection();
+		dataSource.getConnection();
+
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class)
+		                                             .hasMessage("No database connection available within 50 ms.");
+	}
+
+	@Test
+	@DisplayName("When a connection is closed, then its permit is given back once, even if closed twice.")
+	void testCloseReleasesPermitOnce() throws SQLException {
+		var connection = dataSource.getConnection();
+		assertThat(dataSource.getAvailablePermits()).isEqualTo(1);
+
+		connection.close();
+		connection.close();
+
+		assertThat(dataSource.getAvailablePermits()).isEqualTo(2);
+		verify(((ConnectionProxy) connection).getTargetConnection(), times(2)).close();
+	}
+
+	@Test
+	@DisplayName("When the pool fails to provide a connection, then the permit is given back.")
+	void testReleaseOnFailure() throws SQLException {
+		given(targetDataSource.getConnection()).willThrow(new SQLException("Connection refused"));
+
+		assertThatThrownBy(dataSource::getConnection).hasMessage("Connection refused");
+		assertThat(dataSource.getAvailablePermits()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("When threads wait for a permit, then they are reported in the queue length.")
+	void testQueueLength() throws Exception {
+		var limitedDataSource = new ConcurrencyLimitedDataSource(targetDataSource, 1, Duration.ofSeconds(10));
+		var connection = limitedDataSource.getConnection();
+		var waiter = new Thread(() -> {
+			try {
+				limitedDataSource.getConnection()
+				                 .close();
+			} catch (SQLException exception) {
+				throw new IllegalStateException(exception);
+			}
+		});
+		waiter.start();
+		while (limitedDataSource.getQueueLength() == 0) {
+			Thread.onSpinWait();
+		}
+
+		assertThat(limitedDataSource.getQueueLength()).isEqualTo(1);
+
+		connection.close();
+		waiter.join();
+		assertThat(limitedDataSource.getQueueLength()).isZero();
+	}
+}
@@ -0,0 +1,146 @@
+package com.polarbookshop.catalogservice.config;
+
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ReplicaRoutingDataSourceTests {
+
+	private final Connection primaryConnection = mock(Connection.class);
+	private final Connection replicaConnection = mock(Connection.class);
+
+	private DataSource primary;
+	private DataSource replica;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		primary = mock(DataSource.class);
+		replica = mock(DataSource.class);
+		given(primary.getConnection()).willReturn(primaryConnection);
+		given(replica.getConnection()).willReturn(replicaConnection);
+		given(replicaConnection.isValid(1)).willReturn(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	@DisplayName("When a transaction is read-only, then it reads the replica, and every other one uses the primary.")
+	void testRoutesReadOnlyTransactionsToReplica() throws SQLException {
+		var dataSource = routingDataSource(Duration.ZERO);
+
+		assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+	}
+
+	@Test
+	@DisplayName("When a connection is asked for with credentials, then they are passed to the pool chosen as without.")
+	void testRoutesConnectionsWithCredentials() throws SQLException {
+		var dataSource = routingDataSource(Duration.ZERO);
+		var credentialsConnection = mock(Connection.class);
+		given(primary.getConnection("reader", "secret")).willReturn(credentialsConnection);
+		given(replica.getConnection("reader", "secret")).willThrow(new SQLFeatureNotSupportedException("Not supported"));
+
+		assertThat(dataSource.getConnection("reader", "secret")).isSameAs(credentialsConnection);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertThatThrownBy(() -> dataSource.getConnection("reader", "secret")).isInstanceOf(SQLFeatureNotSupportedException.class);
+		assertThat(dataSource.isReplicaHealthy()).isTrue();
+	}
+
+	@Test
+	@DisplayName("When a client has just changed a book, then its reads go to the primary until its window ends, and those of the other clients do not.")
+	void testReadYourWritesWindow() throws SQLException {
+		var dataSource = routingDataSource(Duration.ofMinutes(1));
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		var writeResponse = new MockHttpServletResponse();
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), writeResponse));
+
+		dataSource.onBookChanged(new BookChangedEvent("1234567890", BookChangedEvent.Type.UPDATED));
+
+		assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+		var cookie = writeResponse.getCookie(ReplicaRoutingDataSource.READ_YOUR_WRITES_COOKIE);
+		assertThat(cookie).isNotNull();
+		assertThat(cookie.getMaxAge()).isEqualTo(60);
+
+		assertThat(connectionFor(dataSource, cookie)).isSameAs(primaryConnection);
+		assertThat(connectionFor(dataSource)).isSameAs(replicaConnection);
+		assertThat(connectionFor(dataSource, new Cookie(ReplicaRoutingDataSource.READ_YOUR_WRITES_COOKIE,
+		                                                Long.toString(System.currentTimeMillis() - 1)))).isSameAs(replicaConnection);
+		assertThat(connectionFor(routingDataSource(Duration.ZERO), cookie)).isSameAs(replicaConnection);
+	}
+
+	@Test
+	@DisplayName("When a change is notified outside of any request, then no client reads the primary for it.")
+	void testNotifiedChangeStartsNoWindow() throws SQLException {
+		var dataSource = routingDataSource(Duration.ofMinutes(1));
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		dataSource.onBookChanged(new BookChangedEvent("1234567890", BookChangedEvent.Type.UPDATED));
+
+		assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+		assertThat(connectionFor(dataSource)).isSameAs(replicaConnection);
+	}
+
+	@Test
+	@DisplayName("When the replica is unreachable, then the reads fall back to the primary until a check reaches it again.")
+	void testFallbackToPrimary() throws SQLException {
+		var dataSource = routingDataSource(Duration.ZERO);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		given(replica.getConnection()).willThrow(new SQLTransientConnectionException("Connection refused"));
+
+		assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+		assertThat(dataSource.isReplicaHealthy()).isFalse();
+		dataSource.checkReplica();
+		assertThat(dataSource.isReplicaHealthy()).isFalse();
+
+		willReturn(replicaConnection).given(replica)
+		                             .getConnection();
+		dataSource.checkReplica();
+
+		assertThat(dataSource.isReplicaHealthy()).isTrue();
+		assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+		verify(replicaConnection).close();
+		verify(primaryConnection, never()).close();
+	}
+
+	private static Connection connectionFor(ReplicaRoutingDataSource dataSource, Cookie... cookies) throws SQLException {
+		var request = new MockHttpServletRequest();
+		if (cookies.length > 0) {
+			request.setCookies(cookies);
+		}
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		return dataSource.getConnection();
+	}
+
+	private ReplicaRoutingDataSource routingDataSource(Duration readYourWritesWindow) {
+		return new ReplicaRoutingDataSource(primary, replica, readYourWritesWindow, new SimpleMeterRegistry());
+	}
+}
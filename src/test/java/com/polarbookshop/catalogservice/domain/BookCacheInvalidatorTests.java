@@ -0,0 +1,57 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BookCacheInvalidatorTests {
+
+	private ConcurrentMapCacheManager cacheManager;
+	private BookCacheInvalidator bookCacheInvalidator;
+
+	@BeforeEach
+	void setUp() {
+		cacheManager = new ConcurrentMapCacheManager(BookCacheInvalidator.BOOKS_CACHE);
+		bookCacheInvalidator = new BookCacheInvalidator(cacheManager);
+		var cache = cacheManager.getCache(BookCacheInvalidator.BOOKS_CACHE);
+		cache.put("1234567891", Book.builder()
+		                            .isbn("1234567891")
+		                            .build());
+		cache.put("1234567892", Book.builder()
+		                            .isbn("1234567892")
+		                            .build());
+	}
+
+	@Test
+	@DisplayName("When another replica notifies an update, then only the updated book is evicted.")
+	void testEvictOnNotification() {
+		var event = BookChangedEvent.fromNotification("UPDATE:1234567891");
+		assertThat(event).isEqualTo(new BookChangedEvent("1234567891", BookChangedEvent.Type.UPDATED));
+
+		bookCacheInvalidator.onBookChanged(event);
+
+		var cache = cacheManager.getCache(BookCacheInvalidator.BOOKS_CACHE);
+		assertThat(cache.get("1234567891")).isNull();
+		assertThat(cache.get("1234567892")).isNotNull();
+	}
+
+	@Test
+	@DisplayName("When change notifications may have been missed, then the whole cache is cleared.")
+	void testClearOnMissedChanges() {
+		bookCacheInvalidator.onBookChangesMissed();
+
+		var cache = cacheManager.getCache(BookCacheInvalidator.BOOKS_CACHE);
+		assertThat(cache.get("1234567891")).isNull();
+		assertThat(cache.get("1234567892")).isNull();
+	}
+
+	@Test
+	@DisplayName("When a notification payload is malformed, then it is rejected.")
+	void testMalformedNotification() {
+		assertThatThrownBy(() -> BookChangedEvent.fromNotification("TRUNCATE")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
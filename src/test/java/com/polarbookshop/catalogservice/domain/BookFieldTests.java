@@ -0,0 +1,27 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BookFieldTests {
+
+	@Test
+	@DisplayName("When fields are parsed, then they are returned in the order of the book, and all of them when none is given.")
+	void testParseFields() {
+		assertThat(BookField.parse(" price, isbn ,title")).containsExactly(BookField.ISBN, BookField.TITLE, BookField.PRICE);
+		assertThat(BookField.parse("lastModifiedDate")).containsExactly(BookField.LAST_MODIFIED_DATE);
+		assertThat(BookField.parse(null)).isSameAs(BookField.ALL);
+		assertThat(BookField.parse("")).isSameAs(BookField.ALL);
+	}
+
+	@Test
+	@DisplayName("When a field is not one of the book properties, then InvalidBookRequestException is thrown.")
+	void testParseUnknownField() {
+		assertThatThrownBy(() -> BookField.parse("isbn,last_modified_date")).isInstanceOf(InvalidBookRequestException.class);
+		assertThatThrownBy(() -> BookField.parse("isbn,")).isInstanceOf(InvalidBookRequestException.class);
+		assertThatThrownBy(() -> BookField.parse("search_vector")).isInstanceOf(InvalidBookRequestException.class);
+	}
+}
@@ -0,0 +1,95 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookIsbnFilterTests {
+
+	@Mock
+	private BookRepository bookRepository;
+
+	private SimpleMeterRegistry meterRegistry;
+	private BookIsbnFilter bookIsbnFilter;
+
+	@BeforeEach
+	void setUp() {
+		var polarProperties = new PolarProperties();
+		polarProperties.getIsbnFilter()
+		               .setExpectedInsertions(10_000);
+		meterRegistry = new SimpleMeterRegistry();
+		bookIsbnFilter = new BookIsbnFilter(bookRepository, polarProperties, meterRegistry);
+	}
+
+	@Test
+	@DisplayName("When the filter has not been built yet, then every ISBN might exist.")
+	void testNotBuiltFilterLetsEverythingThrough() {
+		assertThat(bookIsbnFilter.mightContain("1234567890")).isTrue();
+	}
+
+	@Test
+	@DisplayName("When the filter is built, then catalog ISBNs might exist and most unknown ISBNs are rejected.")
+	void testBuiltFilter() {
+		when(bookRepository.count()).thenReturn(1000L);
+		doAnswer(invocation -> {
+			Consumer<String> consumer = invocation.getArgument(0);
+			LongStream.range(0, 1000)
+			          .forEach(i -> consumer.accept(String.valueOf(9780000000000L + i)));
+			return null;
+		}).when(bookRepository)
+		  .forEachIsbn(any());
+
+		bookIsbnFilter.rebuild();
+
+		assertThat(LongStream.range(0, 1000)
+		                     .allMatch(i -> bookIsbnFilter.mightContain(String.valueOf(9780000000000L + i)))).isTrue();
+		var falsePositives = LongStream.range(0, 10_000)
+		                               .filter(i -> bookIsbnFilter.mightContain(String.valueOf(9790000000000L + i)))
+		                               .count();
+		assertThat(falsePositives).isLessThan(100);
+		assertThat(meterRegistry.get("books.isbn.filter.rejections")
+		                        .counter()
+		                        .count()).isEqualTo(10_000 - falsePositives);
+	}
+
+	@Test
+	@DisplayName("When a book is created after the filter is built, then its ISBN might exist.")
+	void testCreatedBookIsAdded() {
+		when(bookRepository.count()).thenReturn(0L);
+		bookIsbnFilter.rebuild();
+		assertThat(bookIsbnFilter.mightContain("9781234567897")).isFalse();
+
+		bookIsbnFilter.onBookChanged(new BookChangedEvent("9781234567897", BookChangedEvent.Type.CREATED));
+
+		assertThat(bookIsbnFilter.mightContain("9781234567897")).isTrue();
+	}
+
+	@Test
+	@DisplayName("When change notifications are disabled, then the filter is not built and every ISBN might exist.")
+	void testDisabledWithoutChangeNotifications() {
+		var polarProperties = new PolarProperties();
+		polarProperties.getChangeNotifications()
+		               .setEnabled(false);
+		var filter = new BookIsbnFilter(bookRepository, polarProperties, meterRegistry);
+
+		filter.rebuild();
+
+		assertThat(filter.mightContain("9781234567897")).isTrue();
+		verifyNoInteractions(bookRepository);
+	}
+}
@@ -1,15 +1,40 @@
 package com.polarbookshop.catalogservice.domain;
 
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -18,30 +43,531 @@ public class BookServiceTests {
 	@Mock
 	private BookRepository bookRepository;
 
+	@Spy
+	private PolarProperties polarProperties = new PolarProperties();
+
+	@Spy
+	private Validator validator = Validation.buildDefaultValidatorFactory()
+	                                        .getValidator();
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@Mock
+	private BookIsbnFilter bookIsbnFilter;
+
+	@Mock
+	private BookSuggestionIndex bookSuggestionIndex;
+
+	@Mock
+	private InMemoryBookCatalog inMemoryBookCatalog;
+
+	@Spy
+	private SingleFlight<String, Book> bookLoads = new SingleFlight<>(new SimpleMeterRegistry().counter("books.lookup.coalesced"));
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
 	@InjectMocks
 	private BookService bookService;
 
 	@Test
 	@DisplayName("When a book already exists, then BookAlreadyExistsException is thrown.")
 	void testBookAlreadyExists() {
-		var isbn = "1234567892";
+		var isbn = "9782345678922";
 		var bookToCreate = Book.builder()
 		                       .isbn(isbn)
 		                       .title("Title")
 		                       .author("Author")
 		                       .price(9.90)
 		                       .build();
-		when(bookRepository.existsByIsbn(isbn)).thenReturn(true);
+		when(bookRepository.insertIfAbsent(bookToCreate)).thenReturn(Optional.empty());
 		assertThatThrownBy(() -> bookService.addBookToCatalog(bookToCreate)).isInstanceOf(BookAlreadyExistsException.class)
 		                                                                    .hasMessage(String.format("A book with ISBN %s already exists.", isbn));
 	}
 
+	@Test
+	@DisplayName("When a book is added, then the persisted book is returned from a single repository call.")
+	void testAddBookInSingleStatement() {
+		var bookToCreate = Book.builder()
+		                       .isbn("9782345678922")
+		                       .title("Title")
+		                       .author("Author")
+		                       .price(9.90)
+		                       .build();
+		var persistedBook = Book.builder()
+		                        .id(1L)
+		                        .isbn(bookToCreate.isbn())
+		                        .title(bookToCreate.title())
+		                        .author(bookToCreate.author())
+		                        .price(bookToCreate.price())
+		                        .version(1)
+		                        .build();
+		when(bookRepository.insertIfAbsent(bookToCreate)).thenReturn(Optional.of(persistedBook));
+
+		assertThat(bookService.addBookToCatalog(bookToCreate)).isEqualTo(persistedBook);
+		verify(bookRepository).insertIfAbsent(bookToCreate);
+		verifyNoMoreInteractions(bookRepository);
+		verify(eventPublisher).publishEvent(new BookChangedEvent(bookToCreate.isbn(), BookChangedEvent.Type.CREATED));
+	}
+
+	@Test
+	@DisplayName("When the insert of a book hits the unique ISBN constraint, then BookAlreadyExistsException is thrown.")
+	void testBookAlreadyExistsOnUniqueViolation() {
+		var isbn = "9782345678922";
+		var bookToCreate = Book.builder()
+		                       .isbn(isbn)
+		                       .title("Title")
+		                       .author("Author")
+		                       .price(9.90)
+		                       .build();
+		when(bookRepository.insertIfAbsent(bookToCreate)).thenThrow(new DuplicateKeyException("book_isbn_key"));
+		assertThatThrownBy(() -> bookService.addBookToCatalog(bookToCreate)).isInstanceOf(BookAlreadyExistsException.class);
+	}
+
+	@Test
+	@DisplayName("When a batch of books is added, then each book is reported as created, duplicate or invalid in chunked inserts.")
+	void testAddBooksInChunks() {
+		polarProperties.getBatch()
+		               .setChunkSize(2);
+		var created = Book.builder()
+		                  .isbn("9782345678915")
+		                  .title("Title")
+		                  .author("Author")
+		                  .price(9.90)
+		                  .build();
+		var invalid = Book.builder()
+		                  .isbn("9782345678922")
+		                  .title("")
+		                  .author("Author")
+		                  .price(9.90)
+		                  .build();
+		var duplicate = Book.builder()
+		                    .isbn("9782345678939")
+		                    .title("Title")
+		                    .author("Author")
+		                    .price(9.90)
+		                    .build();
+		var last = Book.builder()
+		               .isbn("9782345678946")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .build();
+		var storedCreated = Book.builder()
+		                    .id(1L)
+		                    .isbn(created.isbn())
+		                    .title(created.title())
+		                    .author(created.author())
+		                    .price(created.price())
+		                    .version(1)
+		                    .build();
+		var storedLast = Book.builder()
+		                 .id(2L)
+		                 .isbn(last.isbn())
+		                 .title(last.title())
+		                 .author(last.author())
+		                 .price(last.price())
+		                 .version(1)
+		                 .build();
+		when(bookRepository.insertAllIfAbsent(anyList())).thenReturn(new int[] {1, 0}, new int[] {1});
+		when(bookRepository.findAllByIsbn(List.of(created.isbn()))).thenReturn(List.of(storedCreated));
+		when(bookRepository.findAllByIsbn(List.of(last.isbn()))).thenReturn(List.of(storedLast));
+
+		var results = bookService.addBooksToCatalog(List.of(created, invalid, duplicate, last)
+		                                                .iterator());
+
+		assertThat(results).extracting(BookBatchResult::status)
+		                   .containsExactly(BookBatchResult.Status.CREATED, BookBatchResult.Status.INVALID,
+		                                    BookBatchResult.Status.DUPLICATE, BookBatchResult.Status.CREATED);
+		assertThat(results.get(1)
+		                  .errors()).containsEntry("title", "The book title must be defined.");
+		verify(bookRepository).insertAllIfAbsent(List.of(created, duplicate));
+		verify(bookRepository).insertAllIfAbsent(List.of(last));
+		var inOrder = inOrder(transactionManager, bookSuggestionIndex, eventPublisher);
+		inOrder.verify(transactionManager)
+		       .commit(any());
+		inOrder.verify(bookSuggestionIndex)
+		       .add(storedCreated);
+		inOrder.verify(eventPublisher)
+		       .publishEvent(new BookChangedEvent(created.isbn(), BookChangedEvent.Type.CREATED));
+		inOrder.verify(transactionManager)
+		       .commit(any());
+		inOrder.verify(bookSuggestionIndex)
+		       .add(storedLast);
+		verify(inMemoryBookCatalog).put(storedCreated);
+		verify(inMemoryBookCatalog).put(storedLast);
+		verify(transactionManager, times(2)).getTransaction(argThat(definition -> definition.getTimeout() == 5));
+	}
+
+	@Test
+	@DisplayName("When a batch holds a null book, then it is reported as invalid and the others are still added.")
+	void testAddBooksWithNull() {
+		var book = Book.builder()
+		               .isbn("9782345678915")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .build();
+		when(bookRepository.insertAllIfAbsent(anyList())).thenReturn(new int[] {1});
+		when(bookRepository.findAllByIsbn(List.of(book.isbn()))).thenReturn(List.of(book));
+
+		var results = bookService.addBooksToCatalog(Arrays.asList(null, book)
+		                                                  .iterator());
+
+		assertThat(results).containsExactly(new BookBatchResult(0, null, BookBatchResult.Status.INVALID, Map.of("book", "The book must be defined.")),
+		                                    new BookBatchResult(1, book.isbn(), BookBatchResult.Status.CREATED, Map.of()));
+		verify(bookRepository).insertAllIfAbsent(List.of(book));
+	}
+
+	@Test
+	@DisplayName("When a batch holds more books than allowed, then InvalidBookRequestException is thrown.")
+	void testAddBooksOverLimit() {
+		polarProperties.getBatch()
+		               .setMaxItems(1);
+		var book = Book.builder()
+		               .isbn("9782345678915")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .build();
+		assertThatThrownBy(() -> bookService.addBooksToCatalog(List.of(book, book)
+		                                                           .iterator())).isInstanceOf(InvalidBookRequestException.class);
+		verifyNoInteractions(bookRepository, transactionManager);
+	}
+
+	@Test
+	@DisplayName("When an existing book is edited, then it is updated and returned from a single repository call.")
+	void testEditBookInSingleStatement() {
+		var isbn = "9782345678922";
+		var bookToUpdate = Book.builder()
+		                       .isbn(isbn)
+		                       .title("Title")
+		                       .author("Author")
+		                       .price(7.45)
+		                       .build();
+		var updatedBook = Book.builder()
+		                      .id(1L)
+		                      .isbn(isbn)
+		                      .title("Title")
+		                      .author("Author")
+		                      .price(7.45)
+		                      .version(2)
+		                      .build();
+		when(bookRepository.updateIfMatches(isbn, bookToUpdate, null)).thenReturn(Optional.of(updatedBook));
+
+		assertThat(bookService.editBook(isbn, bookToUpdate)).isEqualTo(updatedBook);
+		verify(bookRepository).updateIfMatches(isbn, bookToUpdate, null);
+		verifyNoMoreInteractions(bookRepository);
+		verify(eventPublisher).publishEvent(new BookChangedEvent(isbn, BookChangedEvent.Type.UPDATED));
+	}
+
+	@Test
+	@DisplayName("When a book is deleted, then a change event invalidating it is published.")
+	void testDeleteBookPublishesChange() {
+		var isbn = "9782345678922";
+		bookService.deleteBookFromCatalog(isbn);
+		verify(bookRepository).deleteByIsbn(isbn);
+		verify(eventPublisher).publishEvent(new BookChangedEvent(isbn, BookChangedEvent.Type.DELETED));
+	}
+
+	@Test
+	@DisplayName("When a book is edited at a version it is no longer at, then BookVersionMismatchException is thrown.")
+	void testEditBookVersionMismatch() {
+		var isbn = "9782345678922";
+		var bookToUpdate = Book.builder()
+		                       .isbn(isbn)
+		                       .title("Title")
+		                       .author("Author")
+		                       .price(7.45)
+		                       .build();
+		var precondition = BookPrecondition.of(7L, 1);
+		when(bookRepository.updateIfMatches(isbn, bookToUpdate, precondition)).thenReturn(Optional.empty());
+		when(bookRepository.existsByIsbn(isbn)).thenReturn(true);
+		assertThatThrownBy(() -> bookService.editBook(isbn, bookToUpdate, precondition)).isInstanceOf(BookVersionMismatchException.class)
+		                                                                                .hasMessage(String.format("The book with ISBN %s is not book 7 at version 1.", isbn));
+	}
+
+	@Test
+	@DisplayName("When a book is edited at several versions it is at none of, then BookVersionMismatchException names them all.")
+	void testEditBookVersionsMismatch() {
+		var isbn = "9782345678922";
+		var bookToUpdate = Book.builder()
+		                       .isbn(isbn)
+		                       .title("Title")
+		                       .author("Author")
+		                       .price(7.45)
+		                       .build();
+		var precondition = BookPrecondition.anyOf(List.of(new BookPrecondition.Version(7L, 1), new BookPrecondition.Version(null, 2)));
+		when(bookRepository.updateIfMatches(isbn, bookToUpdate, precondition)).thenReturn(Optional.empty());
+		when(bookRepository.existsByIsbn(isbn)).thenReturn(true);
+		assertThatThrownBy(() -> bookService.editBook(isbn, bookToUpdate, precondition)).isInstanceOf(BookVersionMismatchException.class)
+		                                                                                .hasMessage(String.format("The book with ISBN %s is at none of the versions 7-1, 2.", isbn));
+	}
+
+	@Test
+	@DisplayName("When a book is edited under a precondition no book matches, then BookVersionMismatchException is thrown without an update.")
+	void testEditBookUnsatisfiablePrecondition() {
+		var isbn = "9782345678922";
+		var bookToUpdate = Book.builder()
+		                       .isbn(isbn)
+		                       .title("Title")
+		                       .author("Author")
+		                       .price(7.45)
+		                       .build();
+		when(bookRepository.existsByIsbn(isbn)).thenReturn(true);
+		assertThatThrownBy(() -> bookService.editBook(isbn, bookToUpdate, BookPrecondition.UNSATISFIABLE)).isInstanceOf(BookVersionMismatchException.class);
+		verify(bookRepository, never()).updateIfMatches(any(), any(), any());
+	}
+
+	@Test
+	@DisplayName("When a book that does not exist is edited under a precondition, then BookNotFoundException is thrown and nothing is created.")
+	void testEditMissingBookWithPrecondition() {
+		var isbn = "9782345678922";
+		var bookToUpdate = Book.builder()
+		                       .isbn(isbn)
+		                       .title("Title")
+		                       .author("Author")
+		                       .price(7.45)
+		                       .build();
+		var precondition = BookPrecondition.of(7L, 1);
+		when(bookRepository.updateIfMatches(isbn, bookToUpdate, precondition)).thenReturn(Optional.empty());
+		when(bookRepository.existsByIsbn(isbn)).thenReturn(false);
+		assertThatThrownBy(() -> bookService.editBook(isbn, bookToUpdate, precondition)).isInstanceOf(BookNotFoundException.class);
+		verify(bookRepository, never()).save(any());
+	}
+
+	@Test
+	@DisplayName("When several books are looked up, then they are loaded in one query and the missing ISBNs are reported.")
+	void testLookupBooks() {
+		var first = Book.builder()
+		                .isbn("9782345678915")
+		                .build();
+		var third = Book.builder()
+		                .isbn("9782345678939")
+		                .build();
+		var isbns = List.of("9782345678939", "9782345678922", "9782345678915", "9782345678939", "9782345678946");
+		when(bookIsbnFilter.mightContain(anyString())).thenReturn(true);
+		when(bookIsbnFilter.mightContain("9782345678946")).thenReturn(false);
+		when(bookRepository.findAllByIsbn(List.of("9782345678939", "9782345678922", "9782345678915"))).thenReturn(List.of(first, third));
+
+		var lookup = bookService.getBooks(isbns);
+
+		assertThat(lookup.books()).containsExactly(third, first);
+		assertThat(lookup.missing()).containsExactly("9782345678922", "9782345678946");
+		verify(bookRepository).findAllByIsbn(List.of("9782345678939", "9782345678922", "9782345678915"));
+		verifyNoMoreInteractions(bookRepository);
+	}
+
+	@Test
+	@DisplayName("When the in-memory catalog serves some ISBNs, then only the others are queried.")
+	void testLookupBooksFromMemory() {
+		var first = Book.builder()
+		                .isbn("9782345678915")
+		                .build();
+		var second = Book.builder()
+		                 .isbn("9782345678922")
+		                 .build();
+		when(inMemoryBookCatalog.serves(anyString())).thenReturn(true);
+		when(inMemoryBookCatalog.serves("9782345678922")).thenReturn(false);
+		when(inMemoryBookCatalog.find("9782345678915")).thenReturn(Optional.of(first));
+		when(inMemoryBookCatalog.find("9782345678939")).thenReturn(Optional.empty());
+		when(bookIsbnFilter.mightContain("9782345678922")).thenReturn(true);
+		when(bookRepository.findAllByIsbn(List.of("9782345678922"))).thenReturn(List.of(second));
+
+		var lookup = bookService.getBooks(List.of("9782345678915", "9782345678922", "9782345678939"));
+
+		assertThat(lookup.books()).containsExactly(first, second);
+		assertThat(lookup.missing()).containsExactly("9782345678939");
+		assertThatThrownBy(() -> bookService.getBook("9782345678939")).isInstanceOf(BookNotFoundException.class);
+		verify(bookRepository).findAllByIsbn(List.of("9782345678922"));
+		verifyNoMoreInteractions(bookRepository);
+	}
+
+	@Test
+	@DisplayName("When more ISBNs than allowed are looked up, then InvalidBookRequestException is thrown.")
+	void testLookupTooManyBooks() {
+		polarProperties.getLookup()
+		               .setMaxIsbns(1);
+		assertThatThrownBy(() -> bookService.getBooks(List.of("9782345678915", "9782345678922"))).isInstanceOf(InvalidBookRequestException.class);
+	}
+
+	@Test
+	@DisplayName("When more exports than allowed run at once, then BookExportUnavailableException is thrown until a permit is given back.")
+	void testConcurrentExportLimit() {
+		var permit = bookService.acquireExportPermit();
+
+		assertThatThrownBy(() -> bookService.acquireExportPermit()).isInstanceOf(BookExportUnavailableException.class);
+
+		permit.close();
+		permit.close();
+		var next = bookService.acquireExportPermit();
+
+		assertThatThrownBy(() -> bookService.acquireExportPermit()).isInstanceOf(BookExportUnavailableException.class);
+		next.close();
+	}
+
 	@Test
 	@DisplayName("When a non existing book is requested, then BookNotFoundException is thrown.")
 	void testNotExistingBook() {
-		var isbn = "1234567892";
+		var isbn = "9782345678922";
+		when(bookIsbnFilter.mightContain(isbn)).thenReturn(true);
 		when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.empty());
 		assertThatThrownBy(() -> bookService.getBook(isbn)).isInstanceOf(BookNotFoundException.class)
 		                                                   .hasMessage(String.format("The book with ISBN %s was not found.", isbn));
 	}
+
+	@Test
+	@DisplayName("When the ISBN filter rules a book out, then BookNotFoundException is thrown without querying the repository.")
+	void testNotExistingBookRejectedByFilter() {
+		var isbn = "9782345678922";
+		when(bookIsbnFilter.mightContain(isbn)).thenReturn(false);
+		assertThatThrownBy(() -> bookService.getBook(isbn)).isInstanceOf(BookNotFoundException.class)
+		                                                   .hasMessage(String.format("The book with ISBN %s was not found.", isbn))
+		                                                   .satisfies(exception -> assertThat(exception.getStackTrace()).isEmpty());
+		verifyNoMoreInteractions(bookRepository);
+	}
+
+	@Test
+	@DisplayName("When more books follow the requested page, then the page is trimmed and a cursor to the next one is returned.")
+	void testBookPageWithNextCursor() {
+		var first = Book.builder()
+		                .id(1L)
+		                .isbn("9782345678915")
+		                .build();
+		var second = Book.builder()
+		                 .id(2L)
+		                 .isbn("9782345678922")
+		                 .build();
+		var third = Book.builder()
+		                .id(3L)
+		                .isbn("9782345678939")
+		                .build();
+		when(bookRepository.findPage(BookSort.ID, null, null, 3, BookField.ALL)).thenReturn(List.of(first, second, third));
+
+		var page = bookService.getBooks(null, 2, BookSort.ID, null, BookField.ALL);
+
+		assertThat(page.books()).containsExactly(first, second);
+		assertThat(BookCursor.decode(page.nextCursor())).isEqualTo(new BookCursor(BookSort.ID, "2"));
+	}
+
+	@Test
+	@DisplayName("When a cursor is passed, then the page resumes after its key in the order it was created with.")
+	void testBookPageResumesFromCursor() {
+		var cursor = new BookCursor(BookSort.ISBN_DESC, "9782345678922").encode();
+		var last = Book.builder()
+		               .id(1L)
+		               .isbn("9782345678915")
+		               .build();
+		when(bookRepository.findPage(BookSort.ISBN_DESC, "9782345678922", null, 21, BookField.ALL)).thenReturn(List.of(last));
+
+		var page = bookService.getBooks(cursor, null, BookSort.ID, null, BookField.ALL);
+
+		assertThat(page.books()).containsExactly(last);
+		assertThat(page.nextCursor()).isNull();
+	}
+
+	@Test
+	@DisplayName("When a page larger than the maximum is requested, then the maximum page size is used.")
+	void testBookPageSizeIsCapped() {
+		when(bookRepository.findPage(BookSort.ID, null, null, 101, BookField.ALL)).thenReturn(List.of());
+
+		var page = bookService.getBooks(null, 5000, BookSort.ID, null, BookField.ALL);
+
+		assertThat(page.books()).isEmpty();
+		assertThat(page.nextCursor()).isNull();
+	}
+
+	@Test
+	@DisplayName("When a malformed cursor is passed, then InvalidBookRequestException is thrown.")
+	void testInvalidCursor() {
+		assertThatThrownBy(() -> bookService.getBooks("not-a-cursor", null, BookSort.ID, null, BookField.ALL)).isInstanceOf(InvalidBookRequestException.class);
+	}
+
+	@Test
+	@DisplayName("When a search query is parsed, then its words become prefix terms that cannot inject tsquery operators.")
+	void testSearchQuery() {
+		var query = BookSearchQuery.parse("  Lord of the RING's | !x:* ", 8);
+
+		assertThat(query.terms()).containsExactly("lord", "of", "the", "ring", "s", "x");
+		assertThat(query.toTsQuery()).isEqualTo("lord:* & of:* & the:* & ring:* & s:* & x:*");
+		assertThatThrownBy(() -> BookSearchQuery.parse("&|!", 8)).isInstanceOf(InvalidBookRequestException.class);
+	}
+
+	@Test
+	@DisplayName("When more matches follow the requested search page, then the page is trimmed and the next page number is returned.")
+	void testSearchNextPage() {
+		var first = Book.builder()
+		                .id(1L)
+		                .build();
+		var second = Book.builder()
+		                 .id(2L)
+		                 .build();
+		var third = Book.builder()
+		                .id(3L)
+		                .build();
+		when(bookRepository.search(new BookSearchQuery(List.of("tolkien")), 2, 3, 1000)).thenReturn(List.of(first, second, third));
+
+		var result = bookService.searchBooks("Tolkien", 1, 2);
+
+		assertThat(result.books()).containsExactly(first, second);
+		assertThat(result.nextPage()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("When a search page reaches the maximum number of results, then it is cut there and no next page is returned.")
+	void testSearchIsCapped() {
+		polarProperties.getSearch()
+		               .setMaxResults(25);
+		when(bookRepository.search(new BookSearchQuery(List.of("tolkien")), 20, 5, 25)).thenReturn(List.of());
+
+		assertThat(bookService.searchBooks("tolkien", 1, 20)
+		                      .nextPage()).isNull();
+		assertThat(bookService.searchBooks("tolkien", 2, 20)
+		                      .books()).isEmpty();
+		verify(bookRepository).search(any(), eq(20), eq(5), eq(25));
+		verifyNoMoreInteractions(bookRepository);
+	}
+
+	@Test
+	@DisplayName("When changes are read, then the next cursor follows the last change and recent changes are held back.")
+	void testChangesNextCursor() {
+		var modifiedDate = Instant.now()
+		                          .minus(Duration.ofMinutes(5));
+		var since = new BookChangeCursor(modifiedDate, 7);
+		var deletion = BookChange.deleted(9, "9782345678915", modifiedDate.plusSeconds(1));
+		when(bookRepository.findChanges(eq(since), argThat(settledBefore -> settledBefore.isBefore(Instant.now()
+		                                                                                                 .minusSeconds(9))), eq(2)))
+				.thenReturn(List.of(deletion));
+
+		var page = bookService.getChanges(since.encode(), 2);
+
+		assertThat(page.changes()).containsExactly(deletion);
+		assertThat(BookChangeCursor.decode(page.nextCursor())).isEqualTo(new BookChangeCursor(deletion.modifiedDate(), 9));
+	}
+
+	@Test
+	@DisplayName("When there are no new changes, then the next cursor is the one given.")
+	void testNoChangesKeepCursor() {
+		var since = Instant.now()
+		                   .minus(Duration.ofDays(1));
+		when(bookRepository.findChanges(eq(new BookChangeCursor(since, 0)), any(), eq(100))).thenReturn(List.of());
+
+		var page = bookService.getChanges(since.toString(), null);
+
+		assertThat(page.changes()).isEmpty();
+		assertThat(BookChangeCursor.decode(page.nextCursor())).isEqualTo(new BookChangeCursor(since, 0));
+	}
+
+	@Test
+	@DisplayName("When changes are read from before the tombstone retention, then BookChangesExpiredException is thrown.")
+	void testExpiredChanges() {
+		var since = Instant.now()
+		                   .minus(Duration.ofDays(31))
+		                   .toString();
+
+		assertThatThrownBy(() -> bookService.getChanges(since, null)).isInstanceOf(BookChangesExpiredException.class);
+		assertThatThrownBy(() -> bookService.getChanges("not-a-cursor", null)).isInstanceOf(InvalidBookRequestException.class);
+		verifyNoMoreInteractions(bookRepository);
+	}
 }
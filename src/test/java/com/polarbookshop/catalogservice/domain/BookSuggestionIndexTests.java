@@ -0,0 +1,116 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookSuggestionIndexTests {
+
+	private static final Book HOBBIT = book("9780261102217", "The Hobbit", "J.R.R. Tolkien");
+	private static final Book LORD_OF_THE_RINGS = book("9780261103252", "The Lord of the Rings", "J.R.R. Tolkien");
+	private static final Book SILMARILLION = book("9780261102736", "The Silmarillion", "Christopher Tolkien");
+	private static final Book HOBBITS_ELVES_AND_WIZARDS = book("9780312204358", "Hobbits, Elves and Wizards", "Michael Stanton");
+	private static final Book LES_MISERABLES = book("9782253096344", "Les Mis\u00e9rables", "Victor Hugo");
+
+	@Mock
+	private BookRepository bookRepository;
+
+	private BookSuggestionIndex bookSuggestionIndex;
+
+	@BeforeEach
+	void setUp() {
+		bookSuggestionIndex = new BookSuggestionIndex(bookRepository, new PolarProperties(), new SimpleMeterRegistry());
+	}
+
+	@Test
+	@DisplayName("When the index has not been built yet, then nothing is suggested.")
+	void testNotBuiltIndexSuggestsNothing() {
+		assertThat(bookSuggestionIndex.suggest("hob", null)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("When a prefix is typed, then the books with a matching title word come first, then those with a matching author word.")
+	void testSuggestions() {
+		build(HOBBIT, LORD_OF_THE_RINGS, SILMARILLION, HOBBITS_ELVES_AND_WIZARDS, LES_MISERABLES);
+
+		assertThat(isbns(bookSuggestionIndex.suggest("Hob", null))).containsExactly(HOBBIT.isbn(), HOBBITS_ELVES_AND_WIZARDS.isbn());
+		assertThat(isbns(bookSuggestionIndex.suggest("tolk", null))).containsExactlyInAnyOrder(HOBBIT.isbn(), LORD_OF_THE_RINGS.isbn(),
+		                                                                                       SILMARILLION.isbn());
+		assertThat(isbns(bookSuggestionIndex.suggest("the lord of the r", null))).containsExactly(LORD_OF_THE_RINGS.isbn());
+		assertThat(isbns(bookSuggestionIndex.suggest("miser", null))).containsExactly(LES_MISERABLES.isbn());
+		assertThat(isbns(bookSuggestionIndex.suggest("Mis\u00e9r", null))).containsExactly(LES_MISERABLES.isbn());
+		assertThat(bookSuggestionIndex.suggest("the", 2)).hasSize(2);
+		assertThat(bookSuggestionIndex.suggest("xyz", null)).isEmpty();
+		assertThatThrownBy(() -> bookSuggestionIndex.suggest(" - ", null)).isInstanceOf(InvalidBookRequestException.class);
+		assertThatThrownBy(() -> bookSuggestionIndex.suggest("the", 0)).isInstanceOf(InvalidBookRequestException.class);
+	}
+
+	@Test
+	@DisplayName("When books are added, edited and removed, then the suggestions follow without reading the catalog again.")
+	void testIncrementalUpdates() {
+		build(HOBBIT);
+
+		bookSuggestionIndex.add(SILMARILLION);
+		bookSuggestionIndex.add(book(HOBBIT.isbn(), "There and Back Again", "J.R.R. Tolkien"));
+		bookSuggestionIndex.remove(SILMARILLION.isbn());
+
+		assertThat(bookSuggestionIndex.suggest("hob", null)).isEmpty();
+		assertThat(bookSuggestionIndex.suggest("silm", null)).isEmpty();
+		assertThat(isbns(bookSuggestionIndex.suggest("back", null))).containsExactly(HOBBIT.isbn());
+	}
+
+	@Test
+	@DisplayName("When other replicas change books, then the changed books are read back in one query on refresh.")
+	void testRefreshReadsChangesOfOtherReplicas() {
+		build(HOBBIT);
+		bookSuggestionIndex.onBookChanged(new BookChangedEvent(HOBBIT.isbn(), BookChangedEvent.Type.DELETED));
+		bookSuggestionIndex.onBookChanged(new BookChangedEvent(SILMARILLION.isbn(), BookChangedEvent.Type.CREATED));
+		when(bookRepository.findAllByIsbn(any())).thenReturn(List.of(SILMARILLION));
+
+		bookSuggestionIndex.refresh();
+
+		assertThat(bookSuggestionIndex.suggest("hob", null)).isEmpty();
+		assertThat(isbns(bookSuggestionIndex.suggest("silm", null))).containsExactly(SILMARILLION.isbn());
+	}
+
+	private void build(Book... books) {
+		doAnswer(invocation -> {
+			Consumer<Book> consumer = invocation.getArgument(0);
+			List.of(books)
+			    .forEach(consumer);
+			return null;
+		}).when(bookRepository)
+		  .forEachBook(any());
+		bookSuggestionIndex.rebuild();
+	}
+
+	private static List<String> isbns(List<BookSuggestion> suggestions) {
+		return suggestions.stream()
+		                  .map(BookSuggestion::isbn)
+		                  .toList();
+	}
+
+	private static Book book(String isbn, String title, String author) {
+		return Book.builder()
+		           .isbn(isbn)
+		           .title(title)
+		           .author(author)
+		           .price(9.90)
+		           .build();
+	}
+}
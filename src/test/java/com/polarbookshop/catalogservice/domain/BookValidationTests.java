@@ -28,7 +28,7 @@ public class BookValidationTests {
 	@DisplayName("When all fields are correct, then validation should succeed.")
 	void allFieldsCorrectValidationTest() {
 		var book = Book.builder()
-		               .isbn("1234567890")
+		               .isbn("9782345678908")
 		               .title("Title")
 		               .author("Author")
 		               .price(9.9)
@@ -68,6 +68,36 @@ public class BookValidationTests {
 		                     .getMessage()).isEqualTo("The ISBN format must be valid: a 10 or 13 digit number.");
 	}
 
+	@Test
+	@DisplayName("When ISBN has a wrong check digit, then validation should fail.")
+	void invalidIsbnChecksumValidationTest() {
+		var book = Book.builder()
+		               .isbn("9780261102218")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.9)
+		               .build();
+		Set<ConstraintViolation<Book>> violations = validator.validate(book);
+		assertThat(violations).hasSize(1);
+		assertThat(violations.iterator()
+		                     .next()
+		                     .getMessage()).isEqualTo("The ISBN format must be valid: a 10 or 13 digit number.");
+	}
+
+	@Test
+	@DisplayName("When ISBN is a valid ISBN-10, then validation should succeed and the book should have its ISBN-13.")
+	void isbn10NormalizedTest() {
+		var book = Book.builder()
+		               .isbn("080442957X")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.9)
+		               .build();
+		Set<ConstraintViolation<Book>> violations = validator.validate(book);
+		assertThat(violations).isEmpty();
+		assertThat(book.isbn()).isEqualTo("9780804429573");
+	}
+
 	@Test
 	@DisplayName("When ISBN is not defined, then validation should fail.")
 	void notDefinedIsbnValidationTest() {
@@ -90,7 +120,7 @@ public class BookValidationTests {
 	@DisplayName("When title is not defined, then validation should fail.")
 	void notDefinedTitleValidationTest() {
 		var book = Book.builder()
-		               .isbn("1234567890")
+		               .isbn("9782345678908")
 		               .title("")
 		               .author("Author")
 		               .price(9.9)
@@ -106,7 +136,7 @@ public class BookValidationTests {
 	@DisplayName("When author is not defined, then validation should fail.")
 	void notDefinedAuthorValidationTest() {
 		var book = Book.builder()
-		               .isbn("1234567890")
+		               .isbn("9782345678908")
 		               .title("Title")
 		               .author("")
 		               .price(9.9)
@@ -122,7 +152,7 @@ public class BookValidationTests {
 	@DisplayName("When price is not defined, then validation should fail.")
 	void notDefinedPriceValidationTest() {
 		var book = Book.builder()
-		               .isbn("1234567890")
+		               .isbn("9782345678908")
 		               .title("Title")
 		               .author("Author")
 		               .price(null)
@@ -138,7 +168,7 @@ public class BookValidationTests {
 	@DisplayName("When price is defined but set to zero, then validation should fail.")
 	void zeroPriceValidationTest() {
 		var book = Book.builder()
-		               .isbn("1234567890")
+		               .isbn("9782345678908")
 		               .title("Title")
 		               .author("Author")
 		               .price(0.0)
@@ -154,7 +184,7 @@ public class BookValidationTests {
 	@DisplayName("When price is defined but set to negative number, then validation should fail.")
 	void negativePriceValidationTest() {
 		var book = Book.builder()
-		               .isbn("1234567890")
+		               .isbn("9782345678908")
 		               .title("Title")
 		               .author("Author")
 		               .price(-2.0)
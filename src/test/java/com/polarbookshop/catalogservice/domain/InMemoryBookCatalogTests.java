@@ -0,0 +1,99 @@
+package com.polarbookshop.catalogservice.domain;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class InMemoryBookCatalogTests {
+
+	private static final Instant CREATED = Instant.parse("2023-11-01T10:15:30Z");
+	private static final Book HOBBIT = book(1, "9780261102217", "The Hobbit", CREATED);
+	private static final Book SILMARILLION = book(2, "9780261102736", "The Silmarillion", CREATED);
+
+	@Mock
+	private BookRepository bookRepository;
+
+	private InMemoryBookCatalog inMemoryBookCatalog;
+
+	@BeforeEach
+	void setUp() {
+		var polarProperties = new PolarProperties();
+		polarProperties.getInMemoryCatalog()
+		               .setEnabled(true);
+		inMemoryBookCatalog = new InMemoryBookCatalog(bookRepository, polarProperties, new SimpleMeterRegistry());
+	}
+
+	@Test
+	@DisplayName("When the catalog has not been loaded yet, then no ISBN is served from memory.")
+	void testNotLoadedCatalogServesNothing() {
+		assertThat(inMemoryBookCatalog.serves(HOBBIT.isbn())).isFalse();
+	}
+
+	@Test
+	@DisplayName("When another replica changes a book, then it is not served from memory until it has been read back.")
+	void testChangedBooksServedAfterRefresh() {
+		load(HOBBIT);
+		assertThat(inMemoryBookCatalog.find(HOBBIT.isbn())).contains(HOBBIT);
+
+		inMemoryBookCatalog.onBookChanged(new BookChangedEvent(HOBBIT.isbn(), BookChangedEvent.Type.DELETED));
+		inMemoryBookCatalog.onBookChanged(new BookChangedEvent(SILMARILLION.isbn(), BookChangedEvent.Type.CREATED));
+		assertThat(inMemoryBookCatalog.serves(HOBBIT.isbn())).isFalse();
+		assertThat(inMemoryBookCatalog.serves(SILMARILLION.isbn())).isFalse();
+		when(bookRepository.findAllByIsbn(any())).thenReturn(List.of(SILMARILLION));
+
+		inMemoryBookCatalog.refresh();
+
+		assertThat(inMemoryBookCatalog.serves(HOBBIT.isbn())).isTrue();
+		assertThat(inMemoryBookCatalog.find(HOBBIT.isbn())).isEmpty();
+		assertThat(inMemoryBookCatalog.find(SILMARILLION.isbn())).contains(SILMARILLION);
+	}
+
+	@Test
+	@DisplayName("When the change feed reports changes, then they are applied on reconciliation.")
+	void testReconcileWithChangeFeed() {
+		load(HOBBIT);
+		var modified = Instant.now()
+		                      .truncatedTo(ChronoUnit.MICROS)
+		                      .minusSeconds(60);
+		var editedHobbit = book(1, HOBBIT.isbn(), "The Hobbit, or There and Back Again", modified);
+		when(bookRepository.findChanges(any(), any(), anyInt())).thenReturn(List.of(BookChange.upserted(editedHobbit),
+		                                                                            BookChange.deleted(3, "9780261103252", modified)));
+
+		inMemoryBookCatalog.reconcile();
+
+		assertThat(inMemoryBookCatalog.find(HOBBIT.isbn())).contains(editedHobbit);
+	}
+
+	private void load(Book... books) {
+		when(bookRepository.count()).thenReturn((long) books.length);
+		doAnswer(invocation -> {
+			Consumer<Book> consumer = invocation.getArgument(0);
+			List.of(books)
+			    .forEach(consumer);
+			return null;
+		}).when(bookRepository)
+		  .forEachBook(any());
+		inMemoryBookCatalog.load();
+	}
+
+	private static Book book(long id, String isbn, String title, Instant lastModified) {
+		return new Book(id, isbn, title, "J.R.R. Tolkien", 9.90, 1, CREATED, lastModified);
+	}
+}
@@ -0,0 +1,34 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IsbnTests {
+
+	@Test
+	@DisplayName("When an ISBN-10 and its ISBN-13 are keyed, then they have the same key.")
+	void testIsbn10AndIsbn13ShareKey() {
+		assertThat(Isbn.key("0261102214")).isEqualTo(9780261102217L)
+		                                  .isEqualTo(Isbn.key("9780261102217"));
+		assertThat(Isbn.key("080442957X")).isEqualTo(9780804429573L);
+	}
+
+	@Test
+	@DisplayName("When a 10-digit ISBN with a wrong check digit is keyed, then its key is negated so that it stays unique.")
+	void testInvalidIsbn10Key() {
+		assertThat(Isbn.key("0261102215")).isEqualTo(-261102215L);
+		assertThat(Isbn.normalize("0261102215")).isEqualTo("0261102215");
+	}
+
+	@Test
+	@DisplayName("When a string that is not a 10 or 13 digit ISBN is keyed, then it has no key.")
+	void testMalformedIsbnKey() {
+		assertThat(Isbn.key("a234567890")).isEqualTo(Isbn.NO_KEY);
+		assertThat(Isbn.key("026110221X")).isEqualTo(Isbn.NO_KEY);
+		assertThat(Isbn.key("261102214")).isEqualTo(Isbn.NO_KEY);
+		assertThat(Isbn.key("978026110221a")).isEqualTo(Isbn.NO_KEY);
+		assertThat(Isbn.key(null)).isEqualTo(Isbn.NO_KEY);
+	}
+}
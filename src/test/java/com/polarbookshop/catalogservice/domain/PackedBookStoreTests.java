@@ -0,0 +1,85 @@
+package com.polarbookshop.catalogservice.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PackedBookStoreTests {
+
+	private static final Instant CREATED = Instant.parse("2023-11-01T10:15:30.123456Z");
+
+	@Test
+	@DisplayName("When books are stored, then they are read back field by field, ISBNs with leading zeros included.")
+	void testRoundTrip() {
+		var store = new PackedBookStore(0);
+		// A 10-digit ISBN with an invalid checksum, stored before checksums were validated
+		var hobbit = book(1, "0261102215", "The Hobbit", "J.R.R. Tolkien", CREATED);
+		var miserables = book(2, "0000261102214", "Les Mis\u00e9rables", "Victor Hugo", CREATED);
+
+		store.put(hobbit);
+		store.put(miserables);
+
+		assertThat(store.get("0261102215")).isEqualTo(hobbit);
+		assertThat(store.get("0000261102214")).isEqualTo(miserables);
+		assertThat(store.get("261102214")).isNull();
+		assertThat(store.get("9780261102217")).isNull();
+		assertThat(PackedBookStore.isbn(PackedBookStore.key("0000261102214"))).isEqualTo("0000261102214");
+	}
+
+	@Test
+	@DisplayName("When many books are added, updated and removed, then the table and the text grow and compact without losing any.")
+	void testGrowthAndCompaction() {
+		var store = new PackedBookStore(0);
+		for (var n = 0; n < 20_000; n++) {
+			store.put(book(n, isbn(n), "Title " + n, "Author " + n % 100, CREATED));
+		}
+		for (var n = 0; n < 20_000; n += 2) {
+			store.remove(isbn(n));
+		}
+		for (var n = 1; n < 20_000; n += 2) {
+			store.put(book(n, isbn(n), "A longer title to fill the text " + n, "Author " + n % 100, CREATED));
+		}
+
+		assertThat(store.size()).isEqualTo(10_000);
+		assertThat(store.get(isbn(4))).isNull();
+		assertThat(store.get(isbn(19_999))).isEqualTo(book(19_999, isbn(19_999), "A longer title to fill the text 19999", "Author 99",
+		                                                  CREATED));
+	}
+
+	@Test
+	@DisplayName("When the text is sized for more bytes than an array holds, then it is clamped, or refused when required.")
+	void testTextCapacityClamped() {
+		assertThat(PackedBookStore.textCapacity(0, (long) (1 << 28) * 32)).isEqualTo(Integer.MAX_VALUE - 8);
+		assertThat(PackedBookStore.textCapacity(100, 3_000_000_000L)).isEqualTo(Integer.MAX_VALUE - 8);
+		assertThat(PackedBookStore.textCapacity(100, 50)).isEqualTo(100);
+		assertThat(PackedBookStore.MAX_EXPECTED_BOOKS * 32L).isLessThanOrEqualTo(Integer.MAX_VALUE - 8);
+		assertThatThrownBy(() -> PackedBookStore.textCapacity(Integer.MAX_VALUE, 0)).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	@DisplayName("When a change read from the database is older than the book in memory, then it is not applied.")
+	void testOlderChangesSkipped() {
+		var store = new PackedBookStore(0);
+		var edited = book(1, "9780261102217", "The Hobbit, edited", "J.R.R. Tolkien", CREATED.plusSeconds(60));
+		store.put(edited);
+
+		store.putIfNotOlder(book(1, "9780261102217", "The Hobbit", "J.R.R. Tolkien", CREATED));
+		store.removeIfNotModifiedAfter("9780261102217", CREATED.plusSeconds(30));
+		assertThat(store.get("9780261102217")).isEqualTo(edited);
+
+		store.removeIfNotModifiedAfter("9780261102217", CREATED.plusSeconds(90));
+		assertThat(store.get("9780261102217")).isNull();
+	}
+
+	private static String isbn(int n) {
+		return String.valueOf(9780000000000L + n);
+	}
+
+	private static Book book(long id, String isbn, String title, String author, Instant lastModified) {
+		return new Book(id, isbn, title, author, 9.90, 1, CREATED, lastModified);
+	}
+}
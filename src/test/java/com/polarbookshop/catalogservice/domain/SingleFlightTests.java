@@ -0,0 +1,107 @@
+package com.polarbookshop.catalogservice.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTests {
+
+	private final Counter coalesced = new SimpleMeterRegistry().counter("books.lookup.coalesced");
+	private final SingleFlight<String, String> singleFlight = new SingleFlight<>(coalesced);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("When the same key is asked for while it is loading, then both callers get the value of a single load.")
+	void testConcurrentCallersShareOneLoad() throws Exception {
+		var first = executor.submit(() -> singleFlight.execute("1234567890", () -> blockingLoad("The Hobbit")));
+		awaitLoading();
+		var second = executor.submit(() -> singleFlight.execute("1234567890", () -> blockingLoad("Other")));
+
+		awaitCoalesced(1);
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("The Hobbit");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("The Hobbit");
+		assertThat(loads).hasValue(1);
+		assertThat(singleFlight.execute("1234567890", () -> "Loaded again")).isEqualTo("Loaded again");
+	}
+
+	@Test
+	@DisplayName("When the shared load fails, then every waiting caller gets its exception.")
+	void testConcurrentCallersShareFailure() {
+		var first = CompletableFuture.supplyAsync(() -> singleFlight.execute("1234567890", () -> {
+			blockingLoad(null);
+			throw new BookNotFoundException("1234567890");
+		}), executor);
+		awaitLoading();
+		var second = CompletableFuture.supplyAsync(() -> singleFlight.execute("1234567890", () -> blockingLoad("Other")), executor);
+
+		awaitCoalesced(1);
+		release.countDown();
+
+		assertThatThrownBy(first::join).hasCauseInstanceOf(BookNotFoundException.class);
+		assertThatThrownBy(second::join).hasCauseInstanceOf(BookNotFoundException.class);
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	@DisplayName("When some keys of a batch are loading, then they are waited for and only the others are loaded.")
+	void testBatchJoinsLoadsInFlight() throws Exception {
+		var single = executor.submit(() -> singleFlight.execute("1", () -> blockingLoad("one")));
+		awaitLoading();
+		var batch = executor.submit(() -> singleFlight.executeAll(List.of("1", "2", "3"), keys -> {
+			assertThat(keys).containsExactly("2", "3");
+			return Map.of("2", "two");
+		}));
+
+		awaitCoalesced(1);
+		release.countDown();
+
+		assertThat(single.get(5, TimeUnit.SECONDS)).isEqualTo("one");
+		assertThat(batch.get(5, TimeUnit.SECONDS)).containsExactlyInAnyOrderEntriesOf(Map.of("1", "one", "2", "two"));
+	}
+
+	private String blockingLoad(String value) {
+		loads.incrementAndGet();
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread()
+			      .interrupt();
+		}
+		return value;
+	}
+
+	private void awaitLoading() {
+		while (loads.get() == 0) {
+			Thread.onSpinWait();
+		}
+	}
+
+	private void awaitCoalesced(int count) {
+		while (coalesced.count() < count) {
+			Thread.onSpinWait();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BookOutboxPublisherTests {
+
+	private JdbcTemplate jdbcTemplate;
+	private BookChangeSink sink;
+	private SimpleMeterRegistry meterRegistry;
+	private BookOutboxPublisher publisher;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		sink = mock(BookChangeSink.class);
+		meterRegistry = new SimpleMeterRegistry();
+		var properties = new PolarProperties().getOutbox();
+		properties.setBatchSize(2);
+		publisher = new BookOutboxPublisher(jdbcTemplate, sink, properties, meterRegistry);
+	}
+
+	@Test
+	@DisplayName("When the outbox holds changes, then they are published and deleted batch by batch until it is drained.")
+	void testPublishDrainsOutbox() {
+		var firstBatch = List.of(message(1, BookChangedEvent.Type.CREATED), message(2, BookChangedEvent.Type.UPDATED));
+		var secondBatch = List.of(message(3, BookChangedEvent.Type.DELETED));
+		given(jdbcTemplate.<BookChangeMessage>query(anyString(), ArgumentMatchers.<RowMapper<BookChangeMessage>>any(), eq(30.0), eq(2))).willReturn(firstBatch)
+		                                                                                                                         .willReturn(secondBatch);
+
+		publisher.publishPending();
+
+		var inOrder = inOrder(sink, jdbcTemplate);
+		inOrder.verify(sink)
+		       .publish(firstBatch);
+		inOrder.verify(jdbcTemplate)
+		       .update(startsWith("delete"), any(PreparedStatementSetter.class));
+		inOrder.verify(sink)
+		       .publish(secondBatch);
+		inOrder.verify(jdbcTemplate)
+		       .update(startsWith("delete"), any(PreparedStatementSetter.class));
+		assertThat(meterRegistry.get("books.outbox.published")
+		                        .counter()
+		                        .count()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("When the sink fails, then the batch is released and stays in the outbox to be published again.")
+	void testFailedBatchIsKept() {
+		var batch = List.of(message(1, BookChangedEvent.Type.CREATED));
+		given(jdbcTemplate.<BookChangeMessage>query(anyString(), ArgumentMatchers.<RowMapper<BookChangeMessage>>any(), eq(30.0), eq(2))).willReturn(batch);
+		willThrow(new IllegalStateException("Broker unavailable")).given(sink)
+		                                                          .publish(batch);
+
+		publisher.publishPending();
+
+		verify(jdbcTemplate, never()).update(startsWith("delete"), any(PreparedStatementSetter.class));
+		verify(jdbcTemplate, times(1)).update(startsWith("update book_outbox set claimed_until = null"), any(PreparedStatementSetter.class));
+		assertThat(meterRegistry.get("books.outbox.failures")
+		                        .counter()
+		                        .count()).isEqualTo(1);
+	}
+
+	private static BookChangeMessage message(long id, BookChangedEvent.Type type) {
+		var now = Instant.now();
+		return new BookChangeMessage(id, type, new Book(id, "123456789" + id, "Title", "Author", 9.90, 1, now, now), now);
+	}
+}
@@ -0,0 +1,43 @@
+package com.polarbookshop.catalogservice.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileBookChangeSinkTests {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	@DisplayName("When batches are published, then each change is appended to the file as one JSON line.")
+	void testAppendsNdjson() throws IOException {
+		var objectMapper = new ObjectMapper().findAndRegisterModules()
+		                                     .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		var file = directory.resolve("outbox/book-changes.ndjson");
+		var sink = new FileBookChangeSink(file, objectMapper.writerFor(BookChangeMessage.class));
+		var now = Instant.parse("2023-11-01T10:15:30Z");
+		var book = new Book(1L, "1234567891", "Title", "Author", 9.90, 2, now, now);
+
+		sink.publish(List.of(new BookChangeMessage(1, BookChangedEvent.Type.CREATED, book, now),
+		                     new BookChangeMessage(2, BookChangedEvent.Type.UPDATED, book, now)));
+		sink.publish(List.of(new BookChangeMessage(3, BookChangedEvent.Type.DELETED, book, now)));
+
+		var lines = Files.readAllLines(file);
+		assertThat(lines).hasSize(3);
+		assertThat(objectMapper.readValue(lines.get(2), BookChangeMessage.class)).isEqualTo(
+				new BookChangeMessage(3, BookChangedEvent.Type.DELETED, book, now));
+	}
+}
@@ -0,0 +1,292 @@
+package com.polarbookshop.catalogservice.reactive;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import com.polarbookshop.catalogservice.domain.BookIsbnFilter;
+import com.polarbookshop.catalogservice.domain.BookPrecondition;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import com.polarbookshop.catalogservice.domain.BookSuggestionIndex;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class BookRoutesTests {
+
+	private ReactiveBookRepository bookRepository;
+	private ApplicationEventPublisher eventPublisher;
+	private BookHandler bookHandler;
+	private WebTestClient webTestClient;
+
+	@BeforeEach
+	void setUp() {
+		bookRepository = mock(ReactiveBookRepository.class);
+		eventPublisher = mock(ApplicationEventPublisher.class);
+		var bookIsbnFilter = mock(BookIsbnFilter.class);
+		given(bookIsbnFilter.mightContain(anyString())).willReturn(true);
+		bookHandler = new BookHandler(bookRepository, new PolarProperties(), Validation.buildDefaultValidatorFactory()
+		                                                                               .getValidator(),
+		                              eventPublisher, bookIsbnFilter, mock(BookSuggestionIndex.class));
+		webTestClient = WebTestClient.bindToRouterFunction(new ReactiveWebConfig().bookRoutes(bookHandler))
+		                             .build();
+	}
+
+	@Test
+	@DisplayName("If a correct GET request is sent with an existing ISBN, the book is returned.")
+	void getBookEndpointTest() {
+		var isbn = "9782345678908";
+		var book = persistedBook(isbn, 1);
+		given(bookRepository.findByIsbn(isbn)).willReturn(Mono.just(book));
+
+		webTestClient.get()
+		             .uri("/books/" + isbn)
+		             .exchange()
+		             .expectStatus()
+		             .isOk()
+		             .expectHeader()
+		             .valueEquals(HttpHeaders.ETAG, "\"1-1\"")
+		             .expectBody(Book.class)
+		             .isEqualTo(book);
+	}
+
+	@Test
+	@DisplayName("If a correct POST request is sent, then book is created.")
+	void postBookEndpointTest() {
+		var isbn = "9782345678915";
+		given(bookRepository.insertIfAbsent(any())).willReturn(Mono.just(persistedBook(isbn, 1)));
+
+		webTestClient.post()
+		             .uri("/books")
+		             .bodyValue(newBook(isbn))
+		             .exchange()
+		             .expectStatus()
+		             .isCreated()
+		             .expectBody(Book.class)
+		             .value(book -> assertThat(book.isbn()).isEqualTo(isbn));
+		verify(eventPublisher).publishEvent(new BookChangedEvent(isbn, BookChangedEvent.Type.CREATED));
+	}
+
+	@Test
+	@DisplayName("If a POST request is sent with an existing ISBN, then 400 is returned with the reason.")
+	void postExistingBookEndpointTest() {
+		given(bookRepository.insertIfAbsent(any())).willReturn(Mono.empty());
+
+		webTestClient.post()
+		             .uri("/books")
+		             .bodyValue(newBook("9782345678915"))
+		             .exchange()
+		             .expectStatus()
+		             .isBadRequest()
+		             .expectBody(String.class)
+		             .isEqualTo("A book with ISBN 9782345678915 already exists.");
+	}
+
+	@Test
+	@DisplayName("If an invalid book is posted, then 400 is returned with the violations by field.")
+	void postInvalidBookEndpointTest() {
+		var book = Book.builder()
+		               .isbn("a234567890")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .build();
+
+		webTestClient.post()
+		             .uri("/books")
+		             .bodyValue(book)
+		             .exchange()
+		             .expectStatus()
+		             .isBadRequest()
+		             .expectBody()
+		             .jsonPath("$.isbn")
+		             .isEqualTo("The ISBN format must be valid: a 10 or 13 digit number.");
+	}
+
+	@Test
+	@DisplayName("If a correct PUT request is sent, then book is updated.")
+	void putBookEndpointTest() {
+		var isbn = "9782345678922";
+		given(bookRepository.updateIfMatches(eq(isbn), any(), eq(BookPrecondition.of(1L, 1)))).willReturn(Mono.just(persistedBook(isbn, 2)));
+
+		webTestClient.put()
+		             .uri("/books/" + isbn)
+		             .header(HttpHeaders.IF_MATCH, "\"1-1\"")
+		             .bodyValue(newBook(isbn))
+		             .exchange()
+		             .expectStatus()
+		             .isOk()
+		             .expectHeader()
+		             .valueEquals(HttpHeaders.ETAG, "\"1-2\"");
+	}
+
+	@Test
+	@DisplayName("If a PUT request is sent with a stale If-Match version, then 412 is returned.")
+	void putStaleBookEndpointTest() {
+		var isbn = "9782345678922";
+		given(bookRepository.updateIfMatches(eq(isbn), any(), eq(BookPrecondition.of(1L, 1)))).willReturn(Mono.empty());
+		given(bookRepository.existsByIsbn(isbn)).willReturn(Mono.just(true));
+
+		webTestClient.put()
+		             .uri("/books/" + isbn)
+		             .header(HttpHeaders.IF_MATCH, "\"1-1\"")
+		             .bodyValue(newBook(isbn))
+		             .exchange()
+		             .expectStatus()
+		             .isEqualTo(412);
+	}
+
+	@Test
+	@DisplayName("If a PUT request is sent with If-Match for a book that does not exist, then 404 is returned.")
+	void putMissingBookWithIfMatchEndpointTest() {
+		var isbn = "9782345678922";
+		given(bookRepository.updateIfMatches(eq(isbn), any(), eq(BookPrecondition.of(1L, 1)))).willReturn(Mono.empty());
+		given(bookRepository.existsByIsbn(isbn)).willReturn(Mono.just(false));
+
+		webTestClient.put()
+		             .uri("/books/" + isbn)
+		             .header(HttpHeaders.IF_MATCH, "\"1-1\"")
+		             .bodyValue(newBook(isbn))
+		             .exchange()
+		             .expectStatus()
+		             .isNotFound();
+	}
+
+	@Test
+	@DisplayName("If correct DELETE request is sent, then book is deleted.")
+	void deleteBookEndpointTest() {
+		var isbn = "9782345678939";
+		given(bookRepository.deleteByIsbn(isbn)).willReturn(Mono.empty());
+		given(bookRepository.findByIsbn(isbn)).willReturn(Mono.empty());
+
+		webTestClient.delete()
+		             .uri("/books/" + isbn)
+		             .exchange()
+		             .expectStatus()
+		             .isNoContent();
+		webTestClient.get()
+		             .uri("/books/" + isbn)
+		             .exchange()
+		             .expectStatus()
+		             .isNotFound()
+		             .expectBody(String.class)
+		             .isEqualTo(String.format("The book with ISBN %s was not found.", isbn));
+		verify(eventPublisher).publishEvent(new BookChangedEvent(isbn, BookChangedEvent.Type.DELETED));
+	}
+
+	@Test
+	@DisplayName("When the page is full, the GET endpoint links to the next page.")
+	void getBooksEndpointTest() {
+		given(bookRepository.findPage(BookSort.ID, null, null, 3)).willReturn(Flux.just(persistedBook("9782345678908", 1),
+		                                                                                 persistedBook("9782345678915", 1),
+		                                                                                 persistedBook("9782345678922", 1)));
+
+		webTestClient.get()
+		             .uri("/books?limit=2")
+		             .exchange()
+		             .expectStatus()
+		             .isOk()
+		             .expectHeader()
+		             .value(HttpHeaders.LINK, link -> assertThat(link).startsWith("</books?limit=2&cursor=")
+		                                                               .endsWith(">; rel=\"next\""))
+		             .expectBodyList(Book.class)
+		             .hasSize(2);
+	}
+
+	@Test
+	@DisplayName("When an unknown sort is requested, the GET endpoint should return 400 (BAD_REQUEST).")
+	void getBooksWithUnknownSortEndpointTest() {
+		webTestClient.get()
+		             .uri("/books?sort=title")
+		             .exchange()
+		             .expectStatus()
+		             .isBadRequest();
+	}
+
+	@Test
+	@DisplayName("When the catalog is exported, the books are streamed as NDJSON.")
+	void exportBooksEndpointTest() {
+		given(bookRepository.streamAll(eq(BookSort.ISBN), isNull())).willReturn(Flux.just(persistedBook("9782345678908", 1),
+		                                                                                   persistedBook("9782345678915", 1)));
+
+		var books = webTestClient.get()
+		                         .uri("/books/export?sort=isbn")
+		                         .accept(MediaType.APPLICATION_NDJSON)
+		                         .exchange()
+		                         .expectStatus()
+		                         .isOk()
+		                         .expectHeader()
+		                         .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+		                         .returnResult(Book.class)
+		                         .getResponseBody()
+		                         .collectList()
+		                         .block();
+
+		assertThat(books).extracting(Book::isbn)
+		                 .containsExactly("9782345678908", "9782345678915");
+	}
+
+	@Test
+	@DisplayName("When the export is resumed after a position that is not a book id, then 400 is returned.")
+	void exportBooksAfterInvalidIdEndpointTest() {
+		webTestClient.get()
+		             .uri("/books/export?after=abc")
+		             .exchange()
+		             .expectStatus()
+		             .isBadRequest();
+		verify(bookRepository, never()).streamAll(any(), any());
+	}
+
+	@Test
+	@DisplayName("When export responses are built but their bodies never written, then they hold no export slot.")
+	void exportBooksUnwrittenEndpointTest() {
+		given(bookRepository.streamAll(eq(BookSort.ID), isNull())).willReturn(Flux.just(persistedBook("9782345678908", 1)));
+		var request = MockServerRequest.builder()
+		                               .build();
+
+		bookHandler.exportBooks(request)
+		           .block();
+		bookHandler.exportBooks(request)
+		           .block();
+
+		webTestClient.get()
+		             .uri("/books/export")
+		             .accept(MediaType.APPLICATION_NDJSON)
+		             .exchange()
+		             .expectStatus()
+		             .isOk();
+	}
+
+	private static Book newBook(String isbn) {
+		return Book.builder()
+		           .isbn(isbn)
+		           .title("Title")
+		           .author("Author")
+		           .price(9.90)
+		           .build();
+	}
+
+	private static Book persistedBook(String isbn, int version) {
+		var now = Instant.parse("2023-11-01T10:15:30Z");
+		return new Book(1L, isbn, "Title", "Author", 9.90, version, now, now);
+	}
+}
@@ -1,34 +1,604 @@
 package com.polarbookshop.catalogservice.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.catalogservice.config.BookFormatConfig;
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookBatchResult;
+import com.polarbookshop.catalogservice.domain.BookExportUnavailableException;
+import com.polarbookshop.catalogservice.domain.BookField;
+import com.polarbookshop.catalogservice.domain.BookLookup;
 import com.polarbookshop.catalogservice.domain.BookNotFoundException;
+import com.polarbookshop.catalogservice.domain.BookChange;
+import com.polarbookshop.catalogservice.domain.BookChangeCursor;
+import com.polarbookshop.catalogservice.domain.BookChangePage;
+import com.polarbookshop.catalogservice.domain.BookChangesExpiredException;
+import com.polarbookshop.catalogservice.domain.BookPage;
+import com.polarbookshop.catalogservice.domain.BookPrecondition;
+import com.polarbookshop.catalogservice.domain.BookSearchResult;
+import com.polarbookshop.catalogservice.domain.BookSuggestion;
 import com.polarbookshop.catalogservice.domain.BookService;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import com.polarbookshop.catalogservice.domain.BookVersionMismatchException;
+import com.polarbookshop.catalogservice.domain.CatalogWatermark;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookController.class)
+@Import({ BookFormatConfig.class, BookControllerMvcTests.ResponseCacheConfig.class })
 public class BookControllerMvcTests {
 
 	@Autowired
 	private MockMvc mockMvc;
 
+	@Autowired
+	private BookObjectMappers objectMappers;
+
 	@MockBean
 	private BookService bookService;
 
+	@TestConfiguration
+	static class ResponseCacheConfig {
+
+		@Bean
+		BookResponseCache bookResponseCache(BookObjectMappers bookObjectMappers) {
+			return new BookResponseCache(bookObjectMappers, new PolarProperties(), new SimpleMeterRegistry());
+		}
+	}
+
+	@BeforeEach
+	void setUp() {
+		given(bookService.getCatalogWatermark()).willReturn(new CatalogWatermark(7, Instant.parse("2023-11-01T10:15:30Z")));
+		given(bookService.acquireExportPermit()).willReturn(() -> {});
+	}
+
 	@Test
 	@DisplayName("When a book not exist, the GET endpoint should return 404 (NOT_FOUND).")
 	void testGet404() throws Exception {
-		String isbn = "1234567890";
+		String isbn = "9782345678908";
 		given(bookService.getBook(isbn)).willThrow(BookNotFoundException.class);
 
 		mockMvc.perform(get("/books" + isbn))
 		       .andExpect(status().isNotFound());
 	}
+
+	@Test
+	@DisplayName("When more books follow the requested page, the GET endpoint should link to the next page.")
+	void testGetBooksNextPageLink() throws Exception {
+		var book = Book.builder()
+		               .id(1L)
+		               .isbn("9782345678908")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .build();
+		given(bookService.getBooks(null, 1, BookSort.ISBN_DESC, null, BookField.ALL)).willReturn(new BookPage(List.of(book), "next"));
+
+		mockMvc.perform(get("/books?limit=1&sort=isbn,desc"))
+		       .andExpect(status().isOk())
+		       .andExpect(jsonPath("$[0].isbn").value(book.isbn()))
+		       .andExpect(header().string("Link", "<http://localhost/books?limit=1&sort=isbn,desc&cursor=next>; rel=\"next\""));
+	}
+
+	@Test
+	@DisplayName("When fields are requested, the GET endpoint should return only those fields of the books, and 400 (BAD_REQUEST) for an unknown field.")
+	void testGetBooksFields() throws Exception {
+		var book = Book.builder()
+		               .id(1L)
+		               .isbn("9782345678908")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .version(1)
+		               .build();
+		var fields = EnumSet.of(BookField.ISBN, BookField.TITLE, BookField.PRICE);
+		given(bookService.getBooks(null, 1, BookSort.ID, null, fields)).willReturn(new BookPage(List.of(book), "next"));
+
+		mockMvc.perform(get("/books?limit=1&fields=isbn,title,price"))
+		       .andExpect(status().isOk())
+		       .andExpect(jsonPath("$[0].isbn").value(book.isbn()))
+		       .andExpect(jsonPath("$[0].title").value(book.title()))
+		       .andExpect(jsonPath("$[0].price").value(book.price()))
+		       .andExpect(jsonPath("$[0].id").doesNotExist())
+		       .andExpect(jsonPath("$[0].author").doesNotExist())
+		       .andExpect(jsonPath("$[0].version").doesNotExist());
+		mockMvc.perform(get("/books?fields=isbn,search_vector"))
+		       .andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@DisplayName("When a client accepts gzip, the GET endpoint should return the gzipped page from the cache.")
+	void testGetBooksGzipped() throws Exception {
+		var books = new ArrayList<Book>();
+		for (var n = 0; n < 20; n++) {
+			books.add(Book.builder()
+			              .id((long) n)
+			              .isbn("9782345678908")
+			              .title("Title " + n)
+			              .author("Author")
+			              .price(9.90)
+			              .build());
+		}
+		given(bookService.getBooks(null, 20, BookSort.ID, null, BookField.ALL)).willReturn(new BookPage(books, null));
+
+		var gzipped = mockMvc.perform(get("/books?limit=20").header("Accept-Encoding", "gzip, deflate"))
+		                     .andExpect(status().isOk())
+		                     .andExpect(header().string("Content-Encoding", "gzip"))
+		                     .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+		                     .andReturn()
+		                     .getResponse()
+		                     .getContentAsByteArray();
+		var plain = mockMvc.perform(get("/books?limit=20"))
+		                   .andExpect(status().isOk())
+		                   .andExpect(header().doesNotExist("Content-Encoding"))
+		                   .andReturn()
+		                   .getResponse()
+		                   .getContentAsByteArray();
+
+		try (var gzip = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+			assertThat(gzip.readAllBytes()).isEqualTo(plain);
+		}
+		then(bookService).should()
+		                 .getBooks(null, 20, BookSort.ID, null, BookField.ALL);
+		mockMvc.perform(get("/books?limit=20").header("Accept-Encoding", "gzip;q=0, *"))
+		       .andExpect(status().isOk())
+		       .andExpect(header().doesNotExist("Content-Encoding"));
+		mockMvc.perform(get("/books?limit=20").header("Accept-Encoding", "br, *;q=0.5"))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("Content-Encoding", "gzip"));
+	}
+
+	@Test
+	@DisplayName("When a book is requested in another format or encoding, the GET endpoint should tag each representation apart.")
+	void testGetBookTaggedPerRepresentation() throws Exception {
+		var book = Book.builder()
+		               .id(42L)
+		               .isbn("9782345678908")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .version(3)
+		               .build();
+		given(bookService.getBook(book.isbn())).willReturn(book);
+
+		mockMvc.perform(get("/books/" + book.isbn()).header("Accept-Encoding", "gzip"))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"42-3.gz\""));
+		mockMvc.perform(get("/books/" + book.isbn()).accept(MediaType.APPLICATION_CBOR))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"42-3.cbor\""));
+		mockMvc.perform(get("/books/" + book.isbn()).accept(MediaType.APPLICATION_CBOR)
+		                                            .header("If-None-Match", "\"42-3\""))
+		       .andExpect(status().isOk());
+		mockMvc.perform(get("/books/" + book.isbn()).accept(MediaType.APPLICATION_CBOR)
+		                                            .header("If-None-Match", "\"42-3.cbor\""))
+		       .andExpect(status().isNotModified());
+	}
+
+	@Test
+	@DisplayName("When more matches follow the requested search page, the search endpoint should link to the next page.")
+	void testSearchBooksNextPageLink() throws Exception {
+		var book = Book.builder()
+		               .id(1L)
+		               .isbn("9782345678908")
+		               .title("The Hobbit")
+		               .author("Tolkien")
+		               .price(9.90)
+		               .build();
+		given(bookService.searchBooks("hobb", null, 1)).willReturn(new BookSearchResult(List.of(book), 1));
+
+		mockMvc.perform(get("/books/search?q=hobb&limit=1"))
+		       .andExpect(status().isOk())
+		       .andExpect(jsonPath("$[0].title").value(book.title()))
+		       .andExpect(header().string("Link", "<http://localhost/books/search?q=hobb&limit=1&page=1>; rel=\"next\""));
+	}
+
+	@Test
+	@DisplayName("When a prefix is typed, the suggest endpoint should return the suggestions of the service.")
+	void testSuggestBooks() throws Exception {
+		given(bookService.suggestBooks("hob", 5)).willReturn(List.of(new BookSuggestion("9782345678908", "The Hobbit", "Tolkien")));
+
+		mockMvc.perform(get("/books/suggest?prefix=hob&limit=5"))
+		       .andExpect(status().isOk())
+		       .andExpect(jsonPath("$[0].isbn").value("9782345678908"))
+		       .andExpect(jsonPath("$[0].title").value("The Hobbit"));
+	}
+
+	@Test
+	@DisplayName("When changes are read, the changes endpoint should link to the next changes, even when there are none.")
+	void testGetChangesNextLink() throws Exception {
+		var deletedDate = Instant.parse("2023-11-01T10:15:30Z");
+		var cursor = new BookChangeCursor(deletedDate, 9).encode();
+		given(bookService.getChanges(null, null)).willReturn(new BookChangePage(List.of(BookChange.deleted(9, "9782345678915", deletedDate)),
+		                                                                         cursor));
+
+		mockMvc.perform(get("/books/changes"))
+		       .andExpect(status().isOk())
+		       .andExpect(jsonPath("$[0].type").value("DELETED"))
+		       .andExpect(jsonPath("$[0].isbn").value("9782345678915"))
+		       .andExpect(header().string("Link", "<http://localhost/books/changes?since=" + cursor + ">; rel=\"next\""));
+	}
+
+	@Test
+	@DisplayName("When changes are read from before the tombstone retention, the changes endpoint should return 410 (GONE).")
+	void testGetExpiredChanges() throws Exception {
+		given(bookService.getChanges("2020-01-01T00:00:00Z", null)).willThrow(new BookChangesExpiredException(Instant.parse("2020-01-01T00:00:00Z")));
+
+		mockMvc.perform(get("/books/changes?since=2020-01-01T00:00:00Z"))
+		       .andExpect(status().isGone());
+	}
+
+	@Test
+	@DisplayName("When an unknown sort is requested, the GET endpoint should return 400 (BAD_REQUEST).")
+	void testGetBooksInvalidSort() throws Exception {
+		mockMvc.perform(get("/books").param("sort", "title"))
+		       .andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@DisplayName("When the If-Match version of a PUT request is stale, the PUT endpoint should return 412 (PRECONDITION_FAILED).")
+	void testPutStaleVersion() throws Exception {
+		var isbn = "9782345678908";
+		var precondition = BookPrecondition.of(null, 3);
+		given(bookService.editBook(eq(isbn), any(Book.class), eq(precondition))).willThrow(new BookVersionMismatchException(isbn, precondition));
+
+		mockMvc.perform(put("/books/" + isbn).header("If-Match", "\"3\"")
+		                                     .contentType(MediaType.APPLICATION_JSON)
+		                                     .content("""
+		                                              {"isbn": "9782345678908", "title": "Title", "author": "Author", "price": 7.45}
+		                                              """))
+		       .andExpect(status().isPreconditionFailed());
+	}
+
+	@Test
+	@DisplayName("When the If-Match tag of a PUT request names the book and its version, only that book is updated.")
+	void testPutBookAndVersion() throws Exception {
+		var isbn = "9782345678908";
+		var book = new Book(42L, isbn, "Title", "Author", 7.45, 4, Instant.now(), Instant.now());
+		given(bookService.editBook(eq(isbn), any(Book.class), eq(BookPrecondition.of(42L, 3)))).willReturn(book);
+
+		mockMvc.perform(put("/books/" + isbn).header("If-Match", "\"42-3\"")
+		                                     .contentType(MediaType.APPLICATION_JSON)
+		                                     .content("""
+		                                              {"isbn": "9782345678908", "title": "Title", "author": "Author", "price": 7.45}
+		                                              """))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"42-4\""));
+		mockMvc.perform(put("/books/" + isbn).header("If-Match", "\"42-3.cbor.gz\"")
+		                                     .contentType(MediaType.APPLICATION_JSON)
+		                                     .content("""
+		                                              {"isbn": "9782345678908", "title": "Title", "author": "Author", "price": 7.45}
+		                                              """))
+		       .andExpect(status().isOk());
+	}
+
+	@Test
+	@DisplayName("When the If-Match header of a PUT request is *, then any stored book is updated.")
+	void testPutAnyVersion() throws Exception {
+		var isbn = "9782345678908";
+		var book = new Book(42L, isbn, "Title", "Author", 7.45, 4, Instant.now(), Instant.now());
+		given(bookService.editBook(eq(isbn), any(Book.class), eq(BookPrecondition.EXISTS))).willReturn(book);
+
+		mockMvc.perform(put("/books/" + isbn).header("If-Match", "*")
+		                                     .contentType(MediaType.APPLICATION_JSON)
+		                                     .content("""
+		                                              {"isbn": "9782345678908", "title": "Title", "author": "Author", "price": 7.45}
+		                                              """))
+		       .andExpect(status().isOk());
+	}
+
+	@Test
+	@DisplayName("When the If-Match header of a PUT request only holds weak tags, the PUT endpoint should return 412 (PRECONDITION_FAILED).")
+	void testPutWeakTag() throws Exception {
+		var isbn = "9782345678908";
+		var precondition = BookPrecondition.UNSATISFIABLE;
+		given(bookService.editBook(eq(isbn), any(Book.class), eq(precondition))).willThrow(new BookVersionMismatchException(isbn, precondition));
+
+		mockMvc.perform(put("/books/" + isbn).header("If-Match", "W/\"42-3\"")
+		                                     .contentType(MediaType.APPLICATION_JSON)
+		                                     .content("""
+		                                              {"isbn": "9782345678908", "title": "Title", "author": "Author", "price": 7.45}
+		                                              """))
+		       .andExpect(status().isPreconditionFailed());
+	}
+
+	@Test
+	@DisplayName("When the If-Match header of a PUT request lists several tags, the book is updated if it matches any strong one.")
+	void testPutAnyOfTags() throws Exception {
+		var isbn = "9782345678908";
+		var book = new Book(42L, isbn, "Title", "Author", 7.45, 4, null, null);
+		var precondition = BookPrecondition.anyOf(List.of(new BookPrecondition.Version(42L, 2), new BookPrecondition.Version(42L, 3)));
+		given(bookService.editBook(eq(isbn), any(Book.class), eq(precondition))).willReturn(book);
+
+		mockMvc.perform(put("/books/" + isbn).header("If-Match", "\"42-2\", W/\"42-4\", \"42-3.cbor\", \"42-2.gz\"")
+		                                     .contentType(MediaType.APPLICATION_JSON)
+		                                     .content("""
+		                                              {"isbn": "9782345678908", "title": "Title", "author": "Author", "price": 7.45}
+		                                              """))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"42-4\""));
+	}
+
+	@Test
+	@DisplayName("When books are posted as NDJSON, the batch endpoint should return a result for each line.")
+	void testPostBookStream() throws Exception {
+		given(bookService.addBooksToCatalog(any())).willAnswer(invocation -> {
+			Iterator<Book> books = invocation.getArgument(0);
+			return List.of(new BookBatchResult(0, books.next()
+			                                           .isbn(), BookBatchResult.Status.CREATED, Map.of()),
+			               new BookBatchResult(1, books.next()
+			                                           .isbn(), BookBatchResult.Status.DUPLICATE, Map.of()));
+		});
+
+		mockMvc.perform(post("/books/batch").contentType(MediaType.APPLICATION_NDJSON)
+		                                    .content("""
+		                                             {"isbn": "9782345678915", "title": "Title", "author": "Author", "price": 9.90}
+		                                             {"isbn": "9782345678922", "title": "Title", "author": "Author", "price": 9.90}
+		                                             """))
+		       .andExpect(status().isOk())
+		       .andExpect(jsonPath("$[0].status").value("CREATED"))
+		       .andExpect(jsonPath("$[1].isbn").value("9782345678922"))
+		       .andExpect(jsonPath("$[1].status").value("DUPLICATE"));
+	}
+
+	@Test
+	@DisplayName("When books are posted as CBOR and Smile is accepted, the batch endpoint should return the results as Smile.")
+	void testPostBooksBinary() throws Exception {
+		given(bookService.addBooksToCatalog(any())).willAnswer(invocation -> {
+			Iterator<Book> books = invocation.getArgument(0);
+			return List.of(new BookBatchResult(0, books.next()
+			                                           .isbn(), BookBatchResult.Status.CREATED, Map.of()));
+		});
+		var book = Book.builder()
+		               .isbn("9782345678915")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .build();
+
+		var body = mockMvc.perform(post("/books/batch").contentType(MediaType.APPLICATION_CBOR)
+		                                               .accept(BookFormat.SMILE.mediaType())
+		                                               .content(objectMappers.get(BookFormat.CBOR)
+		                                                                     .writeValueAsBytes(List.of(book))))
+		                  .andExpect(status().isOk())
+		                  .andExpect(header().string("Content-Type", BookFormat.APPLICATION_SMILE_VALUE))
+		                  .andReturn()
+		                  .getResponse()
+		                  .getContentAsByteArray();
+		var results = objectMappers.get(BookFormat.SMILE)
+		                           .readValue(body, BookBatchResult[].class);
+		assertThat(results).containsExactly(new BookBatchResult(0, book.isbn(), BookBatchResult.Status.CREATED, Map.of()));
+	}
+
+	@Test
+	@DisplayName("When books are posted as a JSON array, the batch endpoint should read them one at a time, null ones included.")
+	void testPostBooksStreamsArray() throws Exception {
+		given(bookService.addBooksToCatalog(any())).willAnswer(invocation -> {
+			Iterator<Book> books = invocation.getArgument(0);
+			var first = books.next();
+			assertThat(books.hasNext()).isTrue();
+			assertThat(books.next()).isNull();
+			assertThat(books.hasNext()).isFalse();
+			return List.of(new BookBatchResult(0, first.isbn(), BookBatchResult.Status.CREATED, Map.of()),
+			               new BookBatchResult(1, null, BookBatchResult.Status.INVALID, Map.of("book", "The book must be defined.")));
+		});
+
+		mockMvc.perform(post("/books/batch").contentType(MediaType.APPLICATION_JSON)
+		                                    .content("""
+		                                             [{"isbn": "9782345678915", "title": "Title", "author": "Author", "price": 9.90}, null]
+		                                             """))
+		       .andExpect(status().isOk())
+		       .andExpect(jsonPath("$[0].isbn").value("9782345678915"))
+		       .andExpect(jsonPath("$[1].status").value("INVALID"));
+	}
+
+	@Test
+	@DisplayName("When the posted JSON is not an array, the batch endpoint should return 400 (BAD_REQUEST).")
+	void testPostBooksNotArray() throws Exception {
+		mockMvc.perform(post("/books/batch").contentType(MediaType.APPLICATION_JSON)
+		                                    .content("{\"isbn\": \"9782345678915\"}"))
+		       .andExpect(status().isBadRequest());
+		then(bookService).should(never())
+		                 .addBooksToCatalog(any());
+	}
+
+	@Test
+	@DisplayName("When a malformed NDJSON line is posted, the batch endpoint should return 400 (BAD_REQUEST).")
+	void testPostMalformedBookStream() throws Exception {
+		given(bookService.addBooksToCatalog(any())).willAnswer(invocation -> {
+			Iterator<Book> books = invocation.getArgument(0);
+			books.next();
+			return List.of();
+		});
+
+		mockMvc.perform(post("/books/batch").contentType(MediaType.APPLICATION_NDJSON)
+		                                    .content("{\"isbn\": "))
+		       .andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@DisplayName("When several ISBNs are requested, the GET endpoint should return the found books and the missing ISBNs.")
+	void testGetBooksByIsbns() throws Exception {
+		var book = Book.builder()
+		               .isbn("9782345678915")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .build();
+		given(bookService.getBooks(List.of("9782345678915", "9782345678922"))).willReturn(new BookLookup(List.of(book), List.of("9782345678922")));
+
+		mockMvc.perform(get("/books").param("isbn", "9782345678915,9782345678922"))
+		       .andExpect(status().isOk())
+		       .andExpect(jsonPath("$.books[0].isbn").value("9782345678915"))
+		       .andExpect(jsonPath("$.missing[0]").value("9782345678922"));
+	}
+
+	@Test
+	@DisplayName("When a book is requested with its current ETag, the GET endpoint should return 304 (NOT_MODIFIED).")
+	void testGetBookNotModified() throws Exception {
+		var book = Book.builder()
+		               .id(42L)
+		               .isbn("9782345678908")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .version(3)
+		               .lastModifiedDate(Instant.parse("2023-11-01T10:15:30Z"))
+		               .build();
+		given(bookService.getBook(book.isbn())).willReturn(book);
+
+		mockMvc.perform(get("/books/" + book.isbn()))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"42-3\""));
+		mockMvc.perform(get("/books/" + book.isbn()).header("If-None-Match", "\"42-3\""))
+		       .andExpect(status().isNotModified());
+	}
+
+	@Test
+	@DisplayName("When a book is requested as CBOR, the GET endpoint should return its CBOR, and JSON by default.")
+	void testGetBookBinary() throws Exception {
+		var book = Book.builder()
+		               .id(42L)
+		               .isbn("9782345678908")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .version(3)
+		               .build();
+		given(bookService.getBook(book.isbn())).willReturn(book);
+
+		var cbor = mockMvc.perform(get("/books/" + book.isbn()).accept(MediaType.APPLICATION_CBOR))
+		                  .andExpect(status().isOk())
+		                  .andExpect(header().string("Content-Type", MediaType.APPLICATION_CBOR_VALUE))
+		                  .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+		                  .andReturn()
+		                  .getResponse()
+		                  .getContentAsByteArray();
+		assertThat(objectMappers.get(BookFormat.CBOR)
+		                        .readValue(cbor, Book.class)).isEqualTo(book);
+
+		mockMvc.perform(get("/books/" + book.isbn()).header("Accept", "*/*"))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("Content-Type", MediaType.APPLICATION_JSON_VALUE))
+		       .andExpect(jsonPath("$.isbn").value(book.isbn()));
+		mockMvc.perform(get("/books/" + book.isbn()).accept(MediaType.TEXT_HTML))
+		       .andExpect(status().isNotAcceptable());
+	}
+
+	@Test
+	@DisplayName("When the catalog is requested with the current catalog ETag, the GET endpoint should return 304 (NOT_MODIFIED) without loading books.")
+	void testGetBooksNotModified() throws Exception {
+		mockMvc.perform(get("/books").header("If-None-Match", "\"catalog-7\""))
+		       .andExpect(status().isNotModified());
+		then(bookService).should(never())
+		                 .getBooks(any(), any(), any(), any(), any());
+	}
+
+	@Test
+	@DisplayName("When the catalog is exported, the export endpoint should stream one JSON book per line.")
+	void testExportBooks() throws Exception {
+		willAnswer(invocation -> {
+			Consumer<Book> consumer = invocation.getArgument(3);
+			consumer.accept(Book.builder()
+			                    .id(1L)
+			                    .isbn("9782345678915")
+			                    .build());
+			consumer.accept(Book.builder()
+			                    .id(2L)
+			                    .isbn("9782345678922")
+			                    .build());
+			return null;
+		}).given(bookService)
+		  .exportBooks(eq(BookSort.ID), eq("0"), eq(BookField.ALL), any());
+
+		var body = mockMvc.perform(get("/books/export").param("after", "0"))
+		                  .andExpect(status().isOk())
+		                  .andExpect(header().string("Content-Type", MediaType.APPLICATION_NDJSON_VALUE))
+		                  .andReturn()
+		                  .getResponse()
+		                  .getContentAsString();
+		assertThat(body.lines()).hasSize(2)
+		                        .allMatch(line -> line.startsWith("{\"id\":"));
+	}
+
+	@Test
+	@DisplayName("When fields are requested, the export endpoint should stream only those fields of the books.")
+	void testExportBooksFields() throws Exception {
+		var fields = EnumSet.of(BookField.ISBN, BookField.TITLE);
+		willAnswer(invocation -> {
+			Consumer<Book> consumer = invocation.getArgument(3);
+			consumer.accept(Book.builder()
+			                    .id(1L)
+			                    .isbn("9782345678915")
+			                    .title("Title")
+			                    .build());
+			return null;
+		}).given(bookService)
+		  .exportBooks(eq(BookSort.ID), eq(null), eq(fields), any());
+
+		var body = mockMvc.perform(get("/books/export").param("fields", "title,isbn"))
+		                  .andExpect(status().isOk())
+		                  .andReturn()
+		                  .getResponse()
+		                  .getContentAsString();
+		assertThat(body.lines()).containsExactly("{\"isbn\":\"9782345678915\",\"title\":\"Title\"}");
+	}
+
+	@Test
+	@DisplayName("When the export is resumed after a position that is not a book id, the export endpoint should return 400 (BAD_REQUEST) without taking a permit.")
+	void testExportBooksAfterInvalidId() throws Exception {
+		mockMvc.perform(get("/books/export").param("after", "abc"))
+		       .andExpect(status().isBadRequest());
+		then(bookService).should(never())
+		                 .acquireExportPermit();
+	}
+
+	@Test
+	@DisplayName("When too many exports are running, the export endpoint should return 503 (SERVICE_UNAVAILABLE) with Retry-After, without writing a body.")
+	void testExportBooksUnavailable() throws Exception {
+		given(bookService.acquireExportPermit()).willThrow(new BookExportUnavailableException(1));
+
+		mockMvc.perform(get("/books/export").accept(MediaType.APPLICATION_JSON))
+		       .andExpect(status().isServiceUnavailable())
+		       .andExpect(header().exists("Retry-After"))
+		       .andExpect(content().string(new BookExportUnavailableException(1).getMessage()));
+		then(bookService).should(never())
+		                 .exportBooks(any(), any(), any(), any());
+	}
 }
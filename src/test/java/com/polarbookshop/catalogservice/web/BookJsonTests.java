@@ -1,5 +1,7 @@
 package com.polarbookshop.catalogservice.web;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.polarbookshop.catalogservice.domain.Book;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -7,6 +9,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.json.JsonTest;
 import org.springframework.boot.test.json.JacksonTester;
 
+import java.time.Instant;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @JsonTest
@@ -15,6 +20,9 @@ public class BookJsonTests {
 	@Autowired
 	private JacksonTester<Book> json;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@Test
 	@DisplayName("When a Book object is serialised, values should be set correctly ensuring serialization was successful.")
 	void testSerialize() throws Exception {
@@ -67,4 +75,59 @@ public class BookJsonTests {
 		               .getObject()).usingRecursiveComparison()
 		                            .isEqualTo(book);
 	}
+
+	@Test
+	@DisplayName("When a Book object is written as CBOR or Smile, reading it back should give the same book in fewer bytes than JSON.")
+	void testBinaryRoundTrip() throws Exception {
+		var book = Book.builder()
+		               .id(1L)
+		               .isbn("1234567890123")
+		               .title("Title")
+		               .author("Author")
+		               .price(9.90)
+		               .version(2)
+		               .createdDate(Instant.parse("2023-11-01T10:15:30.123456Z"))
+		               .lastModifiedDate(Instant.parse("2023-11-02T08:00:00Z"))
+		               .build();
+		var objectMappers = new BookObjectMappers(objectMapper);
+		var jsonBytes = objectMapper.writeValueAsBytes(book);
+
+		for (var format : List.of(BookFormat.CBOR, BookFormat.SMILE)) {
+			var bytes = objectMappers.get(format)
+			                         .writeValueAsBytes(book);
+			assertThat(objectMappers.get(format)
+			                        .readValue(bytes, Book.class)).as(format.name())
+			                                                      .isEqualTo(book);
+			assertThat(bytes.length).as(format.name())
+			                        .isLessThan(jsonBytes.length);
+		}
+	}
+
+	@Test
+	@DisplayName("When a list of Book objects is written as CBOR or Smile, reading it back should give the same list.")
+	void testBinaryListRoundTrip() throws Exception {
+		var books = List.of(Book.builder()
+		                        .id(1L)
+		                        .isbn("1234567890123")
+		                        .title("Title")
+		                        .author("Author")
+		                        .price(9.90)
+		                        .build(),
+		                    Book.builder()
+		                        .id(2L)
+		                        .isbn("1234567890124")
+		                        .title("Other Title")
+		                        .author("Other Author")
+		                        .price(12.50)
+		                        .build());
+		var objectMappers = new BookObjectMappers(objectMapper);
+
+		for (var format : List.of(BookFormat.CBOR, BookFormat.SMILE)) {
+			var bytes = objectMappers.get(format)
+			                         .writeValueAsBytes(books);
+			assertThat(objectMappers.get(format)
+			                        .readValue(bytes, new TypeReference<List<Book>>() {})).as(format.name())
+			                                                                              .isEqualTo(books);
+		}
+	}
 }
@@ -0,0 +1,135 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import com.polarbookshop.catalogservice.domain.Book;
+import com.polarbookshop.catalogservice.domain.BookChangedEvent;
+import com.polarbookshop.catalogservice.domain.BookField;
+import com.polarbookshop.catalogservice.domain.BookPage;
+import com.polarbookshop.catalogservice.domain.BookSort;
+import com.polarbookshop.catalogservice.domain.CatalogWatermark;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookResponseCacheTests {
+
+	private static final Instant CREATED = Instant.parse("2023-11-01T10:15:30Z");
+
+	private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final BookResponseCache bookResponseCache = new BookResponseCache(new BookObjectMappers(objectMapper), new PolarProperties(), meterRegistry);
+
+	@Test
+	@DisplayName("When the same version of a book is served again, then it is not encoded again, and a new version is.")
+	void testBookEncodedOncePerVersion() throws IOException {
+		var book = book(1, "9780261102217", 1);
+
+		var first = bookResponseCache.book(book, BookFormat.JSON);
+		var second = bookResponseCache.book(book, BookFormat.JSON);
+
+		assertThat(second).isSameAs(first);
+		assertThat(objectMapper.readValue(first.body(), Book.class)).isEqualTo(book);
+		assertThat(meterRegistry.get("cache.gets")
+		                        .tag("cache", "books.responses")
+		                        .tag("result", "hit")
+		                        .functionCounter()
+		                        .count()).isEqualTo(1);
+
+		var edited = bookResponseCache.book(book(1, "9780261102217", 2), BookFormat.JSON);
+
+		assertThat(edited).isNotSameAs(first);
+		assertThat(objectMapper.readValue(edited.body(), Book.class)
+		                       .version()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("When a book changes, then its response is evicted.")
+	void testBookEvictedOnChange() {
+		var book = book(1, "9780261102217", 1);
+		var first = bookResponseCache.book(book, BookFormat.JSON);
+
+		bookResponseCache.onBookChanged(new BookChangedEvent(book.isbn(), BookChangedEvent.Type.UPDATED));
+
+		assertThat(bookResponseCache.book(book, BookFormat.JSON)).isNotSameAs(first);
+	}
+
+	@Test
+	@DisplayName("When a book is served as CBOR, then it is cached apart from its JSON, and evicted along with it.")
+	void testBookCachedPerFormat() throws IOException {
+		var book = book(1, "9780261102217", 1);
+		var json = bookResponseCache.book(book, BookFormat.JSON);
+		var cbor = bookResponseCache.book(book, BookFormat.CBOR);
+
+		assertThat(bookResponseCache.book(book, BookFormat.CBOR)).isSameAs(cbor);
+		assertThat(cbor.body()).isNotEqualTo(json.body());
+		assertThat(new BookObjectMappers(objectMapper).get(BookFormat.CBOR)
+		                                              .readValue(cbor.body(), Book.class)).isEqualTo(book);
+
+		bookResponseCache.onBookChanged(new BookChangedEvent(book.isbn(), BookChangedEvent.Type.UPDATED));
+
+		assertThat(bookResponseCache.book(book, BookFormat.JSON)).isNotSameAs(json);
+		assertThat(bookResponseCache.book(book, BookFormat.CBOR)).isNotSameAs(cbor);
+	}
+
+	@Test
+	@DisplayName("When a page is served again, then it is only loaded again once the catalog version changed.")
+	void testPageLoadedOncePerCatalogVersion() {
+		var loads = new AtomicInteger();
+		var page = new BookPage(List.of(book(1, "9780261102217", 1)), "1");
+
+		var first = bookResponseCache.page(watermark(7), null, 20, BookSort.ID, null, BookField.ALL, BookFormat.JSON, () -> load(loads, page));
+		var second = bookResponseCache.page(watermark(7), null, 20, BookSort.ID, null, BookField.ALL, BookFormat.JSON, () -> load(loads, page));
+		var otherQuery = bookResponseCache.page(watermark(7), "1", 20, BookSort.ID, null, BookField.ALL, BookFormat.JSON, () -> load(loads, page));
+		var changed = bookResponseCache.page(watermark(8), null, 20, BookSort.ID, null, BookField.ALL, BookFormat.JSON, () -> load(loads, page));
+
+		assertThat(second).isSameAs(first);
+		assertThat(first.nextCursor()).isEqualTo("1");
+		assertThat(otherQuery).isNotSameAs(first);
+		assertThat(changed).isNotSameAs(first);
+		assertThat(loads).hasValue(3);
+	}
+
+	@Test
+	@DisplayName("When a page is large enough, then a gzipped copy is kept along with it.")
+	void testLargePageGzipped() throws IOException {
+		var books = new ArrayList<Book>();
+		for (var n = 0; n < 20; n++) {
+			books.add(book(n, "978026110221" + n % 10, 1));
+		}
+
+		var page = bookResponseCache.page(watermark(7), null, 20, BookSort.ID, null, BookField.ALL, BookFormat.JSON, () -> new BookPage(books, null));
+		var single = bookResponseCache.book(books.get(0), BookFormat.JSON);
+
+		assertThat(page.gzippedBody()).isNotNull();
+		assertThat(page.gzippedBody().length).isLessThan(page.body().length);
+		try (var gzip = new GZIPInputStream(new ByteArrayInputStream(page.gzippedBody()))) {
+			assertThat(gzip.readAllBytes()).isEqualTo(page.body());
+		}
+		assertThat(single.gzippedBody()).isNull();
+	}
+
+	private static BookPage load(AtomicInteger loads, BookPage page) {
+		loads.incrementAndGet();
+		return page;
+	}
+
+	private static CatalogWatermark watermark(long version) {
+		return new CatalogWatermark(version, CREATED);
+	}
+
+	private static Book book(long id, String isbn, int version) {
+		return new Book(id, isbn, "The Hobbit", "J.R.R. Tolkien", 9.90, version, CREATED, CREATED);
+	}
+}
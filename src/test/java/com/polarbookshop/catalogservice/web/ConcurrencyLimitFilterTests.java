@@ -0,0 +1,122 @@
+package com.polarbookshop.catalogservice.web;
+
+import com.polarbookshop.catalogservice.config.PolarProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitFilterTests {
+
+	private PolarProperties.ConcurrencyLimit properties;
+	private AtomicInteger pendingConnections;
+	private SimpleMeterRegistry meterRegistry;
+	private ConcurrencyLimitFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		properties = new PolarProperties().getConcurrencyLimit();
+		properties.getRead()
+		          .setInitial(1);
+		properties.getWrite()
+		          .setInitial(1);
+		pendingConnections = new AtomicInteger();
+		meterRegistry = new SimpleMeterRegistry();
+		filter = new ConcurrencyLimitFilter(properties, pendingConnections::get, meterRegistry);
+	}
+
+	@Test
+	@DisplayName("When the read limit is reached, then further reads are rejected with 503 and Retry-After but writes pass.")
+	void testRejectAboveLimit() throws Exception {
+		var nested = new AtomicInteger();
+		FilterChain chain = (request, response) -> {
+			var read = filter(get("/books/1234567891"));
+			var write = filter(new MockHttpServletRequest("POST", "/books"));
+			assertThat(read.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+			assertThat(read.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+			assertThat(write.getStatus()).isEqualTo(HttpStatus.OK.value());
+			nested.incrementAndGet();
+		};
+		filter.doFilter(get("/books"), new MockHttpServletResponse(), chain);
+
+		assertThat(nested).hasValue(1);
+		assertThat(meterRegistry.get("books.concurrency.rejections")
+		                        .tag("kind", "read")
+		                        .counter()
+		                        .count()).isEqualTo(1);
+		assertThat(filter(get("/books")).getStatus()).isEqualTo(HttpStatus.OK.value());
+	}
+
+	@Test
+	@DisplayName("When requests are fast and use the limit, then it grows additively up to the maximum.")
+	void testIncreaseLimit() {
+		var limiter = new AimdLimiter(properties.getRead());
+		for (var i = 0; i < 100; i++) {
+			var acquired = 0;
+			while (limiter.tryAcquire()) {
+				acquired++;
+			}
+			for (var j = 0; j < acquired; j++) {
+				limiter.release(0, false);
+			}
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(properties.getRead()
+		                                                   .getMax());
+		assertThat(limiter.getInFlight()).isZero();
+	}
+
+	@Test
+	@DisplayName("When requests are slow or the connection pool is saturated, then the limit shrinks multiplicatively.")
+	void testDecreaseLimit() {
+		var limit = properties.getRead();
+		limit.setInitial(10);
+		var limiter = new AimdLimiter(limit);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		limiter.release(0, true);
+		assertThat(limiter.getLimit()).isEqualTo(9);
+
+		for (var i = 0; i < 100; i++) {
+			assertThat(limiter.tryAcquire()).isTrue();
+			limiter.release(limit.getLatencyThreshold()
+			                     .toNanos() + 1, false);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(limit.getMin());
+	}
+
+	@Test
+	@DisplayName("When the catalog is exported, then the request is not limited.")
+	void testExportNotLimited() throws Exception {
+		properties.getRead()
+		          .setInitial(0);
+		filter = new ConcurrencyLimitFilter(properties, pendingConnections::get, new SimpleMeterRegistry());
+
+		assertThat(filter(get("/books/export")).getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(filter(get("/books")).getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+	}
+
+	private MockHttpServletResponse filter(MockHttpServletRequest request) {
+		var response = new MockHttpServletResponse();
+		try {
+			filter.doFilter(request, response, new MockFilterChain());
+		} catch (Exception exception) {
+			throw new IllegalStateException(exception);
+		}
+		return response;
+	}
+
+	private static MockHttpServletRequest get(String uri) {
+		return new MockHttpServletRequest("GET", uri);
+	}
+}